@@ -2,8 +2,10 @@ package com.mealplanner;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MealPlannerApplication {
     public static void main(String[] args) {
         SpringApplication.run(MealPlannerApplication.class, args);
@@ -0,0 +1,145 @@
+package com.mealplanner.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves a gzip variant of text assets, compressed once at maximum level and kept in memory, so neither the
+ * build nor each response has to compress. Resources that already carry an encoding (a shipped {@code .br} or
+ * {@code .gz} sibling picked up by Spring's {@code EncodedResourceResolver}) pass through untouched.
+ */
+class PrecompressedResourceResolver implements ResourceResolver {
+
+    private static final List<String> COMPRESSIBLE = List.of(".css", ".js", ".svg", ".json", ".map", ".txt");
+    // Small files gain a few hundred bytes at most; not worth a second copy in memory
+    private static final int MIN_BYTES = 1024;
+
+    // Resource URL to its gzip bytes; empty when compression did not make it smaller
+    private final Map<String, byte[]> gzipped = new ConcurrentHashMap<>();
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                    List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || request == null || isEncoded(resource) || !acceptsGzip(request)
+                || !isCompressible(resource.getFilename())) {
+            return resource;
+        }
+        try {
+            byte[] bytes = gzipped.computeIfAbsent(resource.getURL().toString(), key -> gzip(resource));
+            return bytes.length == 0 ? resource : new GzippedResource(resource, bytes);
+        } catch (IOException e) {
+            return resource;
+        }
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+
+    // Versioned resources are HttpResources too (they carry an ETag); only a Content-Encoding means already encoded
+    private static boolean isEncoded(Resource resource) {
+        return resource instanceof HttpResource http && http.getResponseHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return header != null && header.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private static boolean isCompressible(String filename) {
+        if (filename == null) return false;
+        String name = filename.toLowerCase(Locale.ROOT);
+        for (String ext : COMPRESSIBLE) {
+            if (name.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            byte[] raw = in.readAllBytes();
+            if (raw.length < MIN_BYTES) return new byte[0];
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3);
+            try (OutputStream gz = new GZIPOutputStream(out) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+                gz.write(raw);
+            }
+            return out.size() < raw.length ? out.toByteArray() : new byte[0];
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    /** The gzip bytes of a resource, presented under the original name so the media type is unchanged. */
+    private static final class GzippedResource extends AbstractResource implements HttpResource {
+        private final Resource original;
+        private final byte[] bytes;
+
+        GzippedResource(Resource original, byte[] bytes) {
+            this.original = original;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return original.getURL();
+        }
+
+        @Override
+        public String getDescription() {
+            return "gzip of " + original.getDescription();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = original instanceof HttpResource http ? http.getResponseHeaders() : new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return headers;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.mealplanner.config;
 
 import com.mealplanner.service.CustomOAuth2UserService;
+import com.mealplanner.service.CustomOidcUserService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -12,23 +14,28 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     private final CustomOAuth2UserService customOAuth2UserService;
+    private final CustomOidcUserService customOidcUserService;
 
-    public SecurityConfig(CustomOAuth2UserService customOAuth2UserService) {
+    public SecurityConfig(CustomOAuth2UserService customOAuth2UserService, CustomOidcUserService customOidcUserService) {
         this.customOAuth2UserService = customOAuth2UserService;
+        this.customOidcUserService = customOidcUserService;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/", "/home", "/about", "/login", "/error", "/webjars/**", "/css/**", "/images/**", "/oauth2/**", "/login/oauth2/**").permitAll()
+                .requestMatchers("/", "/home", "/about", "/login", "/error", "/oauth2/**", "/login/oauth2/**").permitAll()
                 .requestMatchers("/h2-console/**").permitAll()
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
                 .loginPage("/login")
                 .defaultSuccessUrl("/dashboard", true)
-                .userInfoEndpoint(userInfo -> userInfo.userService(customOAuth2UserService))
+                // Google is registered with the openid scope, so logins normally take the OIDC service
+                .userInfoEndpoint(userInfo -> userInfo
+                    .userService(customOAuth2UserService)
+                    .oidcUserService(customOidcUserService))
             )
             .logout(logout -> logout
                 .logoutUrl("/logout")
@@ -48,4 +55,10 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    // Public, content-hashed assets: skip the filter chain entirely (no session lookup, no security headers)
+    @Bean
+    public WebSecurityCustomizer staticResources() {
+        return web -> web.ignoring().requestMatchers("/webjars/**", "/css/**", "/js/**", "/images/**", "/favicon.ico");
+    }
 }
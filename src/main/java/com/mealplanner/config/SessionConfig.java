@@ -0,0 +1,13 @@
+package com.mealplanner.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+/**
+ * Replaces the container's in-memory sessions with {@link com.mealplanner.security.JdbcSessionRepository},
+ * so sessions survive restarts and are shared by every node behind the load balancer.
+ */
+@Configuration
+@EnableSpringHttpSession
+public class SessionConfig {
+}
@@ -0,0 +1,50 @@
+package com.mealplanner.config;
+
+import com.mealplanner.security.CurrentUserArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CurrentUserArgumentResolver currentUserArgumentResolver;
+
+    public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver) {
+        this.currentUserArgumentResolver = currentUserArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+
+    /**
+     * Static files and WebJars (Boot's own mappings are off: spring.web.resources.add-mappings=false).
+     * Template links are rewritten to content-hashed URLs, so a URL's bytes never change and browsers may keep
+     * them for a year without revalidating. Text assets are served gzipped, or from a shipped .br/.gz sibling.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        assetChain(registry.addResourceHandler("/webjars/**")
+                .addResourceLocations("classpath:/META-INF/resources/webjars/"));
+        assetChain(registry.addResourceHandler("/**")
+                .addResourceLocations("classpath:/static/"));
+    }
+
+    private static void assetChain(ResourceHandlerRegistration registration) {
+        registration.setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new PrecompressedResourceResolver())
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+}
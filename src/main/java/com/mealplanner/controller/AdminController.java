@@ -1,25 +1,34 @@
 package com.mealplanner.controller;
 
-import com.mealplanner.model.FoodLog;
+import com.mealplanner.dto.AdminFoodLogRow;
+import com.mealplanner.dto.AdminMealPlanRow;
+import com.mealplanner.dto.AdminUserRow;
+import com.mealplanner.dto.KeysetPage;
 import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
-import com.mealplanner.repository.FoodLogRepository;
+import com.mealplanner.repository.AdminListingRepository;
 import com.mealplanner.repository.SavedMealPlanRepository;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.service.AdminExportService;
 import com.mealplanner.service.AdminService;
+import com.mealplanner.service.AdminStatsSnapshotService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 @RequestMapping("/admin")
@@ -28,39 +37,36 @@ public class AdminController {
     private final AdminService adminService;
     private final UserRepository userRepository;
     private final SavedMealPlanRepository savedMealPlanRepository;
-    private final FoodLogRepository foodLogRepository;
+    private final AdminListingRepository adminListingRepository;
+    private final AdminStatsSnapshotService adminStatsSnapshotService;
+    private final AdminExportService adminExportService;
+
+    private static final int PAGE_SIZE = 50;
 
     public AdminController(AdminService adminService,
                            UserRepository userRepository,
                            SavedMealPlanRepository savedMealPlanRepository,
-                           FoodLogRepository foodLogRepository) {
+                           AdminListingRepository adminListingRepository,
+                           AdminStatsSnapshotService adminStatsSnapshotService,
+                           AdminExportService adminExportService) {
         this.adminService = adminService;
         this.userRepository = userRepository;
         this.savedMealPlanRepository = savedMealPlanRepository;
-        this.foodLogRepository = foodLogRepository;
-    }
-
-    private User getCurrentUser(@AuthenticationPrincipal OAuth2User principal) {
-        if (principal == null) return null;
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
-        return user;
+        this.adminListingRepository = adminListingRepository;
+        this.adminStatsSnapshotService = adminStatsSnapshotService;
+        this.adminExportService = adminExportService;
     }
 
-    private void requireAdmin(@AuthenticationPrincipal OAuth2User principal) {
-        User current = getCurrentUser(principal);
-        if (current == null || !current.isAdmin()) {
+    private void requireAdmin(CurrentUser currentUser) {
+        if (currentUser == null || !currentUser.isAdmin()) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required");
         }
     }
 
     @GetMapping("")
-    public String dashboard(@AuthenticationPrincipal OAuth2User principal, Model model) {
-        requireAdmin(principal);
-        Map<String, Object> stats = adminService.getDashboardStats();
+    public String dashboard(CurrentUser currentUser, Model model) {
+        requireAdmin(currentUser);
+        Map<String, Object> stats = adminStatsSnapshotService.getStats();
         model.addAllAttributes(stats);
         List<User> recent = userRepository.findTop10ByOrderByCreatedAtDesc();
         model.addAttribute("recentUsers", recent);
@@ -68,75 +74,89 @@ public class AdminController {
     }
 
     @GetMapping("/users")
-    public String allUsers(@AuthenticationPrincipal OAuth2User principal,
+    public String allUsers(CurrentUser currentUser,
                            @RequestParam(required = false) String search,
                            @RequestParam(required = false) String sortBy,
+                           @RequestParam(required = false, defaultValue = "0") int page,
                            Model model) {
-        requireAdmin(principal);
-
-        List<Map<String, Object>> users;
-        if (search != null && !search.isEmpty()) {
-            List<User> results = adminService.searchUsers(search);
-            users = new ArrayList<>();
-            for (User u : results) {
-                Map<String, Object> m = new HashMap<>();
-                m.put("user", u);
-                m.put("totalFoodLogs", foodLogRepository.countByUser(u));
-                m.put("totalMealPlans", savedMealPlanRepository.countByUser(u));
-                FoodLog last = foodLogRepository.findTopByUserOrderByLogDateDesc(u);
-                m.put("lastActive", last != null ? last.getLogDate() : null);
-                users.add(m);
-            }
-        } else {
-            users = adminService.getAllUsersWithStats();
-        }
-
-        if (sortBy != null) {
-            switch (sortBy) {
-                case "name" -> users.sort(Comparator.comparing(u -> ((User) u.get("user")).getName(), Comparator.nullsLast(String::compareToIgnoreCase)));
-                case "email" -> users.sort(Comparator.comparing(u -> ((User) u.get("user")).getEmail(), Comparator.nullsLast(String::compareToIgnoreCase)));
-                case "created" -> users.sort(Comparator.comparing(u -> ((User) u.get("user")).getCreatedAt(), Comparator.nullsLast(Comparator.reverseOrder())));
-                case "active" -> users.sort(Comparator.comparing(u -> (LocalDate) u.get("lastActive"), Comparator.nullsLast(Comparator.reverseOrder())));
-            }
-        }
+        requireAdmin(currentUser);
+        int pageIndex = Math.max(page, 0);
+        long total = adminListingRepository.countUsers(search);
+        List<AdminUserRow> users = adminListingRepository.findUsersWithStats(search, sortBy, pageIndex, PAGE_SIZE);
 
         model.addAttribute("users", users);
         model.addAttribute("search", search);
         model.addAttribute("sortBy", sortBy);
+        model.addAttribute("page", pageIndex);
+        model.addAttribute("totalUsers", total);
+        model.addAttribute("hasNext", (long) (pageIndex + 1) * PAGE_SIZE < total);
         return "admin/users";
     }
 
     @GetMapping("/users/{userId}")
-    public String userDetails(@AuthenticationPrincipal OAuth2User principal,
+    public String userDetails(CurrentUser currentUser,
                               @PathVariable Long userId,
+                              @RequestParam(required = false, defaultValue = "plans") String tab,
+                              @RequestParam(required = false) String cursor,
                               Model model) {
-        requireAdmin(principal);
+        requireAdmin(currentUser);
         Map<String, Object> details = adminService.getUserDetails(userId);
         model.addAllAttributes(details);
+
+        // Only the open tab is queried, one keyset page at a time
+        boolean logsTab = "logs".equals(tab);
+        try {
+            if (logsTab) {
+                KeysetPage<AdminFoodLogRow> page = adminListingRepository.findFoodLogs(userId, null, cursor, PAGE_SIZE);
+                model.addAttribute("foodLogs", page.getItems());
+                model.addAttribute("nextCursor", page.getNextCursor());
+            } else {
+                KeysetPage<AdminMealPlanRow> page = adminListingRepository.findMealPlans(userId, cursor, PAGE_SIZE);
+                model.addAttribute("mealPlans", page.getItems());
+                model.addAttribute("nextCursor", page.getNextCursor());
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        model.addAttribute("tab", logsTab ? "logs" : "plans");
+        model.addAttribute("firstPage", cursor == null || cursor.isBlank());
         return "admin/user-details";
     }
 
     @PostMapping("/users/{userId}/delete")
-    public String deleteUser(@AuthenticationPrincipal OAuth2User principal,
+    public String deleteUser(CurrentUser currentUser,
                              @PathVariable Long userId) {
-        requireAdmin(principal);
+        requireAdmin(currentUser);
         adminService.deleteUser(userId);
         return "redirect:/admin/users?deleted=true";
     }
 
     @PostMapping("/users/{userId}/impersonate")
-    public String impersonateUser(@AuthenticationPrincipal OAuth2User principal,
+    public String impersonateUser(CurrentUser currentUser,
                                   @PathVariable Long userId,
                                   HttpSession session) {
-        requireAdmin(principal);
+        requireAdmin(currentUser);
         User target = userRepository.findById(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        User admin = getCurrentUser(principal);
-        session.setAttribute("originalAdminId", admin != null ? admin.getId() : null);
+        session.setAttribute("originalAdminId", currentUser.getId());
         session.setAttribute("impersonating", true);
         session.setAttribute("impersonateUserId", target.getId());
         return "redirect:/dashboard";
     }
 
+    @PostMapping("/maintenance/rebuild-nutrition-summary")
+    public String rebuildNutritionSummary(CurrentUser currentUser) {
+        requireAdmin(currentUser);
+        int rows = adminService.rebuildNutritionSummaries();
+        return "redirect:/admin?summaryRows=" + rows;
+    }
+
+    @PostMapping("/maintenance/refresh-stats")
+    public String refreshStats(CurrentUser currentUser) {
+        requireAdmin(currentUser);
+        adminStatsSnapshotService.refresh();
+        return "redirect:/admin";
+    }
+
     @GetMapping("/exit-impersonation")
     public String exitImpersonation(HttpSession session) {
         if (Boolean.TRUE.equals(session.getAttribute("impersonating"))) {
@@ -147,27 +167,33 @@ public class AdminController {
     }
 
     @GetMapping("/meal-plans")
-    public String allMealPlans(@AuthenticationPrincipal OAuth2User principal,
+    public String allMealPlans(CurrentUser currentUser,
                                @RequestParam(required = false) Long userId,
+                               @RequestParam(required = false) String cursor,
                                Model model) {
-        requireAdmin(principal);
-        List<SavedMealPlan> plans;
+        requireAdmin(currentUser);
         if (userId != null) {
             User user = userRepository.findById(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-            plans = savedMealPlanRepository.findByUserOrderByCreatedAtDesc(user);
             model.addAttribute("filterUser", user);
-        } else {
-            plans = savedMealPlanRepository.findAllByOrderByCreatedAtDesc();
         }
-        model.addAttribute("mealPlans", plans);
+        KeysetPage<AdminMealPlanRow> page;
+        try {
+            page = adminListingRepository.findMealPlans(userId, cursor, PAGE_SIZE);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        model.addAttribute("mealPlans", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("firstPage", cursor == null || cursor.isBlank());
+        model.addAttribute("userId", userId);
         return "admin/meal-plans";
     }
 
     @GetMapping("/meal-plans/{planId}")
-    public String mealPlanDetails(@AuthenticationPrincipal OAuth2User principal,
+    public String mealPlanDetails(CurrentUser currentUser,
                                   @PathVariable Long planId,
                                   Model model) {
-        requireAdmin(principal);
+        requireAdmin(currentUser);
         SavedMealPlan plan = savedMealPlanRepository.findById(planId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         model.addAttribute("plan", plan);
         model.addAttribute("user", plan.getUser());
@@ -175,92 +201,82 @@ public class AdminController {
     }
 
     @GetMapping("/food-logs")
-    public String allFoodLogs(@AuthenticationPrincipal OAuth2User principal,
+    public String allFoodLogs(CurrentUser currentUser,
                               @RequestParam(required = false) Long userId,
                               @RequestParam(required = false) String date,
+                              @RequestParam(required = false) String cursor,
                               Model model) {
-        requireAdmin(principal);
-        List<FoodLog> foodLogs;
+        requireAdmin(currentUser);
         if (userId != null) {
             User user = userRepository.findById(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-            foodLogs = foodLogRepository.findByUserAndLogDateBetweenOrderByLogDateDescTimeLoggedAsc(user, LocalDate.of(1970,1,1), LocalDate.now());
             model.addAttribute("filterUser", user);
-        } else {
-            foodLogs = foodLogRepository.findAllByOrderByLogDateDesc();
         }
-        if (date != null && !date.isEmpty()) {
-            LocalDate filterDate = LocalDate.parse(date);
-            foodLogs = foodLogs.stream().filter(f -> f.getLogDate().equals(filterDate)).collect(Collectors.toList());
-            model.addAttribute("filterDate", date);
+        KeysetPage<AdminFoodLogRow> page;
+        try {
+            LocalDate filterDate = (date != null && !date.isEmpty()) ? LocalDate.parse(date) : null;
+            page = adminListingRepository.findFoodLogs(userId, filterDate, cursor, PAGE_SIZE);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date or cursor");
         }
-        model.addAttribute("foodLogs", foodLogs);
+        if (date != null && !date.isEmpty()) model.addAttribute("filterDate", date);
+        model.addAttribute("foodLogs", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("firstPage", cursor == null || cursor.isBlank());
+        model.addAttribute("userId", userId);
         return "admin/food-logs";
     }
 
     @GetMapping("/ai-accuracy")
-    public String aiAccuracy(@AuthenticationPrincipal OAuth2User principal, Model model) {
-        requireAdmin(principal);
+    public String aiAccuracy(CurrentUser currentUser, Model model) {
+        requireAdmin(currentUser);
         Map<String, Object> metrics = adminService.getAIAccuracyMetrics();
         model.addAllAttributes(metrics);
         return "admin/ai-accuracy";
     }
 
     @GetMapping("/export/users")
-    @ResponseBody
-    public ResponseEntity<String> exportUsers(@AuthenticationPrincipal OAuth2User principal) {
-        requireAdmin(principal);
-        List<User> users = userRepository.findAll();
-        StringBuilder csv = new StringBuilder();
-        csv.append("ID,Name,Email,Created At,Last Login,Is Admin\n");
-        for (User user : users) {
-            csv.append(user.getId()).append(",")
-               .append(escapeCSV(user.getName())).append(",")
-               .append(escapeCSV(user.getEmail())).append(",")
-               .append(user.getCreatedAt()).append(",")
-               .append(user.getLastLoginAt()).append(",")
-               .append(user.isAdmin()).append("\n");
-        }
-        return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=users.csv")
-                .header("Content-Type", "text/csv")
-                .body(csv.toString());
+    public ResponseEntity<StreamingResponseBody> exportUsers(CurrentUser currentUser,
+                                                             @RequestParam(required = false) String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        requireAdmin(currentUser);
+        return streamExport("users", format, acceptEncoding, adminExportService::exportUsers);
     }
 
     @GetMapping("/export/meal-plans")
-    @ResponseBody
-    public ResponseEntity<String> exportMealPlans(@AuthenticationPrincipal OAuth2User principal) {
-        requireAdmin(principal);
-        List<SavedMealPlan> plans = savedMealPlanRepository.findAll();
-        StringBuilder csv = new StringBuilder();
-        csv.append("ID,User ID,User Email,Created At,Target Cal,Target P,Target C,Target F,Actual Cal,Actual P,Actual C,Actual F,Accuracy Score,Failed\n");
-        for (SavedMealPlan plan : plans) {
-            csv.append(plan.getId()).append(",")
-               .append(plan.getUser().getId()).append(",")
-               .append(escapeCSV(plan.getUser().getEmail())).append(",")
-               .append(plan.getCreatedAt()).append(",")
-               .append(plan.getTargetCalories()).append(",")
-               .append(plan.getTargetProtein()).append(",")
-               .append(plan.getTargetCarbs()).append(",")
-               .append(plan.getTargetFat()).append(",")
-               .append(plan.getActualCalories()).append(",")
-               .append(plan.getActualProtein()).append(",")
-               .append(plan.getActualCarbs()).append(",")
-               .append(plan.getActualFat()).append(",")
-               .append(plan.getAccuracyScore()).append(",")
-               .append(plan.isGenerationFailed()).append("\n");
-        }
-        return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=meal-plans.csv")
-                .header("Content-Type", "text/csv")
-                .body(csv.toString());
+    public ResponseEntity<StreamingResponseBody> exportMealPlans(CurrentUser currentUser,
+                                                                 @RequestParam(required = false) String format,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        requireAdmin(currentUser);
+        return streamExport("meal-plans", format, acceptEncoding, adminExportService::exportMealPlans);
+    }
+
+    private interface ExportWriter {
+        void write(AdminExportService.Format format, OutputStream out) throws IOException;
     }
 
-    private String escapeCSV(String value) {
-        if (value == null) return "";
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
+    private ResponseEntity<StreamingResponseBody> streamExport(String name, String format, String acceptEncoding, ExportWriter writer) {
+        AdminExportService.Format fmt;
+        try {
+            fmt = AdminExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format: " + format);
         }
-        return value;
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream zipped = new GZIPOutputStream(out, 8192);
+                writer.write(fmt, zipped);
+                zipped.finish();
+            } else {
+                writer.write(fmt, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + name + "." + fmt.getExtension())
+                .header(HttpHeaders.CONTENT_TYPE, fmt.getContentType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
     }
 }
-
@@ -3,10 +3,12 @@ package com.mealplanner.controller;
 import com.mealplanner.model.User;
 import com.mealplanner.repository.SavedMealPlanRepository;
 import com.mealplanner.service.FoodLogService;
+import com.mealplanner.service.SavedMealPlanService;
 import com.mealplanner.model.FoodLog;
 import java.util.List;
 import java.util.Map;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
 import com.mealplanner.service.UserFoodPreferencesService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.user.OAuth2User;
@@ -22,65 +24,59 @@ public class DashboardController {
     private final SavedMealPlanRepository mealPlanRepository;
     private final FoodLogService foodLogService;
     private final UserFoodPreferencesService preferencesService;
+    private final SavedMealPlanService savedMealPlanService;
 
-    public DashboardController(UserRepository userRepository, SavedMealPlanRepository mealPlanRepository, FoodLogService foodLogService, UserFoodPreferencesService preferencesService) {
+    public DashboardController(UserRepository userRepository, SavedMealPlanRepository mealPlanRepository, FoodLogService foodLogService, UserFoodPreferencesService preferencesService, SavedMealPlanService savedMealPlanService) {
         this.userRepository = userRepository;
         this.mealPlanRepository = mealPlanRepository;
         this.foodLogService = foodLogService;
         this.preferencesService = preferencesService;
+        this.savedMealPlanService = savedMealPlanService;
     }
 
     @GetMapping("/dashboard")
-    public String dashboard(@AuthenticationPrincipal OAuth2User principal, Model model, HttpSession session) {
+    public String dashboard(@AuthenticationPrincipal OAuth2User principal, CurrentUser currentUser, Model model, HttpSession session) {
         if (principal == null) return "redirect:/login";
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        String name = principal.getAttribute("name");
-        String picture = principal.getAttribute("picture");
         User user = null;
+        Object displayUser = currentUser;
         if (Boolean.TRUE.equals(session.getAttribute("impersonating"))) {
             Object idObj = session.getAttribute("impersonateUserId");
             if (idObj instanceof Long) {
                 user = userRepository.findById((Long) idObj).orElse(null);
+                if (user != null) displayUser = user;
             }
         }
-        if (user == null) {
-            if (email != null) user = userRepository.findByEmail(email).orElse(null);
-            if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
+        if (user == null && currentUser != null) {
+            // Reference only: the id is all the queries below need, the name comes from the principal
+            user = userRepository.getReferenceById(currentUser.getId());
         }
         if (user == null) {
             // Fallback: create user record if missing to avoid redirect loops
+            String email = principal.getAttribute("email");
+            String googleId = principal.getAttribute("sub");
+            String name = principal.getAttribute("name");
+            String picture = principal.getAttribute("picture");
             String em = (email != null) ? email : (googleId != null ? googleId + "@google.local" : "user@google.local");
             String nm = (name != null) ? name : (email != null ? email : "User");
             String gid = (googleId != null) ? googleId : em;
             user = new User(em, nm, gid);
             if (picture != null) user.setProfilePictureUrl(picture);
             userRepository.save(user);
+            displayUser = user;
         }
         List<com.mealplanner.model.SavedMealPlan> recent = mealPlanRepository.findTop10ByUserOrderByCreatedAtDesc(user);
         List<FoodLog> todaysFoodLogs = foodLogService.getTodaysFoodLogs(user);
-        Map<String, Integer> todaysTotals = new java.util.HashMap<>();
-        int tCal = 0, tP = 0, tC = 0, tF = 0;
-        for (FoodLog fl : todaysFoodLogs) {
-            tCal += fl.getCalories();
-            tP += fl.getProtein();
-            tC += fl.getCarbs();
-            tF += fl.getFat();
-        }
-        todaysTotals.put("calories", tCal);
-        todaysTotals.put("protein", tP);
-        todaysTotals.put("carbs", tC);
-        todaysTotals.put("fat", tF);
+        Map<String, Integer> todaysTotals = foodLogService.calculateTodaysTotals(user);
         com.mealplanner.model.SavedMealPlan latestPlan = recent.isEmpty() ? null : recent.get(0);
-        // Parse latest plan JSON for Quick Add modal
+        // Rebuild latest plan for Quick Add modal
         com.mealplanner.model.MealPlan latestMealPlan = null;
-        if (latestPlan != null && latestPlan.getMealPlanJson() != null) {
+        if (latestPlan != null) {
             try {
-                latestMealPlan = new com.fasterxml.jackson.databind.ObjectMapper().readValue(latestPlan.getMealPlanJson(), com.mealplanner.model.MealPlan.class);
+                latestMealPlan = savedMealPlanService.loadMealPlan(latestPlan);
             } catch (Exception ignore) {}
         }
 
-        model.addAttribute("user", user);
+        model.addAttribute("user", displayUser);
         model.addAttribute("savedPlans", recent);
         model.addAttribute("todaysFoodLogs", todaysFoodLogs);
         model.addAttribute("todaysTotals", todaysTotals);
@@ -3,16 +3,16 @@ package com.mealplanner.controller;
 import com.mealplanner.model.FoodLog;
 import com.mealplanner.model.User;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
 import com.mealplanner.service.FoodLogService;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
+import com.mealplanner.service.NutritionTrendService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,14 +22,17 @@ public class FoodLogController {
 
     private final FoodLogService foodLogService;
     private final UserRepository userRepository;
+    private final NutritionTrendService trendService;
 
-    public FoodLogController(FoodLogService foodLogService, UserRepository userRepository) {
+    public FoodLogController(FoodLogService foodLogService, UserRepository userRepository,
+                             NutritionTrendService trendService) {
         this.foodLogService = foodLogService;
         this.userRepository = userRepository;
+        this.trendService = trendService;
     }
 
     @PostMapping("/add")
-    public String addFoodLog(@AuthenticationPrincipal OAuth2User principal,
+    public String addFoodLog(CurrentUser currentUser,
                              @RequestParam String mealName,
                              @RequestParam String foodDescription,
                              @RequestParam int calories,
@@ -38,7 +41,7 @@ public class FoodLogController {
                              @RequestParam int fat,
                              @RequestParam(required = false, name = "timezone") String timezone,
                              RedirectAttributes redirectAttributes) {
-        User user = resolveUser(principal);
+        User user = resolveUser(currentUser);
         FoodLog foodLog = new FoodLog();
         foodLog.setUser(user);
         foodLog.setMealName(mealName);
@@ -59,7 +62,7 @@ public class FoodLogController {
     }
 
     @PostMapping("/quick-add")
-    public String quickAddFromMealPlan(@AuthenticationPrincipal OAuth2User principal,
+    public String quickAddFromMealPlan(CurrentUser currentUser,
                                        @RequestParam String mealName,
                                        @RequestParam String foodDescription,
                                        @RequestParam int calories,
@@ -68,7 +71,7 @@ public class FoodLogController {
                                        @RequestParam int fat,
                                        @RequestParam(required = false, name = "timezone") String timezone,
                                        RedirectAttributes redirectAttributes) {
-        User user = resolveUser(principal);
+        User user = resolveUser(currentUser);
         FoodLog foodLog = new FoodLog();
         foodLog.setUser(user);
         foodLog.setMealName(mealName);
@@ -88,6 +91,37 @@ public class FoodLogController {
         return "redirect:/dashboard";
     }
 
+    /** Logs a whole day (or the selected meals of it) from a saved plan in one transaction. */
+    @PostMapping("/bulk-add")
+    @ResponseBody
+    public org.springframework.http.ResponseEntity<Map<String, Object>> bulkAddFromMealPlan(CurrentUser currentUser,
+                                                                                          @RequestParam Long planId,
+                                                                                          @RequestParam int dayNumber,
+                                                                                          @RequestParam(required = false) List<Integer> mealIndex,
+                                                                                          @RequestParam(required = false, name = "timezone") String timezone) {
+        User user = resolveUser(currentUser);
+        Map<String, Object> response = new java.util.HashMap<>();
+        java.time.ZoneId zone = java.time.ZoneId.systemDefault();
+        try {
+            if (timezone != null && !timezone.isBlank()) zone = java.time.ZoneId.of(timezone);
+        } catch (Exception ignore) {}
+        try {
+            List<FoodLog> logged = foodLogService.logPlanMeals(user, planId, dayNumber, mealIndex, zone);
+            response.put("success", true);
+            response.put("logged", logged.size());
+            return org.springframework.http.ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return org.springframework.http.ResponseEntity.status(404).body(response);
+        } catch (Exception e) {
+            System.err.println("Bulk food log failed: " + e.getMessage());
+            response.put("success", false);
+            response.put("error", "Could not log meals.");
+            return org.springframework.http.ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     @PostMapping("/delete/{id}")
     public String deleteFoodLog(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         foodLogService.deleteFoodLog(id);
@@ -158,30 +192,44 @@ public class FoodLogController {
     }
 
     @GetMapping("/history")
-    public String viewHistory(@AuthenticationPrincipal OAuth2User principal, Model model) {
-        User user = resolveUser(principal);
+    public String viewHistory(CurrentUser currentUser, Model model) {
+        User user = resolveUser(currentUser);
         List<FoodLog> last7Days = foodLogService.getLast7DaysFoodLogs(user);
-        Map<LocalDate, Map<String, Integer>> dailyTotalsMap = new HashMap<>();
-        LocalDate today = LocalDate.now();
-        for (int i = 0; i < 7; i++) {
-            LocalDate date = today.minusDays(i);
-            dailyTotalsMap.put(date, foodLogService.calculateDailyTotals(user, date));
-        }
-        model.addAttribute("user", user);
+        Map<LocalDate, Map<String, Integer>> dailyTotalsMap = foodLogService.getRecentDailyTotals(user, 7);
+        model.addAttribute("user", currentUser);
         model.addAttribute("foodLogs", last7Days);
         model.addAttribute("dailyTotalsMap", dailyTotalsMap);
         return "food-log-history";
     }
 
-    private User resolveUser(OAuth2User principal) {
-        if (principal == null) throw new RuntimeException("Not authenticated");
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
-        if (user == null) throw new RuntimeException("User not found");
-        return user;
+    /**
+     * Intake sums, averages and adherence per day, week or month.
+     * Defaults to the last 30 days by day; {@code format=columnar} returns one array per field for charts.
+     */
+    @GetMapping("/trends")
+    @ResponseBody
+    public org.springframework.http.ResponseEntity<Map<String, Object>> trends(
+            CurrentUser currentUser,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false, defaultValue = "day") String granularity,
+            @RequestParam(required = false, defaultValue = "rows") String format) {
+        if (currentUser == null) return org.springframework.http.ResponseEntity.status(401).build();
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            Map<String, Object> body = trendService.getTrend(resolveUser(currentUser), start, end,
+                    NutritionTrendService.parseGranularity(granularity), "columnar".equalsIgnoreCase(format));
+            return org.springframework.http.ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return org.springframework.http.ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private User resolveUser(CurrentUser currentUser) {
+        if (currentUser == null) throw new RuntimeException("Not authenticated");
+        // Reference only: the id is all the log queries and inserts need
+        return userRepository.getReferenceById(currentUser.getId());
     }
 
     @PostMapping("/estimate-macros")
@@ -3,12 +3,10 @@ package com.mealplanner.controller;
 import com.mealplanner.model.*;
 import com.mealplanner.service.MacroCalculatorService;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
 import com.mealplanner.repository.SavedMealPlanRepository;
 import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import com.mealplanner.service.MealPlanService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -27,21 +25,33 @@ public class MainController {
     private final MealPlanService mealPlanService;
     private final UserRepository userRepository;
     private final SavedMealPlanRepository savedMealPlanRepository;
-    private final com.mealplanner.service.UserFoodPreferencesService preferencesService;
-    private final com.mealplanner.service.SwapService swapService;
+    private final com.mealplanner.service.SavedMealPlanService savedMealPlanService;
+    private final com.mealplanner.service.PreferenceProfileService profileService;
+    private final com.mealplanner.service.MealPrefetchService prefetchService;
+    private final com.mealplanner.service.MealPlanValidator mealPlanValidator;
+    private final com.mealplanner.service.MacroVerifier macroVerifier;
+    private final com.mealplanner.service.PortionScaler portionScaler;
 
     public MainController(MacroCalculatorService macroService,
                           MealPlanService mealPlanService,
                           UserRepository userRepository,
                           SavedMealPlanRepository savedMealPlanRepository,
-                          com.mealplanner.service.UserFoodPreferencesService preferencesService,
-                          com.mealplanner.service.SwapService swapService) {
+                          com.mealplanner.service.SavedMealPlanService savedMealPlanService,
+                          com.mealplanner.service.PreferenceProfileService profileService,
+                          com.mealplanner.service.MealPrefetchService prefetchService,
+                          com.mealplanner.service.MealPlanValidator mealPlanValidator,
+                          com.mealplanner.service.MacroVerifier macroVerifier,
+                          com.mealplanner.service.PortionScaler portionScaler) {
         this.macroService = macroService;
         this.mealPlanService = mealPlanService;
         this.userRepository = userRepository;
         this.savedMealPlanRepository = savedMealPlanRepository;
-        this.preferencesService = preferencesService;
-        this.swapService = swapService;
+        this.savedMealPlanService = savedMealPlanService;
+        this.profileService = profileService;
+        this.prefetchService = prefetchService;
+        this.mealPlanValidator = mealPlanValidator;
+        this.macroVerifier = macroVerifier;
+        this.portionScaler = portionScaler;
     }
 
     @GetMapping("/")
@@ -62,7 +72,7 @@ public class MainController {
 
     @PostMapping("/generate")
     public String generate(
-            @AuthenticationPrincipal OAuth2User principal,
+            CurrentUser currentUser,
             @RequestParam double weight,
             @RequestParam int heightFeet,
             @RequestParam int heightInches,
@@ -125,72 +135,53 @@ public class MainController {
 
         try {
             MealPlan mealPlan;
-            String preferencesExtra = null;
-            if (principal != null) {
-                String email = principal.getAttribute("email");
-                User userPref = email != null ? userRepository.findByEmail(email).orElse(null) : null;
-                if (userPref == null) {
-                    String gid = principal.getAttribute("sub");
-                    if (gid != null) userPref = userRepository.findByGoogleId(gid).orElse(null);
-                }
-                if (userPref != null) {
-                    preferencesExtra = preferencesService.buildPreferencesPrompt(userPref);
-                }
-            }
-            String learnedExtra = null;
-            if (principal != null) {
-                String email2 = principal.getAttribute("email");
-                User user2 = email2 != null ? userRepository.findByEmail(email2).orElse(null) : null;
-                if (user2 == null) {
-                    String gid2 = principal.getAttribute("sub");
-                    if (gid2 != null) user2 = userRepository.findByGoogleId(gid2).orElse(null);
-                }
-                if (user2 != null) learnedExtra = swapService.buildLearnedPreferencesPrompt(user2);
-            }
-            String combinedExtra = (preferencesExtra == null ? "" : preferencesExtra) + (learnedExtra == null ? "" : learnedExtra);
+            User user = currentUser != null ? userRepository.getReferenceById(currentUser.getId()) : null;
+            // Saved and learned preferences, compiled once per user and reused until either changes
+            com.mealplanner.service.PreferenceProfile preferences = profileService.get(user != null ? user.getId() : null);
+            String combinedExtra = preferences.getPromptFragment();
             if (!combinedExtra.isBlank()) {
                 mealPlan = mealPlanService.generateMealPlan(profile, targets, combinedExtra);
             } else {
                 mealPlan = mealPlanService.generateMealPlan(profile, targets);
             }
+            // Prompts ask for allergies and avoids to be respected; replace any meal where the model slipped
+            com.mealplanner.service.MealPlanValidator.Result check =
+                    mealPlanValidator.enforce(mealPlan, profile.getAllergies(), preferences);
+            // Close small misses locally by adjusting portions; the grocery list is built from the adjusted ones
+            portionScaler.apply(mealPlan, targets);
             GroceryList groceryList = mealPlanService.generateGroceryList(mealPlan);
+            com.mealplanner.service.MacroVerifier.Report verification = macroVerifier.verify(mealPlan, targets);
 
             // Persist saved plan for the logged-in user
-            if (principal != null) {
-                String email = principal.getAttribute("email");
-                if (email != null) {
-                    User user = userRepository.findByEmail(email).orElse(null);
-                    if (user != null) {
-                        SavedMealPlan saved = new SavedMealPlan();
-                        saved.setUser(user);
-                        saved.setWeight(profile.getWeight());
-                        saved.setHeightFeet(profile.getHeightFeet());
-                        saved.setHeightInches(profile.getHeightInches());
-                        saved.setAge(profile.getAge());
-                        saved.setSex(profile.getSex());
-                        saved.setActivityLevel(profile.getActivityLevel());
-                        saved.setFitnessGoal(profile.getFitnessGoal());
-                        saved.setTargetCalories(targets.getCalories());
-                        saved.setTargetProtein(targets.getProtein());
-                        saved.setTargetCarbs(targets.getCarbs());
-                        saved.setTargetFat(targets.getFat());
-                        try {
-                            // Optional: reflect selected formula in saved JSON metadata later if desired
-                            // Not persisting formula fields to entity to keep migration simple
-                        } catch (Exception ignored) {}
-                        try {
-                            ObjectMapper mapper = new ObjectMapper();
-                            saved.setMealPlanJson(mapper.writeValueAsString(mealPlan));
-                            saved.setGroceryListJson(mapper.writeValueAsString(groceryList));
-                        } catch (Exception ignored) {}
-                        savedMealPlanRepository.save(saved);
-                    }
-                }
+            if (user != null) {
+                SavedMealPlan saved = new SavedMealPlan();
+                saved.setUser(user);
+                saved.setWeight(profile.getWeight());
+                saved.setHeightFeet(profile.getHeightFeet());
+                saved.setHeightInches(profile.getHeightInches());
+                saved.setAge(profile.getAge());
+                saved.setSex(profile.getSex());
+                saved.setActivityLevel(profile.getActivityLevel());
+                saved.setFitnessGoal(profile.getFitnessGoal());
+                saved.setTargetCalories(targets.getCalories());
+                saved.setTargetProtein(targets.getProtein());
+                saved.setTargetCarbs(targets.getCarbs());
+                saved.setTargetFat(targets.getFat());
+                // Kept with the plan so swaps on the saved page are filtered the same way
+                savedMealPlanService.setAllergies(saved, profile.getAllergies());
+                // Stored as normalized day/meal/food rows in the same transaction as the plan row
+                SavedMealPlan persisted = savedMealPlanService.save(saved, mealPlan, groceryList, verification);
+                model.addAttribute("planId", persisted.getId());
+                // Swap alternatives start generating in the background while the user reads the plan
+                prefetchService.prefetch(user.getId(), persisted.getId(), mealPlan, profile.getAllergies(), preferences);
             }
 
             model.addAttribute("targets", targets);
             model.addAttribute("mealPlan", mealPlan);
             model.addAttribute("groceryList", groceryList);
+            model.addAttribute("allergies", profile.getAllergies());
+            model.addAttribute("unresolvedMeals", check.unresolved());
+            model.addAttribute("macroFlags", verification.flaggedBySlot());
             return "results"; // templates/results.html
         } catch (Exception ex) {
             model.addAttribute("errors", List.of("Failed to generate meal plan: " + ex.getMessage()));
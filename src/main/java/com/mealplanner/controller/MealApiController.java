@@ -2,20 +2,41 @@ package com.mealplanner.controller;
 
 import com.mealplanner.model.MacroTargets;
 import com.mealplanner.model.Meal;
-import com.mealplanner.service.MealPlanService;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.service.MealPlanValidator;
+import com.mealplanner.service.MealPrefetchService;
+import com.mealplanner.service.PreferenceProfileService;
+import com.mealplanner.service.SavedMealPlanService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/meal")
 public class MealApiController {
 
-    private final MealPlanService mealPlanService;
+    private final MealPrefetchService prefetchService;
+    private final MealPlanValidator mealPlanValidator;
+    private final SavedMealPlanRepository savedMealPlanRepository;
+    private final SavedMealPlanService savedMealPlanService;
+    private final PreferenceProfileService preferenceProfileService;
 
-    public MealApiController(MealPlanService mealPlanService) {
-        this.mealPlanService = mealPlanService;
+    public MealApiController(MealPrefetchService prefetchService,
+                             MealPlanValidator mealPlanValidator,
+                             SavedMealPlanRepository savedMealPlanRepository,
+                             SavedMealPlanService savedMealPlanService,
+                             PreferenceProfileService preferenceProfileService) {
+        this.prefetchService = prefetchService;
+        this.mealPlanValidator = mealPlanValidator;
+        this.savedMealPlanRepository = savedMealPlanRepository;
+        this.savedMealPlanService = savedMealPlanService;
+        this.preferenceProfileService = preferenceProfileService;
     }
 
     public static class SwapMealRequest {
@@ -24,18 +45,30 @@ public class MealApiController {
         public int targetProtein;
         public int targetCarbs;
         public int targetFat;
+        // Identify the meal slot on a saved plan, so a prefetched alternative can be used
+        public Long planId;
+        public Integer dayIndex;
+        public Integer mealIndex;
+        // Allergies shown with the plan; added to those recorded on the saved plan
+        public List<String> allergies;
     }
 
     @PostMapping("/swap")
-    public ResponseEntity<?> swapMeal(@RequestBody SwapMealRequest req) {
+    public ResponseEntity<?> swapMeal(CurrentUser currentUser, @RequestBody SwapMealRequest req) {
         try {
+            if (currentUser != null && req.planId != null && req.dayIndex != null && req.mealIndex != null) {
+                Optional<Meal> prefetched = prefetchService.take(currentUser.getId(), req.planId, req.dayIndex, req.mealIndex);
+                if (prefetched.isPresent()) return ResponseEntity.ok(prefetched.get());
+            }
             MacroTargets target = new MacroTargets(
                     req.targetCalories,
                     req.targetProtein,
                     req.targetCarbs,
                     req.targetFat
             );
-            Meal replacement = mealPlanService.generateReplacementMeal(target, req.avoidSimilarTo);
+            // Same restrictions and screening as the prefetched alternatives
+            Meal replacement = mealPlanValidator.swap(target, req.avoidSimilarTo, allergiesFor(currentUser, req),
+                    preferenceProfileService.get(currentUser != null ? currentUser.getId() : null));
             if (replacement == null) {
                 return ResponseEntity.status(502).body(Map.of("error", "Could not generate replacement meal"));
             }
@@ -44,5 +77,20 @@ public class MealApiController {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
-}
 
+    private Set<String> allergiesFor(CurrentUser currentUser, SwapMealRequest req) {
+        Set<String> allergies = new LinkedHashSet<>();
+        if (currentUser != null && req.planId != null) {
+            savedMealPlanRepository.findById(req.planId)
+                    .filter(saved -> saved.getUser() != null && saved.getUser().getId().equals(currentUser.getId()))
+                    .map(savedMealPlanService::allergiesOf)
+                    .ifPresent(allergies::addAll);
+        }
+        if (req.allergies != null) {
+            for (String a : req.allergies) {
+                if (a != null && !a.isBlank()) allergies.add(a.trim());
+            }
+        }
+        return allergies;
+    }
+}
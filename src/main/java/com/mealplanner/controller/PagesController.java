@@ -4,8 +4,7 @@ import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
 import com.mealplanner.repository.SavedMealPlanRepository;
 import com.mealplanner.repository.UserRepository;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
+import com.mealplanner.security.CurrentUser;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -30,13 +29,10 @@ public class PagesController {
     }
 
     @GetMapping("/profile")
-    public String profile(@AuthenticationPrincipal OAuth2User principal, Model model) {
-        if (principal == null) return "redirect:/login";
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
+    public String profile(CurrentUser currentUser, Model model) {
+        if (currentUser == null) return "redirect:/login";
+        // Profile shows login and sign-up dates, so load the full row
+        User user = userRepository.findById(currentUser.getId()).orElse(null);
         if (user == null) return "redirect:/login";
 
         long totalPlans = savedMealPlanRepository.findByUserOrderByCreatedAtDesc(user).size();
@@ -66,17 +62,12 @@ public class PagesController {
     }
 
     @GetMapping("/my-plans")
-    public String myPlans(@AuthenticationPrincipal OAuth2User principal, Model model) {
-        if (principal == null) return "redirect:/login";
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
-        if (user == null) return "redirect:/login";
+    public String myPlans(CurrentUser currentUser, Model model) {
+        if (currentUser == null) return "redirect:/login";
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         List<SavedMealPlan> allPlans = savedMealPlanRepository.findByUserOrderByCreatedAtDesc(user);
-        model.addAttribute("user", user);
+        model.addAttribute("user", currentUser);
         model.addAttribute("allPlans", allPlans);
         return "my-plans";
     }
@@ -1,62 +1,134 @@
 package com.mealplanner.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mealplanner.model.GroceryList;
 import com.mealplanner.model.MacroTargets;
 import com.mealplanner.model.MealPlan;
 import com.mealplanner.model.SavedMealPlan;
-import com.mealplanner.model.User;
 import com.mealplanner.repository.SavedMealPlanRepository;
-import com.mealplanner.repository.UserRepository;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.service.MacroVerifier;
+import com.mealplanner.service.PlanPageCache;
+import com.mealplanner.service.SavedMealPlanService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
 
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Controller
 public class PlanController {
 
     private final SavedMealPlanRepository savedMealPlanRepository;
-    private final UserRepository userRepository;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final SavedMealPlanService savedMealPlanService;
+    private final MacroVerifier macroVerifier;
+    private final PlanPageCache planPageCache;
+    private final TemplateEngine templateEngine;
+    private final long pageMaxAgeSeconds;
 
-    public PlanController(SavedMealPlanRepository savedMealPlanRepository, UserRepository userRepository) {
+    public PlanController(SavedMealPlanRepository savedMealPlanRepository,
+                          SavedMealPlanService savedMealPlanService,
+                          MacroVerifier macroVerifier,
+                          PlanPageCache planPageCache,
+                          TemplateEngine templateEngine,
+                          @Value("${plan.page.max-age-seconds:86400}") long pageMaxAgeSeconds) {
         this.savedMealPlanRepository = savedMealPlanRepository;
-        this.userRepository = userRepository;
+        this.savedMealPlanService = savedMealPlanService;
+        this.macroVerifier = macroVerifier;
+        this.planPageCache = planPageCache;
+        this.templateEngine = templateEngine;
+        this.pageMaxAgeSeconds = pageMaxAgeSeconds;
     }
 
     @GetMapping("/plan/{id}")
     public String viewPlan(@PathVariable Long id,
-                           @AuthenticationPrincipal OAuth2User principal,
-                           Model model) {
-        if (principal == null) return "redirect:/login";
-        String email = principal.getAttribute("email");
-        User user = userRepository.findByEmail(email).orElse(null);
-        if (user == null) return "redirect:/login";
+                           CurrentUser currentUser,
+                           Model model,
+                           WebRequest webRequest,
+                           HttpSession session,
+                           HttpServletResponse response) {
+        if (currentUser == null) return "redirect:/login";
+        SavedMealPlan saved = findOwnedPlan(id, currentUser);
+        if (saved == null) return "redirect:/dashboard";
 
-        Optional<SavedMealPlan> opt = savedMealPlanRepository.findById(id);
-        if (opt.isEmpty()) return "redirect:/dashboard";
-        SavedMealPlan saved = opt.get();
-        if (saved.getUser() == null || !saved.getUser().getId().equals(user.getId())) {
+        // The page differs per session only in its CSRF token, so one validator covers a session's views
+        if (webRequest.checkNotModified(planPageCache.etag(saved.getId(), session.getId()))) return null;
+
+        try {
+            String body = planPageCache.body(saved.getId(), () -> renderPlanBody(saved));
+            model.addAttribute("renderedPlanBody", body);
+            model.addAttribute("planId", saved.getId());
+            // Ingredient swap suggestions on the page are filtered by these, as on the generation path
+            model.addAttribute("allergies", savedMealPlanService.allergiesOf(saved));
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + pageMaxAgeSeconds + ", immutable");
+            // A new session cookie means a new CSRF token; never reuse a copy from another session
+            response.setHeader(HttpHeaders.VARY, "Cookie");
+            return "results"; // reuse results template for display
+        } catch (Exception e) {
             return "redirect:/dashboard";
         }
+    }
+
+    /** JSON view of a saved plan, rebuilt from its rows on demand. */
+    @GetMapping("/plan/{id}/json")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> planJson(@PathVariable Long id,
+                                                        CurrentUser currentUser) {
+        if (currentUser == null) return ResponseEntity.status(401).build();
+        SavedMealPlan saved = findOwnedPlan(id, currentUser);
+        if (saved == null) return ResponseEntity.notFound().build();
 
         try {
-            MealPlan mealPlan = mapper.readValue(saved.getMealPlanJson(), MealPlan.class);
-            GroceryList groceryList = mapper.readValue(saved.getGroceryListJson(), GroceryList.class);
-            MacroTargets targets = new MacroTargets(saved.getTargetCalories(), saved.getTargetProtein(), saved.getTargetCarbs(), saved.getTargetFat());
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", saved.getId());
+            body.put("createdAt", saved.getCreatedAt());
+            body.put("mealPlan", savedMealPlanService.loadMealPlan(saved));
+            body.put("groceryList", savedMealPlanService.loadGroceryList(saved));
+            return ResponseEntity.ok(body);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
-            model.addAttribute("targets", targets);
-            model.addAttribute("mealPlan", mealPlan);
-            model.addAttribute("groceryList", groceryList);
-            return "results"; // reuse results template for display
+    // The plan-body fragment of results.html; it depends only on the saved plan
+    private String renderPlanBody(SavedMealPlan saved) {
+        try {
+            MealPlan mealPlan = savedMealPlanService.loadMealPlan(saved);
+            GroceryList groceryList = savedMealPlanService.loadGroceryList(saved);
+            MacroTargets targets = savedMealPlanService.targetsOf(saved);
+
+            Context context = new Context(Locale.getDefault());
+            context.setVariable("targets", targets);
+            context.setVariable("mealPlan", mealPlan);
+            context.setVariable("groceryList", groceryList);
+            context.setVariable("planId", saved.getId());
+            context.setVariable("macroFlags", macroVerifier.verify(mealPlan, targets).flaggedBySlot());
+            return templateEngine.process("results", Set.of("plan-body"), context);
         } catch (Exception e) {
-            return "redirect:/dashboard";
+            throw new IllegalStateException("Could not render plan " + saved.getId(), e);
         }
     }
-}
 
+    private SavedMealPlan findOwnedPlan(Long id, CurrentUser currentUser) {
+        Optional<SavedMealPlan> opt = savedMealPlanRepository.findById(id);
+        if (opt.isEmpty()) return null;
+        SavedMealPlan saved = opt.get();
+        if (saved.getUser() == null || !saved.getUser().getId().equals(currentUser.getId())) {
+            return null;
+        }
+        return saved;
+    }
+}
@@ -2,9 +2,8 @@ package com.mealplanner.controller;
 
 import com.mealplanner.model.User;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
 import com.mealplanner.service.UserFoodPreferencesService;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,19 +24,14 @@ public class PreferencesController {
     }
 
     @PostMapping("/save")
-    public String savePreferences(@AuthenticationPrincipal OAuth2User principal,
+    public String savePreferences(CurrentUser currentUser,
                                   @RequestParam String preferredFoods,
                                   @RequestParam(required = false) String avoidedFoods,
                                   @RequestParam String cookingPreference,
                                   @RequestParam String dietaryStyle,
                                   RedirectAttributes redirectAttributes) {
-        if (principal == null) return "redirect:/login";
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
-        if (user == null) return "redirect:/login";
+        if (currentUser == null) return "redirect:/login";
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         preferencesService.savePreferences(user, preferredFoods, avoidedFoods, cookingPreference, dietaryStyle);
         redirectAttributes.addFlashAttribute("success", "Food preferences saved!");
@@ -2,9 +2,8 @@ package com.mealplanner.controller;
 
 import com.mealplanner.model.User;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.CurrentUser;
 import com.mealplanner.service.SwapService;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,19 +26,21 @@ public class SwapController {
     @PostMapping("/ingredient-options")
     @ResponseBody
     public org.springframework.http.ResponseEntity<Map<String, Object>> getIngredientSwapOptions(
-            @AuthenticationPrincipal OAuth2User principal,
+            CurrentUser currentUser,
             @RequestParam String originalFood,
             @RequestParam int calories,
             @RequestParam int protein,
             @RequestParam int carbs,
-            @RequestParam int fat) {
+            @RequestParam int fat,
+            @RequestParam(required = false) List<String> allergies) {
         Map<String, Integer> macros = Map.of(
                 "calories", calories,
                 "protein", protein,
                 "carbs", carbs,
                 "fat", fat
         );
-        List<Map<String, Object>> suggestions = swapService.getSwapSuggestions(originalFood, macros);
+        List<SwapService.Suggestion> suggestions = swapService.getSwapSuggestions(
+                currentUser != null ? currentUser.getId() : null, originalFood, macros, allergies);
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("suggestions", suggestions);
@@ -49,18 +50,13 @@ public class SwapController {
     @PostMapping("/record")
     @ResponseBody
     public org.springframework.http.ResponseEntity<Map<String, Object>> recordSwap(
-            @AuthenticationPrincipal OAuth2User principal,
+            CurrentUser currentUser,
             @RequestParam String swapType,
             @RequestParam String originalFood,
             @RequestParam String replacementFood,
             @RequestParam String mealContext) {
-        if (principal == null) return org.springframework.http.ResponseEntity.status(401).body(Map.of("success", false));
-        String email = principal.getAttribute("email");
-        String googleId = principal.getAttribute("sub");
-        User user = null;
-        if (email != null) user = userRepository.findByEmail(email).orElse(null);
-        if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
-        if (user == null) return org.springframework.http.ResponseEntity.status(401).body(Map.of("success", false));
+        if (currentUser == null) return org.springframework.http.ResponseEntity.status(401).body(Map.of("success", false));
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         swapService.recordSwap(user, swapType, originalFood, replacementFood, mealContext);
         return org.springframework.http.ResponseEntity.ok(Map.of("success", true, "message", "Swap recorded"));
@@ -0,0 +1,46 @@
+package com.mealplanner.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** Admin listing row for a food log; carries a truncated description instead of the full TEXT column. */
+public class AdminFoodLogRow {
+    private final Long id;
+    private final LocalDate logDate;
+    private final LocalDateTime timeLogged;
+    private final Long userId;
+    private final String userEmail;
+    private final String mealName;
+    private final String foodPreview;
+    private final int calories;
+    private final int protein;
+    private final int carbs;
+    private final int fat;
+
+    public AdminFoodLogRow(Long id, LocalDate logDate, LocalDateTime timeLogged, Long userId, String userEmail,
+                           String mealName, String foodPreview, int calories, int protein, int carbs, int fat) {
+        this.id = id;
+        this.logDate = logDate;
+        this.timeLogged = timeLogged;
+        this.userId = userId;
+        this.userEmail = userEmail;
+        this.mealName = mealName;
+        this.foodPreview = foodPreview;
+        this.calories = calories;
+        this.protein = protein;
+        this.carbs = carbs;
+        this.fat = fat;
+    }
+
+    public Long getId() { return id; }
+    public LocalDate getLogDate() { return logDate; }
+    public LocalDateTime getTimeLogged() { return timeLogged; }
+    public Long getUserId() { return userId; }
+    public String getUserEmail() { return userEmail; }
+    public String getMealName() { return mealName; }
+    public String getFoodPreview() { return foodPreview; }
+    public int getCalories() { return calories; }
+    public int getProtein() { return protein; }
+    public int getCarbs() { return carbs; }
+    public int getFat() { return fat; }
+}
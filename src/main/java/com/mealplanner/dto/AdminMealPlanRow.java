@@ -0,0 +1,43 @@
+package com.mealplanner.dto;
+
+import java.time.LocalDateTime;
+
+/** Admin listing row for a saved plan; excludes the plan and grocery JSON and the error text. */
+public class AdminMealPlanRow {
+    private final Long id;
+    private final Long userId;
+    private final String userEmail;
+    private final LocalDateTime createdAt;
+    private final int targetCalories;
+    private final int targetProtein;
+    private final int targetCarbs;
+    private final int targetFat;
+    private final Double accuracyScore;
+    private final boolean generationFailed;
+
+    public AdminMealPlanRow(Long id, Long userId, String userEmail, LocalDateTime createdAt,
+                            int targetCalories, int targetProtein, int targetCarbs, int targetFat,
+                            Double accuracyScore, boolean generationFailed) {
+        this.id = id;
+        this.userId = userId;
+        this.userEmail = userEmail;
+        this.createdAt = createdAt;
+        this.targetCalories = targetCalories;
+        this.targetProtein = targetProtein;
+        this.targetCarbs = targetCarbs;
+        this.targetFat = targetFat;
+        this.accuracyScore = accuracyScore;
+        this.generationFailed = generationFailed;
+    }
+
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public String getUserEmail() { return userEmail; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public int getTargetCalories() { return targetCalories; }
+    public int getTargetProtein() { return targetProtein; }
+    public int getTargetCarbs() { return targetCarbs; }
+    public int getTargetFat() { return targetFat; }
+    public Double getAccuracyScore() { return accuracyScore; }
+    public boolean isGenerationFailed() { return generationFailed; }
+}
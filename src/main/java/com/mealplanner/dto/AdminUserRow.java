@@ -0,0 +1,37 @@
+package com.mealplanner.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** Admin users listing row: user columns plus activity counts, produced by one aggregate query. */
+public class AdminUserRow {
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final LocalDateTime createdAt;
+    private final boolean admin;
+    private final long totalFoodLogs;
+    private final long totalMealPlans;
+    private final LocalDate lastActive;
+
+    public AdminUserRow(Long id, String name, String email, LocalDateTime createdAt, boolean admin,
+                        long totalFoodLogs, long totalMealPlans, LocalDate lastActive) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.createdAt = createdAt;
+        this.admin = admin;
+        this.totalFoodLogs = totalFoodLogs;
+        this.totalMealPlans = totalMealPlans;
+        this.lastActive = lastActive;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public boolean isAdmin() { return admin; }
+    public long getTotalFoodLogs() { return totalFoodLogs; }
+    public long getTotalMealPlans() { return totalMealPlans; }
+    public LocalDate getLastActive() { return lastActive; }
+}
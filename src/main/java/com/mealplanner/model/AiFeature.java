@@ -0,0 +1,14 @@
+package com.mealplanner.model;
+
+/**
+ * Product feature an AI provider call is made on behalf of; used to attribute token usage and cost.
+ */
+public enum AiFeature {
+    PLAN,
+    ESTIMATE,
+    SWAP,
+    SWAP_PREFETCH,
+    ALTERNATIVE,
+    RANDOM_MEAL,
+    OTHER
+}
@@ -0,0 +1,110 @@
+package com.mealplanner.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated per-day usage, one row per (date, feature, model). Admin cost panels read these instead of raw records.
+ */
+@Entity
+@Table(name = "ai_usage_daily",
+       uniqueConstraints = @UniqueConstraint(name = "uk_ai_usage_daily", columnNames = {"usage_date", "feature", "model"}))
+public class AiUsageDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 20)
+    private AiFeature feature;
+
+    @Column(nullable = false, length = 100)
+    private String model;
+
+    private long calls;
+
+    private long failures;
+
+    @Column(name = "input_tokens")
+    private long inputTokens;
+
+    @Column(name = "output_tokens")
+    private long outputTokens;
+
+    @Column(name = "cache_creation_tokens")
+    private long cacheCreationTokens;
+
+    @Column(name = "cache_read_tokens")
+    private long cacheReadTokens;
+
+    @Column(name = "total_latency_ms")
+    private long totalLatencyMs;
+
+    @Column(name = "cost_usd")
+    private double costUsd;
+
+    public AiUsageDaily() {
+    }
+
+    public AiUsageDaily(LocalDate usageDate, AiFeature feature, String model) {
+        this.usageDate = usageDate;
+        this.feature = feature;
+        this.model = model;
+    }
+
+    public void add(AiUsageRecord r) {
+        calls++;
+        if (!r.isSuccess()) failures++;
+        inputTokens += r.getInputTokens();
+        outputTokens += r.getOutputTokens();
+        cacheCreationTokens += r.getCacheCreationTokens();
+        cacheReadTokens += r.getCacheReadTokens();
+        totalLatencyMs += r.getLatencyMs();
+        costUsd += r.getCostUsd();
+    }
+
+    public void merge(AiUsageDaily other) {
+        calls += other.calls;
+        failures += other.failures;
+        inputTokens += other.inputTokens;
+        outputTokens += other.outputTokens;
+        cacheCreationTokens += other.cacheCreationTokens;
+        cacheReadTokens += other.cacheReadTokens;
+        totalLatencyMs += other.totalLatencyMs;
+        costUsd += other.costUsd;
+    }
+
+    public long getAverageLatencyMs() { return calls > 0 ? totalLatencyMs / calls : 0; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getUsageDate() { return usageDate; }
+    public void setUsageDate(LocalDate usageDate) { this.usageDate = usageDate; }
+    public AiFeature getFeature() { return feature; }
+    public void setFeature(AiFeature feature) { this.feature = feature; }
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+    public long getCalls() { return calls; }
+    public void setCalls(long calls) { this.calls = calls; }
+    public long getFailures() { return failures; }
+    public void setFailures(long failures) { this.failures = failures; }
+    public long getInputTokens() { return inputTokens; }
+    public void setInputTokens(long inputTokens) { this.inputTokens = inputTokens; }
+    public long getOutputTokens() { return outputTokens; }
+    public void setOutputTokens(long outputTokens) { this.outputTokens = outputTokens; }
+    public long getCacheCreationTokens() { return cacheCreationTokens; }
+    public void setCacheCreationTokens(long cacheCreationTokens) { this.cacheCreationTokens = cacheCreationTokens; }
+    public long getCacheReadTokens() { return cacheReadTokens; }
+    public void setCacheReadTokens(long cacheReadTokens) { this.cacheReadTokens = cacheReadTokens; }
+    public long getTotalLatencyMs() { return totalLatencyMs; }
+    public void setTotalLatencyMs(long totalLatencyMs) { this.totalLatencyMs = totalLatencyMs; }
+    public double getCostUsd() { return costUsd; }
+    public void setCostUsd(double costUsd) { this.costUsd = costUsd; }
+}
@@ -0,0 +1,90 @@
+package com.mealplanner.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ai_usage_records")
+public class AiUsageRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_usage_records_seq")
+    @SequenceGenerator(name = "ai_usage_records_seq", sequenceName = "ai_usage_records_seq", allocationSize = 50)
+    private Long id;
+
+    // Plain id rather than an association: records are written in bulk off the request thread
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 20)
+    private AiFeature feature;
+
+    @Column(length = 20)
+    private String provider;
+
+    @Column(length = 100)
+    private String model;
+
+    @Column(name = "input_tokens")
+    private int inputTokens;
+
+    @Column(name = "output_tokens")
+    private int outputTokens;
+
+    @Column(name = "cache_creation_tokens")
+    private int cacheCreationTokens;
+
+    @Column(name = "cache_read_tokens")
+    private int cacheReadTokens;
+
+    @Column(name = "latency_ms")
+    private long latencyMs;
+
+    @Column(name = "stop_reason", length = 50)
+    private String stopReason;
+
+    @Column(name = "cost_usd")
+    private double costUsd;
+
+    private boolean success;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public AiUsageRecord() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public AiFeature getFeature() { return feature; }
+    public void setFeature(AiFeature feature) { this.feature = feature; }
+    public String getProvider() { return provider; }
+    public void setProvider(String provider) { this.provider = provider; }
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+    public int getInputTokens() { return inputTokens; }
+    public void setInputTokens(int inputTokens) { this.inputTokens = inputTokens; }
+    public int getOutputTokens() { return outputTokens; }
+    public void setOutputTokens(int outputTokens) { this.outputTokens = outputTokens; }
+    public int getCacheCreationTokens() { return cacheCreationTokens; }
+    public void setCacheCreationTokens(int cacheCreationTokens) { this.cacheCreationTokens = cacheCreationTokens; }
+    public int getCacheReadTokens() { return cacheReadTokens; }
+    public void setCacheReadTokens(int cacheReadTokens) { this.cacheReadTokens = cacheReadTokens; }
+    public long getLatencyMs() { return latencyMs; }
+    public void setLatencyMs(long latencyMs) { this.latencyMs = latencyMs; }
+    public String getStopReason() { return stopReason; }
+    public void setStopReason(String stopReason) { this.stopReason = stopReason; }
+    public double getCostUsd() { return costUsd; }
+    public void setCostUsd(double costUsd) { this.costUsd = costUsd; }
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,73 @@
+package com.mealplanner.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Per-user, per-day totals of logged food. Maintained by FoodLogService on every write so that
+ * history and admin views read one row per day instead of summing food_logs.
+ */
+@Entity
+@Table(name = "daily_nutrition_summary",
+       indexes = @Index(name = "idx_daily_nutrition_summary_date", columnList = "log_date"))
+@IdClass(DailyNutritionSummary.Key.class)
+public class DailyNutritionSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "log_date")
+    private LocalDate logDate;
+
+    @Column(nullable = false)
+    private int calories;
+
+    @Column(nullable = false)
+    private int protein;
+
+    @Column(nullable = false)
+    private int carbs;
+
+    @Column(nullable = false)
+    private int fat;
+
+    @Column(nullable = false)
+    private int entries;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public LocalDate getLogDate() { return logDate; }
+    public void setLogDate(LocalDate logDate) { this.logDate = logDate; }
+    public int getCalories() { return calories; }
+    public void setCalories(int calories) { this.calories = calories; }
+    public int getProtein() { return protein; }
+    public void setProtein(int protein) { this.protein = protein; }
+    public int getCarbs() { return carbs; }
+    public void setCarbs(int carbs) { this.carbs = carbs; }
+    public int getFat() { return fat; }
+    public void setFat(int fat) { this.fat = fat; }
+    public int getEntries() { return entries; }
+    public void setEntries(int entries) { this.entries = entries; }
+
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate logDate;
+
+        public Key() {}
+        public Key(Long userId, LocalDate logDate) { this.userId = userId; this.logDate = logDate; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return Objects.equals(userId, k.userId) && Objects.equals(logDate, k.logDate);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(userId, logDate); }
+    }
+}
@@ -5,11 +5,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "food_logs")
+@Table(name = "food_logs",
+       indexes = {@Index(name = "idx_food_logs_user_date_time", columnList = "user_id, log_date, time_logged"),
+                  @Index(name = "idx_food_logs_date_id", columnList = "log_date DESC, id DESC")})
 public class FoodLog {
 
+    // Pooled sequence rather than IDENTITY so multi-row logging is sent as one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_logs_seq")
+    @SequenceGenerator(name = "food_logs_seq", sequenceName = "food_logs_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -47,6 +51,21 @@ public class FoodLog {
     @JoinColumn(name = "meal_plan_id")
     private SavedMealPlan mealPlan;
 
+    // Values as last read from the database, so an update can adjust the daily summary by the difference
+    @Transient
+    private LoadedState loadedState;
+
+    public record LoadedState(LocalDate logDate, int calories, int protein, int carbs, int fat) {}
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void captureLoadedState() {
+        this.loadedState = new LoadedState(logDate, calories, protein, carbs, fat);
+    }
+
+    public LoadedState getLoadedState() { return loadedState; }
+
     public FoodLog() {
         this.timeLogged = LocalDateTime.now();
         this.logDate = LocalDate.now();
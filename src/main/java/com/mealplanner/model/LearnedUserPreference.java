@@ -1,13 +1,19 @@
 package com.mealplanner.model;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "learned_user_preferences")
+@Table(name = "learned_user_preferences",
+       uniqueConstraints = @UniqueConstraint(name = "uk_learned_user_preferences",
+               columnNames = {"user_id", "preference_type", "food_item", "compared_to_food"}))
 public class LearnedUserPreference {
 
+    // Confidence is fixed-point in whole percent: starts at 50, +10 per further observation, capped at 95
+    public static final int INITIAL_CONFIDENCE_PCT = 50;
+    public static final int CONFIDENCE_STEP_PCT = 10;
+    public static final int MAX_CONFIDENCE_PCT = 95;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -22,11 +28,12 @@ public class LearnedUserPreference {
     @Column(name = "food_item", nullable = false)
     private String foodItem;
 
-    @Column(name = "compared_to_food")
-    private String comparedToFood;
+    // Empty rather than null for preferences without a comparison, so the unique key covers every row
+    @Column(name = "compared_to_food", nullable = false)
+    private String comparedToFood = "";
 
-    @Column(name = "confidence_score", precision = 3, scale = 2)
-    private BigDecimal confidenceScore;
+    @Column(name = "confidence_pct", nullable = false)
+    private int confidencePct;
 
     @Column(name = "times_observed")
     private Integer timesObserved;
@@ -38,7 +45,7 @@ public class LearnedUserPreference {
     private LocalDateTime createdAt;
 
     public LearnedUserPreference() {
-        this.confidenceScore = new BigDecimal("0.50");
+        this.confidencePct = INITIAL_CONFIDENCE_PCT;
         this.timesObserved = 1;
         this.lastObserved = LocalDateTime.now();
         this.createdAt = LocalDateTime.now();
@@ -54,8 +61,8 @@ public class LearnedUserPreference {
     public void setFoodItem(String foodItem) { this.foodItem = foodItem; }
     public String getComparedToFood() { return comparedToFood; }
     public void setComparedToFood(String comparedToFood) { this.comparedToFood = comparedToFood; }
-    public BigDecimal getConfidenceScore() { return confidenceScore; }
-    public void setConfidenceScore(BigDecimal confidenceScore) { this.confidenceScore = confidenceScore; }
+    public int getConfidencePct() { return confidencePct; }
+    public void setConfidencePct(int confidencePct) { this.confidencePct = confidencePct; }
     public Integer getTimesObserved() { return timesObserved; }
     public void setTimesObserved(Integer timesObserved) { this.timesObserved = timesObserved; }
     public LocalDateTime getLastObserved() { return lastObserved; }
@@ -63,4 +70,3 @@ public class LearnedUserPreference {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 }
-
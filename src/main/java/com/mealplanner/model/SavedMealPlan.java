@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "saved_meal_plans")
+// V2 declares idx_saved_meal_plans_created with created_at NULLS LAST; columnList only takes ASC/DESC
+@Table(name = "saved_meal_plans",
+       indexes = {@Index(name = "idx_saved_meal_plans_user_created", columnList = "user_id DESC, created_at DESC"),
+                  @Index(name = "idx_saved_meal_plans_created", columnList = "created_at DESC, id DESC")})
 public class SavedMealPlan {
 
     @Id
@@ -47,6 +50,13 @@ public class SavedMealPlan {
     // Accuracy score 0-100 (nullable)
     private Double accuracyScore;
 
+    // Meals whose claimed macros disagree with the food-table computation (nullable for older plans)
+    private Integer flaggedMeals;
+
+    // Allergies the plan was generated under, comma-separated (null for older plans)
+    @Column(length = 1000)
+    private String allergies;
+
     // Generation status
     private boolean generationFailed = false;
 
@@ -100,6 +110,10 @@ public class SavedMealPlan {
     public void setActualFat(Integer actualFat) { this.actualFat = actualFat; }
     public Double getAccuracyScore() { return accuracyScore; }
     public void setAccuracyScore(Double accuracyScore) { this.accuracyScore = accuracyScore; }
+    public Integer getFlaggedMeals() { return flaggedMeals; }
+    public void setFlaggedMeals(Integer flaggedMeals) { this.flaggedMeals = flaggedMeals; }
+    public String getAllergies() { return allergies; }
+    public void setAllergies(String allergies) { this.allergies = allergies; }
     public boolean isGenerationFailed() { return generationFailed; }
     public void setGenerationFailed(boolean generationFailed) { this.generationFailed = generationFailed; }
     public String getErrorMessage() { return errorMessage; }
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_swap_history")
+@Table(name = "user_swap_history",
+       indexes = @Index(name = "idx_user_swap_history_user_date", columnList = "user_id, swap_date"))
 public class SwapHistory {
 
     @Id
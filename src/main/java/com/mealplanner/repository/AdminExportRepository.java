@@ -0,0 +1,60 @@
+package com.mealplanner.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only reads for admin exports. Rows are handed to the consumer as they arrive from the cursor,
+ * so nothing is materialized beyond the driver's fetch window.
+ * PostgreSQL only honours the fetch size inside a transaction; callers run these in one.
+ */
+@Repository
+public class AdminExportRepository {
+
+    static final int FETCH_SIZE = 500;
+
+    public static final String[] USER_COLUMNS = {"ID", "Name", "Email", "Created At", "Last Login", "Is Admin"};
+
+    public static final String[] MEAL_PLAN_COLUMNS = {"ID", "User ID", "User Email", "Created At", "Target Cal", "Target P",
+            "Target C", "Target F", "Actual Cal", "Actual P", "Actual C", "Actual F", "Accuracy Score", "Failed"};
+
+    private final JdbcTemplate jdbc;
+
+    public AdminExportRepository(JdbcTemplate jdbcTemplate) {
+        // Own template so the fetch size does not apply to the application's other queries
+        this.jdbc = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbc.setFetchSize(FETCH_SIZE);
+    }
+
+    public void streamUsers(Consumer<Object[]> consumer) {
+        jdbc.query("SELECT id, name, email, created_at, last_login_at, is_admin FROM users ORDER BY id",
+                rs -> {
+                    consumer.accept(new Object[]{rs.getLong("id"), rs.getString("name"), rs.getString("email"),
+                            timestamp(rs, "created_at"), timestamp(rs, "last_login_at"), rs.getBoolean("is_admin")});
+                });
+    }
+
+    /** Plans joined to their owner's email in the same statement. */
+    public void streamMealPlans(Consumer<Object[]> consumer) {
+        jdbc.query("SELECT p.id, p.user_id, u.email, p.created_at, p.target_calories, p.target_protein, p.target_carbs, " +
+                        "p.target_fat, p.actual_calories, p.actual_protein, p.actual_carbs, p.actual_fat, p.accuracy_score, " +
+                        "p.generation_failed FROM saved_meal_plans p JOIN users u ON u.id = p.user_id ORDER BY p.id",
+                rs -> {
+                    consumer.accept(new Object[]{rs.getLong("id"), rs.getLong("user_id"), rs.getString("email"),
+                            timestamp(rs, "created_at"), rs.getInt("target_calories"), rs.getInt("target_protein"),
+                            rs.getInt("target_carbs"), rs.getInt("target_fat"), rs.getObject("actual_calories", Integer.class),
+                            rs.getObject("actual_protein", Integer.class), rs.getObject("actual_carbs", Integer.class),
+                            rs.getObject("actual_fat", Integer.class), rs.getObject("accuracy_score", Double.class),
+                            rs.getBoolean("generation_failed")});
+                });
+    }
+
+    private static LocalDateTime timestamp(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, LocalDateTime.class);
+    }
+}
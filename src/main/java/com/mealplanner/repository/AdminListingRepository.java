@@ -0,0 +1,153 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.dto.AdminFoodLogRow;
+import com.mealplanner.dto.AdminMealPlanRow;
+import com.mealplanner.dto.AdminUserRow;
+import com.mealplanner.dto.KeysetPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keyset-paginated admin listings. Filters are added to the JPQL only when present, so each
+ * combination gets a plain indexable predicate; rows are DTO projections without TEXT columns.
+ */
+@Repository
+public class AdminListingRepository {
+
+    private static final int PREVIEW_CHARS = 160;
+    // Cursor key of a row whose sort column is null
+    private static final String NULL_KEY = "null";
+
+    private final EntityManager em;
+
+    public AdminListingRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /** Food logs ordered by (logDate desc nulls last, id desc); the cursor is "date_id" of the last row seen. */
+    public KeysetPage<AdminFoodLogRow> findFoodLogs(Long userId, LocalDate date, String cursor, int pageSize) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.mealplanner.dto.AdminFoodLogRow(f.id, f.logDate, f.timeLogged, u.id, u.email, f.mealName, " +
+                "SUBSTRING(f.foodDescription, 1, " + PREVIEW_CHARS + "), f.calories, f.protein, f.carbs, f.fat) " +
+                "FROM FoodLog f JOIN f.user u WHERE 1 = 1");
+        if (userId != null) jpql.append(" AND u.id = :userId");
+        if (date != null) jpql.append(" AND f.logDate = :date");
+        LocalDate afterDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = splitCursor(cursor);
+            afterDate = parts[0].equals(NULL_KEY) ? null : LocalDate.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+            jpql.append(after("f.logDate", "f.id", afterDate != null));
+        }
+        jpql.append(" ORDER BY f.logDate DESC NULLS LAST, f.id DESC");
+
+        TypedQuery<AdminFoodLogRow> q = em.createQuery(jpql.toString(), AdminFoodLogRow.class);
+        if (userId != null) q.setParameter("userId", userId);
+        if (date != null) q.setParameter("date", date);
+        if (afterDate != null) q.setParameter("afterKey", afterDate);
+        if (afterId != null) q.setParameter("afterId", afterId);
+        List<AdminFoodLogRow> rows = new ArrayList<>(q.setMaxResults(pageSize + 1).getResultList());
+        String next = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            AdminFoodLogRow last = rows.get(rows.size() - 1);
+            next = cursorOf(last.getLogDate(), last.getId());
+        }
+        return new KeysetPage<>(rows, next);
+    }
+
+    /** Plans ordered by (createdAt desc nulls last, id desc); the cursor is "createdAt_id" of the last row seen. */
+    public KeysetPage<AdminMealPlanRow> findMealPlans(Long userId, String cursor, int pageSize) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.mealplanner.dto.AdminMealPlanRow(p.id, u.id, u.email, p.createdAt, p.targetCalories, " +
+                "p.targetProtein, p.targetCarbs, p.targetFat, p.accuracyScore, p.generationFailed) FROM SavedMealPlan p JOIN p.user u WHERE 1 = 1");
+        if (userId != null) jpql.append(" AND u.id = :userId");
+        LocalDateTime afterCreated = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = splitCursor(cursor);
+            afterCreated = parts[0].equals(NULL_KEY) ? null : LocalDateTime.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+            jpql.append(after("p.createdAt", "p.id", afterCreated != null));
+        }
+        jpql.append(" ORDER BY p.createdAt DESC NULLS LAST, p.id DESC");
+
+        TypedQuery<AdminMealPlanRow> q = em.createQuery(jpql.toString(), AdminMealPlanRow.class);
+        if (userId != null) q.setParameter("userId", userId);
+        if (afterCreated != null) q.setParameter("afterKey", afterCreated);
+        if (afterId != null) q.setParameter("afterId", afterId);
+        List<AdminMealPlanRow> rows = new ArrayList<>(q.setMaxResults(pageSize + 1).getResultList());
+        String next = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            AdminMealPlanRow last = rows.get(rows.size() - 1);
+            next = cursorOf(last.getCreatedAt(), last.getId());
+        }
+        return new KeysetPage<>(rows, next);
+    }
+
+    /**
+     * Users with food log count, plan count and last active day in one statement. Counts come from
+     * daily_nutrition_summary and an indexed plan count per user rather than scanning food_logs.
+     * Sorting and offset paging run in SQL; sort keys are whitelisted.
+     */
+    public List<AdminUserRow> findUsersWithStats(String search, String sortBy, int page, int pageSize) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT u.id, u.name, u.email, u.createdAt, u.isAdmin, " +
+                "(SELECT COALESCE(SUM(s.entries), 0) FROM DailyNutritionSummary s WHERE s.userId = u.id), " +
+                "(SELECT COUNT(p) FROM SavedMealPlan p WHERE p.user = u), " +
+                "(SELECT MAX(s2.logDate) FROM DailyNutritionSummary s2 WHERE s2.userId = u.id AND s2.entries > 0) AS lastActive " +
+                "FROM User u");
+        boolean hasSearch = search != null && !search.isBlank();
+        if (hasSearch) jpql.append(" WHERE LOWER(u.email) LIKE :q OR LOWER(u.name) LIKE :q");
+        jpql.append(switch (sortBy == null ? "" : sortBy) {
+            case "name" -> " ORDER BY LOWER(u.name) ASC NULLS LAST, u.id";
+            case "email" -> " ORDER BY LOWER(u.email) ASC NULLS LAST, u.id";
+            case "created" -> " ORDER BY u.createdAt DESC NULLS LAST, u.id DESC";
+            case "active" -> " ORDER BY lastActive DESC NULLS LAST, u.id DESC";
+            default -> " ORDER BY u.id";
+        });
+
+        TypedQuery<Object[]> q = em.createQuery(jpql.toString(), Object[].class);
+        if (hasSearch) q.setParameter("q", "%" + search.trim().toLowerCase(Locale.ROOT) + "%");
+        List<AdminUserRow> rows = new ArrayList<>();
+        for (Object[] r : q.setFirstResult(page * pageSize).setMaxResults(pageSize).getResultList()) {
+            rows.add(new AdminUserRow((Long) r[0], (String) r[1], (String) r[2], (LocalDateTime) r[3],
+                    Boolean.TRUE.equals(r[4]), ((Number) r[5]).longValue(), ((Number) r[6]).longValue(), (LocalDate) r[7]));
+        }
+        return rows;
+    }
+
+    public long countUsers(String search) {
+        if (search == null || search.isBlank()) {
+            return em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+        }
+        return em.createQuery("SELECT COUNT(u) FROM User u WHERE LOWER(u.email) LIKE :q OR LOWER(u.name) LIKE :q", Long.class)
+                .setParameter("q", "%" + search.trim().toLowerCase(Locale.ROOT) + "%")
+                .getSingleResult();
+    }
+
+    private static String cursorOf(Object key, Long id) {
+        return (key != null ? key.toString() : NULL_KEY) + "_" + id;
+    }
+
+    // Rows after the cursor in (key desc nulls last, id desc) order; rows without a key page on id alone
+    private static String after(String key, String id, boolean hasKey) {
+        if (!hasKey) return " AND " + key + " IS NULL AND " + id + " < :afterId";
+        return " AND (" + key + " < :afterKey OR (" + key + " = :afterKey AND " + id + " < :afterId) OR " + key + " IS NULL)";
+    }
+
+    private static String[] splitCursor(String cursor) {
+        int i = cursor.lastIndexOf('_');
+        if (i <= 0 || i == cursor.length() - 1) throw new IllegalArgumentException("Invalid cursor");
+        return new String[]{cursor.substring(0, i), cursor.substring(i + 1)};
+    }
+}
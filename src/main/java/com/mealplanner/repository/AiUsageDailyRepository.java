@@ -0,0 +1,21 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.AiUsageDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AiUsageDailyRepository extends JpaRepository<AiUsageDaily, Long> {
+    List<AiUsageDaily> findByUsageDateGreaterThanEqualOrderByUsageDateDesc(LocalDate from);
+
+    @Query("SELECT COALESCE(SUM(d.costUsd), 0) FROM AiUsageDaily d")
+    double sumCostUsd();
+
+    @Query("SELECT COALESCE(SUM(d.costUsd), 0) FROM AiUsageDaily d WHERE d.usageDate >= :from")
+    double sumCostUsdSince(@Param("from") LocalDate from);
+}
@@ -0,0 +1,9 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.AiUsageRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AiUsageRecordRepository extends JpaRepository<AiUsageRecord, Long> {
+}
@@ -0,0 +1,52 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.AiUsageDaily;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batched, race-free additions to ai_usage_daily. Each (date, feature, model) row is created if absent
+ * (ON CONFLICT DO NOTHING) and then incremented in place, so two nodes flushing the same day never collide on
+ * the unique key or overwrite each other's counts. Two batched statements per flush.
+ */
+@Repository
+public class AiUsageRollupRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public AiUsageRollupRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Adds each delta's counters to the stored row for its key. */
+    public void add(Collection<AiUsageDaily> deltas) {
+        if (deltas.isEmpty()) return;
+        List<Object[]> inserts = new ArrayList<>(deltas.size());
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        for (AiUsageDaily d : deltas) {
+            Date date = Date.valueOf(d.getUsageDate());
+            String feature = d.getFeature().name();
+            inserts.add(new Object[]{date, feature, d.getModel()});
+            updates.add(new Object[]{d.getCalls(), d.getFailures(), d.getInputTokens(), d.getOutputTokens(),
+                    d.getCacheCreationTokens(), d.getCacheReadTokens(), d.getTotalLatencyMs(), d.getCostUsd(),
+                    date, feature, d.getModel()});
+        }
+        jdbc.batchUpdate("INSERT INTO ai_usage_daily (usage_date, feature, model, calls, failures, input_tokens, " +
+                        "output_tokens, cache_creation_tokens, cache_read_tokens, total_latency_ms, cost_usd) " +
+                        "VALUES (?, ?, ?, 0, 0, 0, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING",
+                inserts, new int[]{Types.DATE, Types.VARCHAR, Types.VARCHAR});
+        jdbc.batchUpdate("UPDATE ai_usage_daily SET calls = calls + ?, failures = failures + ?, " +
+                        "input_tokens = input_tokens + ?, output_tokens = output_tokens + ?, " +
+                        "cache_creation_tokens = cache_creation_tokens + ?, cache_read_tokens = cache_read_tokens + ?, " +
+                        "total_latency_ms = total_latency_ms + ?, cost_usd = cost_usd + ? " +
+                        "WHERE usage_date = ? AND feature = ? AND model = ?",
+                updates, new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                        Types.BIGINT, Types.DOUBLE, Types.DATE, Types.VARCHAR, Types.VARCHAR});
+    }
+}
@@ -0,0 +1,65 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.DailyNutritionSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyNutritionSummaryRepository extends JpaRepository<DailyNutritionSummary, DailyNutritionSummary.Key> {
+
+    Optional<DailyNutritionSummary> findByUserIdAndLogDate(Long userId, LocalDate logDate);
+
+    List<DailyNutritionSummary> findByUserIdAndLogDateBetweenOrderByLogDateDesc(Long userId, LocalDate from, LocalDate to);
+
+    @Query("SELECT COUNT(s) FROM DailyNutritionSummary s WHERE s.logDate = :date AND s.entries > 0")
+    long countActiveUsersOnDate(@Param("date") LocalDate date);
+
+    /** One row: total logged entries, number of days with entries, latest such day. */
+    @Query("SELECT COALESCE(SUM(s.entries), 0), COUNT(s), MAX(s.logDate) FROM DailyNutritionSummary s " +
+            "WHERE s.userId = :userId AND s.entries > 0")
+    List<Object[]> summarizeUser(@Param("userId") Long userId);
+
+    // Creates the zero row if missing; concurrent first writes for the same day collapse into one row
+    @Modifying
+    @Query(value = "INSERT INTO daily_nutrition_summary (user_id, log_date, calories, protein, carbs, fat, entries) " +
+            "VALUES (:userId, :logDate, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    void ensureRow(@Param("userId") Long userId, @Param("logDate") LocalDate logDate);
+
+    // Row-locking increment, safe under concurrent writes to the same day
+    @Modifying
+    @Query("UPDATE DailyNutritionSummary s SET s.calories = s.calories + :calories, s.protein = s.protein + :protein, " +
+            "s.carbs = s.carbs + :carbs, s.fat = s.fat + :fat, s.entries = s.entries + :entries " +
+            "WHERE s.userId = :userId AND s.logDate = :logDate")
+    int addDelta(@Param("userId") Long userId, @Param("logDate") LocalDate logDate,
+                 @Param("calories") int calories, @Param("protein") int protein,
+                 @Param("carbs") int carbs, @Param("fat") int fat, @Param("entries") int entries);
+
+    @Modifying
+    @Query("DELETE FROM DailyNutritionSummary s WHERE s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    // --- Rebuild ---
+    // An upsert in two steps, as elsewhere: H2 has no ON CONFLICT DO UPDATE. Rows are never deleted, so
+    // readers and concurrent applyDelta calls always find the day's row
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_nutrition_summary (user_id, log_date, calories, protein, carbs, fat, entries) " +
+            "SELECT DISTINCT user_id, log_date, 0, 0, 0, 0, 0 FROM food_logs ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissingDays();
+
+    // Days whose logs have all been deleted come back as zero
+    @Modifying
+    @Query(value = "UPDATE daily_nutrition_summary SET (calories, protein, carbs, fat, entries) = " +
+            "(SELECT COALESCE(SUM(f.calories), 0), COALESCE(SUM(f.protein), 0), COALESCE(SUM(f.carbs), 0), " +
+            "COALESCE(SUM(f.fat), 0), COUNT(*) FROM food_logs f " +
+            "WHERE f.user_id = daily_nutrition_summary.user_id AND f.log_date = daily_nutrition_summary.log_date)",
+            nativeQuery = true)
+    int recomputeFromFoodLogs();
+}
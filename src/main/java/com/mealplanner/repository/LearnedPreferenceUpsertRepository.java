@@ -0,0 +1,54 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.LearnedUserPreference;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched, race-free writes to learned_user_preferences. Each key is created if absent
+ * (ON CONFLICT DO NOTHING) and then incremented in place, so concurrent writers never lose an observation
+ * or create a duplicate row. Two batched statements per flush regardless of how many keys it touches.
+ */
+@Repository
+public class LearnedPreferenceUpsertRepository {
+
+    /** {@code times} observations of one (user, type, food, compared-to) key. */
+    public record Observation(long userId, String preferenceType, String foodItem, String comparedToFood, int times) {}
+
+    private final JdbcTemplate jdbc;
+
+    public LearnedPreferenceUpsertRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void apply(List<Observation> observations, LocalDateTime observedAt) {
+        if (observations.isEmpty()) return;
+        Timestamp ts = Timestamp.valueOf(observedAt);
+        // New rows start one step below the initial confidence and at zero observations; the increment below
+        // then brings a single observation to exactly INITIAL_CONFIDENCE_PCT and times_observed = 1
+        int seedPct = LearnedUserPreference.INITIAL_CONFIDENCE_PCT - LearnedUserPreference.CONFIDENCE_STEP_PCT;
+
+        List<Object[]> inserts = new ArrayList<>(observations.size());
+        List<Object[]> updates = new ArrayList<>(observations.size());
+        for (Observation o : observations) {
+            inserts.add(new Object[]{o.userId(), o.preferenceType(), o.foodItem(), o.comparedToFood(), seedPct, ts, ts});
+            updates.add(new Object[]{o.times(), o.times() * LearnedUserPreference.CONFIDENCE_STEP_PCT,
+                    LearnedUserPreference.MAX_CONFIDENCE_PCT, ts,
+                    o.userId(), o.preferenceType(), o.foodItem(), o.comparedToFood()});
+        }
+        jdbc.batchUpdate("INSERT INTO learned_user_preferences (user_id, preference_type, food_item, compared_to_food, " +
+                        "confidence_pct, times_observed, last_observed, created_at) VALUES (?, ?, ?, ?, ?, 0, ?, ?) ON CONFLICT DO NOTHING",
+                inserts, new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP});
+        jdbc.batchUpdate("UPDATE learned_user_preferences SET times_observed = COALESCE(times_observed, 0) + ?, " +
+                        "confidence_pct = LEAST(confidence_pct + ?, ?), last_observed = ? " +
+                        "WHERE user_id = ? AND preference_type = ? AND food_item = ? AND compared_to_food = ?",
+                updates, new int[]{Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.TIMESTAMP,
+                        Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+    }
+}
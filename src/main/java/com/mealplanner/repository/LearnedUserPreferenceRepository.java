@@ -5,15 +5,10 @@ import com.mealplanner.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface LearnedUserPreferenceRepository extends JpaRepository<LearnedUserPreference, Long> {
-    List<LearnedUserPreference> findByUserOrderByConfidenceScoreDesc(User user);
-    Optional<LearnedUserPreference> findByUserAndPreferenceTypeAndFoodItemAndComparedToFood(
-            User user, String preferenceType, String foodItem, String comparedToFood);
-    List<LearnedUserPreference> findByUserAndConfidenceScoreGreaterThanEqual(User user, BigDecimal threshold);
+    List<LearnedUserPreference> findByUserOrderByConfidencePctDesc(User user);
+    List<LearnedUserPreference> findByUserIdAndConfidencePctGreaterThanEqual(Long userId, int thresholdPct);
 }
-
@@ -2,6 +2,7 @@ package com.mealplanner.repository;
 
 import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,9 +20,20 @@ public interface SavedMealPlanRepository extends JpaRepository<SavedMealPlan, Lo
     long countByCreatedAtAfter(LocalDateTime date);
     long countByGenerationFailed(boolean failed);
 
+    // Targets only, so the TEXT columns of the plan row are never read. Ordered as
+    // idx_saved_meal_plans_user_created is declared, so the newest plan is read straight from the index
+    @Query("SELECT s.targetCalories, s.targetProtein, s.targetCarbs, s.targetFat FROM SavedMealPlan s " +
+           "WHERE s.user = :user AND s.generationFailed = false ORDER BY s.user.id DESC, s.createdAt DESC")
+    List<Object[]> findLatestTargets(@Param("user") User user, Pageable pageable);
+
     @Query("SELECT AVG(s.accuracyScore) FROM SavedMealPlan s WHERE s.accuracyScore IS NOT NULL")
     Double getAverageAccuracyScore();
 
+    @Query("SELECT AVG(s.accuracyScore) FROM SavedMealPlan s WHERE s.user.id = :userId AND s.accuracyScore IS NOT NULL")
+    Double getAverageAccuracyScoreForUser(@Param("userId") Long userId);
+
+    long countByUserId(Long userId);
+
     @Query("SELECT s FROM SavedMealPlan s WHERE s.accuracyScore < :threshold AND s.accuracyScore IS NOT NULL ORDER BY s.createdAt DESC")
     List<SavedMealPlan> findInaccuratePlans(@Param("threshold") double threshold);
 }
@@ -0,0 +1,216 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.model.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * JDBC access to the normalized day/meal/food rows of saved plans.
+ * Inserts go through batched statements (one round-trip per table); reads are one ordered query per table.
+ * Model-written text is clipped to its column, so one overlong name cannot fail the whole save.
+ */
+@Repository
+public class SavedPlanStructureRepository {
+
+    // Widths of the VARCHAR columns in V1_1__series_tables.sql
+    private static final int NAME_LENGTH = 255;
+    private static final int TIME_LENGTH = 50;
+    private static final int CATEGORY_LENGTH = 50;
+
+    private final JdbcTemplate jdbc;
+
+    public SavedPlanStructureRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void insert(long planId, MealPlan plan, GroceryList groceryList) {
+        List<Object[]> days = new ArrayList<>();
+        List<Object[]> meals = new ArrayList<>();
+        List<Object[]> foods = new ArrayList<>();
+        if (plan != null && plan.getDays() != null) {
+            Set<Integer> used = new HashSet<>();
+            for (Day day : plan.getDays()) {
+                // Day numbers come from the model and are not guaranteed unique; fall back to the next free slot
+                int dayNumber = day.getDayNumber();
+                if (dayNumber <= 0 || used.contains(dayNumber)) {
+                    dayNumber = used.size() + 1;
+                    while (used.contains(dayNumber)) dayNumber++;
+                }
+                used.add(dayNumber);
+                MacroTargets t = day.getDailyTotal();
+                days.add(new Object[]{planId, dayNumber, cal(t), pro(t), carb(t), fat(t)});
+                if (day.getMeals() == null) continue;
+                int mealIndex = 0;
+                for (Meal meal : day.getMeals()) {
+                    MacroTargets m = meal.getMacros();
+                    Recipe r = meal.getRecipe();
+                    meals.add(new Object[]{planId, dayNumber, mealIndex, clip(meal.getName(), NAME_LENGTH),
+                            cal(m), pro(m), carb(m), fat(m),
+                            r != null,
+                            r != null ? clip(r.getName(), NAME_LENGTH) : null,
+                            r != null ? joinLines(r.getIngredients()) : null,
+                            r != null ? joinLines(r.getInstructions()) : null,
+                            r != null ? clip(r.getPrepTime(), TIME_LENGTH) : null,
+                            r != null ? clip(r.getCookTime(), TIME_LENGTH) : null,
+                            r != null ? clip(r.getTotalTime(), TIME_LENGTH) : null});
+                    if (meal.getFoods() != null) {
+                        int foodIndex = 0;
+                        for (FoodItem f : meal.getFoods()) {
+                            foods.add(new Object[]{planId, dayNumber, mealIndex, foodIndex++,
+                                    clip(f.getItem(), NAME_LENGTH), clip(f.getPortion(), NAME_LENGTH)});
+                        }
+                    }
+                    mealIndex++;
+                }
+            }
+        }
+        List<Object[]> grocery = new ArrayList<>();
+        if (groceryList != null && groceryList.getCategorizedItems() != null) {
+            int categoryIndex = 0;
+            for (Map.Entry<String, List<String>> e : groceryList.getCategorizedItems().entrySet()) {
+                int lineIndex = 0;
+                if (e.getValue() != null) {
+                    for (String line : e.getValue()) {
+                        grocery.add(new Object[]{planId, categoryIndex, lineIndex++,
+                                clip(e.getKey(), CATEGORY_LENGTH), clip(line, NAME_LENGTH)});
+                    }
+                }
+                categoryIndex++;
+            }
+        }
+
+        int[] intTypes6 = {Types.BIGINT, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER};
+        if (!days.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO saved_plan_days (plan_id, day_number, calories, protein, carbs, fat) VALUES (?, ?, ?, ?, ?, ?)",
+                    days, intTypes6);
+        }
+        if (!meals.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO saved_plan_meals (plan_id, day_number, meal_index, name, calories, protein, carbs, fat, " +
+                            "has_recipe, recipe_name, ingredients, instructions, prep_time, cook_time, total_time) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    meals, new int[]{Types.BIGINT, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER,
+                            Types.INTEGER, Types.INTEGER, Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+        }
+        if (!foods.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO saved_plan_foods (plan_id, day_number, meal_index, food_index, item, portion) VALUES (?, ?, ?, ?, ?, ?)",
+                    foods, new int[]{Types.BIGINT, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR});
+        }
+        if (!grocery.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO saved_plan_grocery_items (plan_id, category_index, line_index, category, line) VALUES (?, ?, ?, ?, ?)",
+                    grocery, new int[]{Types.BIGINT, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR});
+        }
+    }
+
+    public MealPlan loadMealPlan(long planId, MacroTargets dailyTargets) {
+        Map<Integer, Day> days = new LinkedHashMap<>();
+        jdbc.query("SELECT day_number, calories, protein, carbs, fat FROM saved_plan_days WHERE plan_id = ? ORDER BY day_number",
+                rs -> {
+                    Day day = new Day();
+                    day.setDayNumber(rs.getInt("day_number"));
+                    day.setDailyTotal(macros(rs));
+                    days.put(day.getDayNumber(), day);
+                }, planId);
+
+        Map<Long, Meal> meals = new HashMap<>();
+        jdbc.query("SELECT day_number, meal_index, name, calories, protein, carbs, fat, has_recipe, recipe_name, ingredients, " +
+                        "instructions, prep_time, cook_time, total_time FROM saved_plan_meals WHERE plan_id = ? ORDER BY day_number, meal_index",
+                rs -> {
+                    Meal meal = new Meal();
+                    meal.setName(rs.getString("name"));
+                    meal.setMacros(macros(rs));
+                    if (rs.getBoolean("has_recipe")) {
+                        Recipe r = new Recipe();
+                        r.setName(rs.getString("recipe_name"));
+                        r.setIngredients(splitLines(rs.getString("ingredients")));
+                        r.setInstructions(splitLines(rs.getString("instructions")));
+                        r.setPrepTime(rs.getString("prep_time"));
+                        r.setCookTime(rs.getString("cook_time"));
+                        r.setTotalTime(rs.getString("total_time"));
+                        meal.setRecipe(r);
+                    }
+                    int dayNumber = rs.getInt("day_number");
+                    Day day = days.get(dayNumber);
+                    if (day != null) {
+                        day.getMeals().add(meal);
+                        meals.put(mealKey(dayNumber, rs.getInt("meal_index")), meal);
+                    }
+                }, planId);
+
+        jdbc.query("SELECT day_number, meal_index, item, portion FROM saved_plan_foods WHERE plan_id = ? ORDER BY day_number, meal_index, food_index",
+                rs -> {
+                    Meal meal = meals.get(mealKey(rs.getInt("day_number"), rs.getInt("meal_index")));
+                    if (meal != null) meal.getFoods().add(new FoodItem(rs.getString("item"), rs.getString("portion")));
+                }, planId);
+
+        return new MealPlan(new ArrayList<>(days.values()), dailyTargets);
+    }
+
+    public GroceryList loadGroceryList(long planId) {
+        Map<String, List<String>> items = new LinkedHashMap<>();
+        jdbc.query("SELECT category, line FROM saved_plan_grocery_items WHERE plan_id = ? ORDER BY category_index, line_index",
+                rs -> {
+                    items.computeIfAbsent(rs.getString("category"), k -> new ArrayList<>()).add(rs.getString("line"));
+                }, planId);
+        return new GroceryList(items);
+    }
+
+    // --- Analytics ---
+
+    /** Meal names this user has been planned most often, with occurrence counts. */
+    public List<Map<String, Object>> findMostPlannedMeals(long userId, int limit) {
+        return jdbc.queryForList("SELECT m.name AS name, COUNT(*) AS times, ROUND(AVG(m.calories)) AS avg_calories " +
+                "FROM saved_plan_meals m JOIN saved_meal_plans p ON p.id = m.plan_id " +
+                "WHERE p.user_id = ? AND m.name IS NOT NULL GROUP BY m.name ORDER BY times DESC, m.name LIMIT ?", userId, limit);
+    }
+
+    /** Foods appearing most often across this user's plans. */
+    public List<Map<String, Object>> findMostPlannedFoods(long userId, int limit) {
+        return jdbc.queryForList("SELECT LOWER(f.item) AS item, COUNT(*) AS times " +
+                "FROM saved_plan_foods f JOIN saved_meal_plans p ON p.id = f.plan_id " +
+                "WHERE p.user_id = ? AND f.item IS NOT NULL GROUP BY LOWER(f.item) ORDER BY times DESC LIMIT ?", userId, limit);
+    }
+
+    /** Planned totals per plan summed over days: plan_id, calories, protein, carbs, fat. */
+    public List<Map<String, Object>> findPlanTotals(long userId) {
+        return jdbc.queryForList("SELECT d.plan_id AS plan_id, SUM(d.calories) AS calories, SUM(d.protein) AS protein, " +
+                "SUM(d.carbs) AS carbs, SUM(d.fat) AS fat FROM saved_plan_days d JOIN saved_meal_plans p ON p.id = d.plan_id " +
+                "WHERE p.user_id = ? GROUP BY d.plan_id ORDER BY d.plan_id DESC", userId);
+    }
+
+    private static long mealKey(int dayNumber, int mealIndex) {
+        return ((long) dayNumber << 32) | (mealIndex & 0xffffffffL);
+    }
+
+    private static MacroTargets macros(ResultSet rs) throws SQLException {
+        int cal = rs.getInt("calories");
+        if (rs.wasNull()) return null;
+        return new MacroTargets(cal, rs.getInt("protein"), rs.getInt("carbs"), rs.getInt("fat"));
+    }
+
+    private static Integer cal(MacroTargets t) { return t == null ? null : t.getCalories(); }
+    private static Integer pro(MacroTargets t) { return t == null ? null : t.getProtein(); }
+    private static Integer carb(MacroTargets t) { return t == null ? null : t.getCarbs(); }
+    private static Integer fat(MacroTargets t) { return t == null ? null : t.getFat(); }
+
+    private static String clip(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+
+    private static String joinLines(List<String> lines) {
+        if (lines == null || lines.isEmpty()) return null;
+        StringJoiner j = new StringJoiner("\n");
+        for (String l : lines) j.add(l == null ? "" : l.replace('\n', ' '));
+        return j.toString();
+    }
+
+    private static List<String> splitLines(String s) {
+        if (s == null || s.isEmpty()) return new ArrayList<>();
+        return new ArrayList<>(Arrays.asList(s.split("\n", -1)));
+    }
+}
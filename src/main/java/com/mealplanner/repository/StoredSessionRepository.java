@@ -0,0 +1,85 @@
+package com.mealplanner.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rows of http_sessions. Attribute maps are opaque bytes here; serialization, caching and merging of
+ * concurrent changes belong to {@link com.mealplanner.security.JdbcSessionRepository}.
+ */
+@Repository
+public class StoredSessionRepository {
+
+    /** One session row; times are epoch milliseconds. */
+    public record StoredSession(String id, long createdAt, long lastAccessedAt, int maxInactiveSeconds, byte[] attributes) {
+        public long expiresAt() {
+            return lastAccessedAt + maxInactiveSeconds * 1000L;
+        }
+    }
+
+    private static final String COLUMNS = "id, created_at, last_accessed_at, max_inactive_seconds, attributes";
+
+    private final JdbcTemplate jdbc;
+
+    public StoredSessionRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<StoredSession> findLive(String id, long now) {
+        return jdbc.query("SELECT " + COLUMNS + " FROM http_sessions WHERE id = ? AND expires_at > ?",
+                (rs, i) -> new StoredSession(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getInt(4), rs.getBytes(5)),
+                id, now).stream().findFirst();
+    }
+
+    /** Whether the row still exists; a primary-key probe that reads no attributes. */
+    public boolean exists(String id) {
+        return !jdbc.queryForList("SELECT 1 FROM http_sessions WHERE id = ?", Integer.class, id).isEmpty();
+    }
+
+    /** Same as {@link #findLive} but locks the row until the surrounding transaction ends. */
+    public Optional<StoredSession> findForUpdate(String id) {
+        return jdbc.query("SELECT " + COLUMNS + " FROM http_sessions WHERE id = ? FOR UPDATE",
+                (rs, i) -> new StoredSession(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getInt(4), rs.getBytes(5)),
+                id).stream().findFirst();
+    }
+
+    public void insert(StoredSession s) {
+        jdbc.update("INSERT INTO http_sessions (" + COLUMNS + ", expires_at) VALUES (?, ?, ?, ?, ?, ?)",
+                s.id(), s.createdAt(), s.lastAccessedAt(), s.maxInactiveSeconds(), s.attributes(), s.expiresAt());
+    }
+
+    public void update(StoredSession s) {
+        jdbc.update("UPDATE http_sessions SET last_accessed_at = ?, max_inactive_seconds = ?, attributes = ?, expires_at = ? " +
+                        "WHERE id = ?",
+                s.lastAccessedAt(), s.maxInactiveSeconds(), s.attributes(), s.expiresAt(), s.id());
+    }
+
+    public int rename(String oldId, String newId) {
+        return jdbc.update("UPDATE http_sessions SET id = ? WHERE id = ?", newId, oldId);
+    }
+
+    /**
+     * Moves last-access (and with it expiry) forward for many sessions in one batch. Never moves it back,
+     * so a late flush from one node cannot shorten a session another node has touched since.
+     */
+    public void touch(Map<String, Long> lastAccessById) {
+        if (lastAccessById.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(lastAccessById.size());
+        lastAccessById.forEach((id, at) -> args.add(new Object[]{at, at, id, at}));
+        jdbc.batchUpdate("UPDATE http_sessions SET last_accessed_at = ?, " +
+                "expires_at = ? + CAST(max_inactive_seconds AS BIGINT) * 1000 WHERE id = ? AND last_accessed_at < ?", args);
+    }
+
+    public void delete(String id) {
+        jdbc.update("DELETE FROM http_sessions WHERE id = ?", id);
+    }
+
+    public int deleteExpired(long now) {
+        return jdbc.update("DELETE FROM http_sessions WHERE expires_at <= ?", now);
+    }
+}
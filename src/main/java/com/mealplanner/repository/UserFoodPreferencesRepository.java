@@ -10,6 +10,7 @@ import java.util.Optional;
 @Repository
 public interface UserFoodPreferencesRepository extends JpaRepository<UserFoodPreferences, Long> {
     Optional<UserFoodPreferences> findByUser(User user);
+    Optional<UserFoodPreferences> findByUserId(Long userId);
     boolean existsByUser(User user);
 }
 
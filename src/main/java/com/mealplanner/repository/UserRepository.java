@@ -16,6 +16,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByGoogleId(String googleId);
     boolean existsByEmail(String email);
 
+    @Query("SELECT u.isAdmin FROM User u WHERE u.id = :id")
+    Optional<Boolean> findAdminFlagById(@Param("id") Long id);
+
     // Admin queries
     List<User> findTop10ByOrderByCreatedAtDesc();
     long countByCreatedAtAfter(LocalDateTime date);
@@ -0,0 +1,45 @@
+package com.mealplanner.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.service.CacheLoads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admin flag per user id with a short TTL. The flag captured at login would otherwise stay
+ * in effect for the whole session; this bounds how long a grant or revocation takes to apply.
+ */
+@Component
+public class AdminFlagCache {
+
+    private final UserRepository userRepository;
+    private final AsyncCache<Long, Boolean> cache;
+
+    public AdminFlagCache(UserRepository userRepository,
+                          @Value("${security.admin-flag.ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(10_000)
+                .buildAsync();
+    }
+
+    public boolean isAdmin(Long userId) {
+        if (userId == null) return false;
+        // Looked up outside the cache's lock; see CacheLoads
+        return CacheLoads.get(cache, userId, id -> userRepository.findAdminFlagById(id).orElse(false));
+    }
+
+    public void put(Long userId, boolean admin) {
+        if (userId != null) cache.put(userId, CompletableFuture.completedFuture(admin));
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) cache.synchronous().invalidate(userId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mealplanner.security;
+
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.OidcUserInfo;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+import java.util.Map;
+
+/**
+ * {@link AppUserPrincipal} for OpenID Connect logins. Google is registered with the {@code openid} scope, so
+ * Spring authenticates through the OIDC user service and the principal has to remain an {@link OidcUser}
+ * (ID token, claims) for the rest of the security stack.
+ */
+public class AppOidcUserPrincipal extends AppUserPrincipal implements OidcUser {
+
+    private static final long serialVersionUID = 1L;
+
+    private final OidcUser oidcDelegate;
+
+    public AppOidcUserPrincipal(OidcUser delegate, Long userId, String email, String displayName, boolean admin) {
+        super(delegate, userId, email, displayName, admin);
+        this.oidcDelegate = delegate;
+    }
+
+    @Override
+    public Map<String, Object> getClaims() {
+        return oidcDelegate.getClaims();
+    }
+
+    @Override
+    public OidcUserInfo getUserInfo() {
+        return oidcDelegate.getUserInfo();
+    }
+
+    @Override
+    public OidcIdToken getIdToken() {
+        return oidcDelegate.getIdToken();
+    }
+}
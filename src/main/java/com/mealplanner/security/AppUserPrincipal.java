@@ -0,0 +1,51 @@
+package com.mealplanner.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * OAuth2 principal that also carries the local user id and admin flag resolved at login.
+ * Stored in the session with the authentication, so it must stay serializable.
+ */
+public class AppUserPrincipal implements OAuth2User, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final OAuth2User delegate;
+    private final Long userId;
+    private final String email;
+    private final String displayName;
+    private final boolean admin;
+
+    public AppUserPrincipal(OAuth2User delegate, Long userId, String email, String displayName, boolean admin) {
+        this.delegate = delegate;
+        this.userId = userId;
+        this.email = email;
+        this.displayName = displayName;
+        this.admin = admin;
+    }
+
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public String getDisplayName() { return displayName; }
+    public boolean isAdmin() { return admin; }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return delegate.getAttributes();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return delegate.getAuthorities();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
@@ -0,0 +1,25 @@
+package com.mealplanner.security;
+
+/**
+ * The signed-in user as seen by controllers. Declare it as a handler method parameter;
+ * it is built from the session principal without touching the database.
+ */
+public final class CurrentUser {
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final boolean admin;
+
+    public CurrentUser(Long id, String email, String name, boolean admin) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.admin = admin;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getName() { return name; }
+    public boolean isAdmin() { return admin; }
+}
@@ -0,0 +1,55 @@
+package com.mealplanner.security;
+
+import com.mealplanner.model.User;
+import com.mealplanner.repository.UserRepository;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Supplies {@link CurrentUser} handler arguments; resolves to null when nobody is signed in.
+ * Sessions created before {@link AppUserPrincipal} existed fall back to a lookup by email / Google id.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final AdminFlagCache adminFlagCache;
+    private final UserRepository userRepository;
+
+    public CurrentUserArgumentResolver(AdminFlagCache adminFlagCache, UserRepository userRepository) {
+        this.adminFlagCache = adminFlagCache;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return CurrentUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) return null;
+        Object principal = auth.getPrincipal();
+        if (principal instanceof AppUserPrincipal p) {
+            return new CurrentUser(p.getUserId(), p.getEmail(), p.getDisplayName(), adminFlagCache.isAdmin(p.getUserId()));
+        }
+        if (principal instanceof OAuth2User oauth) {
+            String email = oauth.getAttribute("email");
+            String googleId = oauth.getAttribute("sub");
+            User user = null;
+            if (email != null) user = userRepository.findByEmail(email).orElse(null);
+            if (user == null && googleId != null) user = userRepository.findByGoogleId(googleId).orElse(null);
+            if (user == null) return null;
+            return new CurrentUser(user.getId(), user.getEmail(), user.getName(), adminFlagCache.isAdmin(user.getId()));
+        }
+        return null;
+    }
+}
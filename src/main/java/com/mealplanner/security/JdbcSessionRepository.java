@@ -0,0 +1,304 @@
+package com.mealplanner.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mealplanner.repository.StoredSessionRepository;
+import com.mealplanner.repository.StoredSessionRepository.StoredSession;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP sessions stored in the application database, so any node can serve any request and a restart keeps
+ * everyone signed in. Installed as the servlet session store by {@code SessionConfig}.
+ *
+ * <p>Two things keep the per-request cost down:
+ * <ul>
+ *   <li>Loaded sessions are cached on this node for a few seconds ({@code session.cache.ttl-ms}). Each request
+ *       gets its own copy, so concurrent requests never share mutable state. A cache hit still probes the row
+ *       by primary key, so a session deleted on any node (sign-out, cleanup) stops authenticating everywhere at
+ *       once; only the attribute bytes are spared from reading and deserializing.</li>
+ *   <li>A request that only reads its session changes nothing but the last-access time. Those touches are
+ *       collected in memory and written in one batch per {@code session.touch.flush-ms}.</li>
+ * </ul>
+ *
+ * <p>Attribute changes (sign-in, impersonation, CSRF tokens) are written when the request completes. Another
+ * node sees them once its cached copy, if any, has expired, so at most {@code session.cache.ttl-ms} later. Only the names set or removed
+ * by the request are applied, on top of the row as it is now, so two nodes changing different attributes of
+ * one session do not undo each other.
+ */
+@Component
+public class JdbcSessionRepository implements SessionRepository<JdbcSessionRepository.TrackedSession> {
+
+    private final StoredSessionRepository store;
+    private final TransactionTemplate tx;
+    private final Duration defaultMaxInactive;
+    private final Cache<String, MapSession> cache;
+    // Session id to the latest last-access time not yet written
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer = new DeserializingConverter(getClass().getClassLoader());
+
+    public JdbcSessionRepository(StoredSessionRepository store,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${server.servlet.session.timeout:30m}") Duration defaultMaxInactive,
+                                 @Value("${session.cache.ttl-ms:2000}") long cacheTtlMs) {
+        this.store = store;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.defaultMaxInactive = defaultMaxInactive;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /** A request's own copy of a session, recording which attributes the request changed. */
+    public static final class TrackedSession implements Session {
+        private final MapSession delegate;
+        private final boolean isNew;
+        private final String originalId;
+        private final Set<String> changed = new HashSet<>();
+        private boolean maxInactiveChanged;
+
+        TrackedSession(MapSession delegate, boolean isNew) {
+            this.delegate = delegate;
+            this.isNew = isNew;
+            this.originalId = delegate.getId();
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String name) {
+            return delegate.getAttribute(name);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            delegate.setAttribute(name, value);
+            changed.add(name);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            delegate.removeAttribute(name);
+            changed.add(name);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            delegate.setMaxInactiveInterval(interval);
+            maxInactiveChanged = true;
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+
+        boolean needsWrite() {
+            return isNew || maxInactiveChanged || !changed.isEmpty() || !originalId.equals(getId());
+        }
+    }
+
+    @Override
+    public TrackedSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactive);
+        return new TrackedSession(session, true);
+    }
+
+    @Override
+    public void save(TrackedSession session) {
+        String id = session.getId();
+        if (!session.needsWrite()) {
+            // Read-only request: only the last-access time moved, which can wait for the next batch
+            pendingTouches.merge(id, session.getLastAccessedTime().toEpochMilli(), Math::max);
+            cache.asMap().computeIfPresent(id, (k, cached) -> {
+                MapSession copy = new MapSession(cached);
+                copy.setLastAccessedTime(session.getLastAccessedTime());
+                return copy;
+            });
+            return;
+        }
+        MapSession written = tx.execute(status -> write(session));
+        pendingTouches.remove(session.originalId);
+        pendingTouches.remove(id);
+        cache.invalidate(session.originalId);
+        if (written != null) cache.put(id, written);
+        else cache.invalidate(id);
+    }
+
+    @Override
+    public TrackedSession findById(String id) {
+        MapSession snapshot = cache.getIfPresent(id);
+        if (snapshot != null && !store.exists(id)) {
+            // Deleted on another node since it was cached here; expiry is checked below against local touches too
+            cache.invalidate(id);
+            pendingTouches.remove(id);
+            return null;
+        }
+        if (snapshot == null) {
+            snapshot = load(id);
+            if (snapshot == null) return null;
+            cache.put(id, snapshot);
+        }
+        MapSession copy = new MapSession(snapshot);
+        Long touched = pendingTouches.get(id);
+        if (touched != null && touched > copy.getLastAccessedTime().toEpochMilli()) {
+            copy.setLastAccessedTime(Instant.ofEpochMilli(touched));
+        }
+        if (copy.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return new TrackedSession(copy, false);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        cache.invalidate(id);
+        pendingTouches.remove(id);
+        store.delete(id);
+    }
+
+    @Scheduled(fixedDelayString = "${session.touch.flush-ms:5000}")
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) return;
+        Map<String, Long> batch = new HashMap<>();
+        for (String id : pendingTouches.keySet()) {
+            Long at = pendingTouches.remove(id);
+            if (at != null) batch.put(id, at);
+        }
+        try {
+            store.touch(batch);
+        } catch (Exception e) {
+            System.err.println("Error writing " + batch.size() + " session touches: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${session.cleanup-ms:600000}")
+    public void deleteExpired() {
+        try {
+            store.deleteExpired(System.currentTimeMillis());
+        } catch (Exception e) {
+            System.err.println("Error deleting expired sessions: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushTouches();
+    }
+
+    // Runs in a transaction; returns what is now stored, or null when the session is gone from the table
+    private MapSession write(TrackedSession session) {
+        MapSession s = session.delegate;
+        Map<String, Object> attributes;
+        if (session.isNew) {
+            attributes = new HashMap<>();
+            for (String name : s.getAttributeNames()) attributes.put(name, s.getAttribute(name));
+            store.insert(row(s, attributes));
+            return new MapSession(s);
+        }
+        if (!session.originalId.equals(s.getId()) && store.rename(session.originalId, s.getId()) == 0) return null;
+        Optional<StoredSession> current = store.findForUpdate(s.getId());
+        if (current.isEmpty()) return null;
+        attributes = deserialize(current.get().attributes());
+        if (attributes == null) attributes = new HashMap<>();
+        for (String name : session.changed) {
+            Object value = s.getAttribute(name);
+            if (value == null) attributes.remove(name);
+            else attributes.put(name, value);
+        }
+        Duration maxInactive = session.maxInactiveChanged
+                ? s.getMaxInactiveInterval() : Duration.ofSeconds(current.get().maxInactiveSeconds());
+        long lastAccess = Math.max(s.getLastAccessedTime().toEpochMilli(), current.get().lastAccessedAt());
+
+        MapSession stored = new MapSession(s.getId());
+        stored.setCreationTime(Instant.ofEpochMilli(current.get().createdAt()));
+        stored.setLastAccessedTime(Instant.ofEpochMilli(lastAccess));
+        stored.setMaxInactiveInterval(maxInactive);
+        attributes.forEach(stored::setAttribute);
+        store.update(row(stored, attributes));
+        return stored;
+    }
+
+    private MapSession load(String id) {
+        StoredSession row = store.findLive(id, System.currentTimeMillis()).orElse(null);
+        if (row == null) return null;
+        Map<String, Object> attributes = deserialize(row.attributes());
+        if (attributes == null) {
+            // Written by an incompatible build; treat as signed out
+            store.delete(id);
+            return null;
+        }
+        MapSession s = new MapSession(row.id());
+        s.setCreationTime(Instant.ofEpochMilli(row.createdAt()));
+        s.setLastAccessedTime(Instant.ofEpochMilli(row.lastAccessedAt()));
+        s.setMaxInactiveInterval(Duration.ofSeconds(row.maxInactiveSeconds()));
+        attributes.forEach(s::setAttribute);
+        return s;
+    }
+
+    private StoredSession row(MapSession s, Map<String, Object> attributes) {
+        return new StoredSession(s.getId(), s.getCreationTime().toEpochMilli(), s.getLastAccessedTime().toEpochMilli(),
+                (int) s.getMaxInactiveInterval().toSeconds(), serializer.convert(new HashMap<>(attributes)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> deserialize(byte[] bytes) {
+        try {
+            return (Map<String, Object>) deserializer.convert(bytes);
+        } catch (Exception e) {
+            System.err.println("Discarding unreadable session attributes: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mealplanner.repository.AdminExportRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes admin exports straight from a database cursor to the response stream as CSV or NDJSON.
+ * Memory use is bounded by the fetch size and the writer buffer, not by the number of rows.
+ */
+@Service
+public class AdminExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) return CSV;
+            return Format.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private final AdminExportRepository exportRepository;
+    private final JsonCodec jsonCodec;
+    private final TransactionTemplate readOnlyTx;
+
+    public AdminExportService(AdminExportRepository exportRepository,
+                              JsonCodec jsonCodec,
+                              PlatformTransactionManager transactionManager) {
+        this.exportRepository = exportRepository;
+        this.jsonCodec = jsonCodec;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public void exportUsers(Format format, OutputStream out) throws IOException {
+        export(format, AdminExportRepository.USER_COLUMNS, exportRepository::streamUsers, out);
+    }
+
+    public void exportMealPlans(Format format, OutputStream out) throws IOException {
+        export(format, AdminExportRepository.MEAL_PLAN_COLUMNS, exportRepository::streamMealPlans, out);
+    }
+
+    private void export(Format format, String[] columns, Consumer<Consumer<Object[]>> source, OutputStream out) throws IOException {
+        try {
+            if (format == Format.NDJSON) {
+                writeNdjson(columns, source, out);
+            } else {
+                writeCsv(columns, source, out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeCsv(String[] columns, Consumer<Consumer<Object[]>> source, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        w.write(String.join(",", columns));
+        w.write('\n');
+        readOnlyTx.executeWithoutResult(status -> source.accept(row -> {
+            try {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) w.write(',');
+                    w.write(escapeCSV(row[i]));
+                }
+                w.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        w.flush();
+    }
+
+    private void writeNdjson(String[] columns, Consumer<Consumer<Object[]>> source, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonCodec.createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            readOnlyTx.executeWithoutResult(status -> source.accept(row -> {
+                try {
+                    gen.writeStartObject();
+                    for (int i = 0; i < row.length; i++) {
+                        gen.writeFieldName(columns[i]);
+                        writeValue(gen, row[i]);
+                    }
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        if (value == null) gen.writeNull();
+        else if (value instanceof Boolean b) gen.writeBoolean(b);
+        else if (value instanceof Integer n) gen.writeNumber(n);
+        else if (value instanceof Long n) gen.writeNumber(n);
+        else if (value instanceof Double n) gen.writeNumber(n);
+        else gen.writeString(value.toString());
+    }
+
+    private static String escapeCSV(Object raw) {
+        if (raw == null) return "";
+        String value = raw.toString();
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
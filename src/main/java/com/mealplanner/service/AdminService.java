@@ -1,11 +1,13 @@
 package com.mealplanner.service;
 
-import com.mealplanner.model.FoodLog;
+import com.mealplanner.model.AiUsageDaily;
 import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
+import com.mealplanner.repository.AiUsageDailyRepository;
 import com.mealplanner.repository.FoodLogRepository;
 import com.mealplanner.repository.SavedMealPlanRepository;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.AdminFlagCache;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -18,15 +20,28 @@ public class AdminService {
     private final UserRepository userRepository;
     private final SavedMealPlanRepository savedMealPlanRepository;
     private final FoodLogRepository foodLogRepository;
+    private final AiUsageDailyRepository aiUsageDailyRepository;
+    private final SavedMealPlanService savedMealPlanService;
+    private final AdminFlagCache adminFlagCache;
+    private final DailyNutritionSummaryService dailyNutritionSummaryService;
 
     public AdminService(UserRepository userRepository,
                         SavedMealPlanRepository savedMealPlanRepository,
-                        FoodLogRepository foodLogRepository) {
+                        FoodLogRepository foodLogRepository,
+                        AiUsageDailyRepository aiUsageDailyRepository,
+                        SavedMealPlanService savedMealPlanService,
+                        AdminFlagCache adminFlagCache,
+                        DailyNutritionSummaryService dailyNutritionSummaryService) {
         this.userRepository = userRepository;
         this.savedMealPlanRepository = savedMealPlanRepository;
         this.foodLogRepository = foodLogRepository;
+        this.aiUsageDailyRepository = aiUsageDailyRepository;
+        this.savedMealPlanService = savedMealPlanService;
+        this.adminFlagCache = adminFlagCache;
+        this.dailyNutritionSummaryService = dailyNutritionSummaryService;
     }
 
+    /** Runs every dashboard count query; callers should read {@link AdminStatsSnapshotService} instead. */
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
 
@@ -44,9 +59,11 @@ public class AdminService {
         double successRate = totalPlans > 0 ? ((totalPlans - failedPlans) * 100.0 / totalPlans) : 0;
         stats.put("aiSuccessRate", Math.round(successRate * 10) / 10.0);
 
-        // Estimate Claude API cost (~$0.075 per plan per your guide)
-        double estimatedCost = totalPlans * 0.075;
-        stats.put("estimatedApiCost", Math.round(estimatedCost * 100) / 100.0);
+        // Actual provider spend from the daily usage rollups
+        double apiCost = 0;
+        try { apiCost = aiUsageDailyRepository.sumCostUsd(); } catch (Exception ignore) {}
+        stats.put("estimatedApiCost", Math.round(apiCost * 100) / 100.0);
+        stats.putAll(getApiUsageSummary(14));
 
         Double avgAccuracy = null;
         try { avgAccuracy = savedMealPlanRepository.getAverageAccuracyScore(); } catch (Exception ignore) {}
@@ -54,7 +71,7 @@ public class AdminService {
 
         LocalDate today = LocalDate.now();
         long activeToday = 0;
-        try { activeToday = foodLogRepository.countActiveUsersOnDate(today); } catch (Exception ignore) {}
+        try { activeToday = dailyNutritionSummaryService.countActiveUsersOnDate(today); } catch (Exception ignore) {}
         stats.put("activeToday", activeToday);
 
         long totalFoodLogs = foodLogRepository.count();
@@ -67,57 +84,42 @@ public class AdminService {
         return stats;
     }
 
-    public List<Map<String, Object>> getAllUsersWithStats() {
-        List<User> users = userRepository.findAll();
-        List<Map<String, Object>> userStats = new ArrayList<>();
-
-        for (User user : users) {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("user", user);
-            try { stats.put("totalFoodLogs", foodLogRepository.countByUser(user)); } catch (Exception e) { stats.put("totalFoodLogs", 0); }
-            try { stats.put("totalMealPlans", savedMealPlanRepository.countByUser(user)); } catch (Exception e) { stats.put("totalMealPlans", 0); }
-
-            FoodLog last = null;
-            try { last = foodLogRepository.findTopByUserOrderByLogDateDesc(user); } catch (Exception ignore) {}
-            stats.put("lastActive", last != null ? last.getLogDate() : null);
-
-            userStats.add(stats);
+    /**
+     * Per-day and per-feature token/cost breakdown over the last {@code days} days, read from the daily rollups.
+     */
+    public Map<String, Object> getApiUsageSummary(int days) {
+        Map<String, Object> summary = new HashMap<>();
+        List<AiUsageDaily> rows = Collections.emptyList();
+        try { rows = aiUsageDailyRepository.findByUsageDateGreaterThanEqualOrderByUsageDateDesc(LocalDate.now().minusDays(days - 1)); } catch (Exception ignore) {}
+
+        Map<LocalDate, AiUsageDaily> byDay = new LinkedHashMap<>();
+        Map<String, AiUsageDaily> byFeature = new TreeMap<>();
+        for (AiUsageDaily row : rows) {
+            byDay.computeIfAbsent(row.getUsageDate(), d -> new AiUsageDaily(d, null, null)).merge(row);
+            byFeature.computeIfAbsent(row.getFeature().name(), f -> new AiUsageDaily(null, row.getFeature(), null)).merge(row);
         }
-
-        return userStats;
+        summary.put("apiUsageByDay", new ArrayList<>(byDay.values()));
+        summary.put("apiUsageByFeature", new ArrayList<>(byFeature.values()));
+        summary.put("apiUsageDays", days);
+        return summary;
     }
 
+    /**
+     * Header figures for the user detail page. Every value comes from an aggregate query, so the cost
+     * does not grow with the user's history; the log and plan tabs are paged separately.
+     */
     public Map<String, Object> getUserDetails(Long userId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
 
         Map<String, Object> details = new HashMap<>();
         details.put("user", user);
+        details.put("totalMealPlans", savedMealPlanRepository.countByUserId(userId));
+        details.putAll(savedMealPlanService.getPlanningStats(userId, 10));
+        details.putAll(dailyNutritionSummaryService.getActivitySummary(userId));
 
-        List<SavedMealPlan> plans = savedMealPlanRepository.findByUserOrderByCreatedAtDesc(user);
-        details.put("mealPlans", plans);
-        details.put("totalMealPlans", plans.size());
-
-        List<FoodLog> allFood = foodLogRepository.findByUserAndLogDateBetweenOrderByLogDateDescTimeLoggedAsc(
-                user, LocalDate.of(1970,1,1), LocalDate.now());
-        details.put("allFoodLogs", allFood);
-        details.put("totalFoodLogs", allFood.size());
-
-        LocalDate weekAgo = LocalDate.now().minusDays(7);
-        List<FoodLog> recent = foodLogRepository.findByUserAndLogDateBetweenOrderByLogDateDescTimeLoggedAsc(user, weekAgo, LocalDate.now());
-        details.put("recentFood", recent);
-
-        FoodLog last = null;
-        try { last = foodLogRepository.findTopByUserOrderByLogDateDesc(user); } catch (Exception ignore) {}
-        details.put("lastActive", last != null ? last.getLogDate() : null);
-
-        double avgAccuracy = plans.stream()
-                .filter(p -> p.getAccuracyScore() != null)
-                .mapToDouble(SavedMealPlan::getAccuracyScore)
-                .average().orElse(0.0);
-        details.put("avgAccuracy", Math.round(avgAccuracy * 10) / 10.0);
-
-        long daysActive = allFood.stream().map(FoodLog::getLogDate).distinct().count();
-        details.put("daysActive", daysActive);
+        Double avgAccuracy = null;
+        try { avgAccuracy = savedMealPlanRepository.getAverageAccuracyScoreForUser(userId); } catch (Exception ignore) {}
+        details.put("avgAccuracy", avgAccuracy != null ? Math.round(avgAccuracy * 10) / 10.0 : 0.0);
 
         return details;
     }
@@ -143,6 +145,10 @@ public class AdminService {
         return metrics;
     }
 
+    public int rebuildNutritionSummaries() {
+        return dailyNutritionSummaryService.rebuild();
+    }
+
     public List<User> searchUsers(String query) {
         return userRepository.findByEmailContainingIgnoreCaseOrNameContainingIgnoreCase(query, query);
     }
@@ -152,7 +158,9 @@ public class AdminService {
         // FoodLogs and SavedMealPlans are cascaded on User? SavedMealPlan has ManyToOne without cascade from User
         // Be explicit: delete child records via repositories
         // Note: There is no repository method to bulk delete by user; keep as-is for now or rely on orphanRemoval on User.savedMealPlans
+        dailyNutritionSummaryService.deleteForUser(user.getId());
         userRepository.delete(user);
+        adminFlagCache.invalidate(userId);
     }
 }
 
@@ -0,0 +1,88 @@
+package com.mealplanner.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the admin dashboard counters in memory and recomputes them on a fixed delay,
+ * so opening the dashboard never runs the count/average queries itself.
+ * Plan cache and meal prefetch statistics are in-memory already and are read live on every request.
+ */
+@Service
+public class AdminStatsSnapshotService {
+
+    /** Dashboard counters and the time they were computed. */
+    public record Snapshot(Map<String, Object> stats, LocalDateTime computedAt) {}
+
+    private final AdminService adminService;
+    private final SavedMealPlanService savedMealPlanService;
+    private final MealPrefetchService prefetchService;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    // System.nanoTime() when the last refresh completed; written and compared under refreshLock
+    private long lastRefreshFinished;
+
+    public AdminStatsSnapshotService(AdminService adminService, SavedMealPlanService savedMealPlanService,
+                                     MealPrefetchService prefetchService) {
+        this.adminService = adminService;
+        this.savedMealPlanService = savedMealPlanService;
+        this.prefetchService = prefetchService;
+    }
+
+    /** The current snapshot plus live plan cache and prefetch stats; computes one on the first call if the warm-up has not run yet. */
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        if (current == null) current = refresh();
+        Map<String, Object> stats = new HashMap<>(current.stats());
+        stats.put("statsComputedAt", current.computedAt());
+        stats.put("planCache", savedMealPlanService.getCacheStats());
+        stats.put("mealPrefetch", prefetchService.getStats());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Admin stats warm-up failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${admin.stats.refresh-ms:60000}", initialDelayString = "${admin.stats.refresh-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Admin stats refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes now. A caller that finds a refresh in progress waits for it and takes its result instead of
+     * running the queries again.
+     */
+    public Snapshot refresh() {
+        long requestedAt = System.nanoTime();
+        // A lock rather than synchronized: the queries would otherwise pin a virtual thread's carrier
+        refreshLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current != null && lastRefreshFinished - requestedAt > 0) return current;
+            Snapshot fresh = new Snapshot(Collections.unmodifiableMap(adminService.getDashboardStats()), LocalDateTime.now());
+            snapshot = fresh;
+            lastRefreshFinished = System.nanoTime();
+            return fresh;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
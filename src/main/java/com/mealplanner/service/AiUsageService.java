@@ -0,0 +1,204 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mealplanner.model.AiFeature;
+import com.mealplanner.model.AiUsageDaily;
+import com.mealplanner.model.AiUsageRecord;
+import com.mealplanner.repository.AiUsageRecordRepository;
+import com.mealplanner.repository.AiUsageRollupRepository;
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.AppUserPrincipal;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures token usage for every AI provider call and persists it off the request path.
+ * Callers enqueue a sample; a scheduled flush writes raw records in one batch and folds them into daily rollups.
+ * A batch that fails to write goes back on the queue and is retried on later flushes, up to {@code MAX_ATTEMPTS}.
+ */
+@Service
+public class AiUsageService {
+
+    private static final int MAX_PENDING = 10_000;
+    private static final int MAX_BATCH = 500;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final AiUsageRecordRepository recordRepository;
+    private final AiUsageRollupRepository rollupRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate tx;
+    private final JsonCodec jsonCodec;
+
+    private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>(MAX_PENDING);
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AiUsageService(AiUsageRecordRepository recordRepository,
+                          AiUsageRollupRepository rollupRepository,
+                          UserRepository userRepository,
+                          PlatformTransactionManager transactionManager,
+                          JsonCodec jsonCodec) {
+        this.recordRepository = recordRepository;
+        this.rollupRepository = rollupRepository;
+        this.userRepository = userRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.jsonCodec = jsonCodec;
+    }
+
+    /** Token counts reported by a provider for a single call. */
+    public record Usage(String model, int inputTokens, int outputTokens,
+                        int cacheCreationTokens, int cacheReadTokens, String stopReason) {
+        public static Usage empty(String model) {
+            return new Usage(model, 0, 0, 0, 0, null);
+        }
+    }
+
+    // Principal is captured on the calling thread; the writer thread has no security context.
+    // Sessions from before AppUserPrincipal only carry an email, resolved to an id at write time.
+    private record Pending(AiFeature feature, String provider, Usage usage, long latencyMs,
+                           boolean success, Long userId, String principalEmail, LocalDate date, int attempts) {
+        Pending retried() {
+            return new Pending(feature, provider, usage, latencyMs, success, userId, principalEmail, date, attempts + 1);
+        }
+    }
+
+    public void record(AiFeature feature, String provider, Usage usage, long latencyMs) {
+        enqueue(feature, provider, usage, latencyMs, true);
+    }
+
+    public void recordFailure(AiFeature feature, String provider, String model, long latencyMs) {
+        enqueue(feature, provider, Usage.empty(model), latencyMs, false);
+    }
+
+    /** Reads the {@code usage}, {@code model} and {@code stop_reason} fields of a raw Anthropic Messages response. */
+    public Usage parseAnthropicUsage(String raw, String requestedModel) {
+        try {
+            JsonNode root = jsonCodec.readTree(raw);
+            JsonNode u = root.path("usage");
+            return new Usage(
+                    root.path("model").asText(requestedModel),
+                    u.path("input_tokens").asInt(0),
+                    u.path("output_tokens").asInt(0),
+                    u.path("cache_creation_input_tokens").asInt(0),
+                    u.path("cache_read_input_tokens").asInt(0),
+                    root.path("stop_reason").isTextual() ? root.path("stop_reason").asText() : null);
+        } catch (Exception e) {
+            return Usage.empty(requestedModel);
+        }
+    }
+
+    private void enqueue(AiFeature feature, String provider, Usage usage, long latencyMs, boolean success) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Object principal = auth != null ? auth.getPrincipal() : null;
+        Long userId = principal instanceof AppUserPrincipal app ? app.getUserId() : null;
+        String email = userId == null && principal instanceof OAuth2User user ? user.getAttribute("email") : null;
+        Pending p = new Pending(feature, provider, usage, latencyMs, success, userId, email, LocalDate.now(), 0);
+        if (!pending.offer(p)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Scheduled(fixedDelayString = "${ai.usage.flush-ms:2000}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            List<Pending> batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+            pending.drainTo(batch, MAX_BATCH);
+            if (batch.isEmpty()) return;
+            try {
+                tx.executeWithoutResult(status -> write(batch));
+            } catch (Exception e) {
+                System.err.println("Error writing AI usage batch of " + batch.size() + ": " + e.getMessage());
+                requeue(batch);
+                return;
+            }
+        }
+    }
+
+    // The transaction rolled back, so nothing of the batch was stored; retry it on a later flush
+    private void requeue(List<Pending> batch) {
+        for (Pending p : batch) {
+            if (p.attempts() + 1 >= MAX_ATTEMPTS || !pending.offer(p.retried())) dropped.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<Pending> batch) {
+        Map<String, Long> userIds = new HashMap<>();
+        List<AiUsageRecord> records = new ArrayList<>(batch.size());
+        Map<RollupKey, AiUsageDaily> deltas = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            AiUsageRecord r = new AiUsageRecord();
+            r.setUserId(p.userId() != null ? p.userId() : resolveUserId(p.principalEmail(), userIds));
+            r.setFeature(p.feature());
+            r.setProvider(p.provider());
+            r.setModel(p.usage().model());
+            r.setInputTokens(p.usage().inputTokens());
+            r.setOutputTokens(p.usage().outputTokens());
+            r.setCacheCreationTokens(p.usage().cacheCreationTokens());
+            r.setCacheReadTokens(p.usage().cacheReadTokens());
+            r.setStopReason(p.usage().stopReason());
+            r.setLatencyMs(p.latencyMs());
+            r.setSuccess(p.success());
+            r.setCostUsd(costOf(p.usage()));
+            records.add(r);
+
+            String model = p.usage().model() == null ? "unknown" : p.usage().model();
+            deltas.computeIfAbsent(new RollupKey(p.date(), p.feature(), model),
+                    k -> new AiUsageDaily(k.date(), k.feature(), k.model())).add(r);
+        }
+        recordRepository.saveAll(records);
+        rollupRepository.add(deltas.values());
+    }
+
+    private record RollupKey(LocalDate date, AiFeature feature, String model) {}
+
+    private Long resolveUserId(String email, Map<String, Long> cache) {
+        if (email == null) return null;
+        return cache.computeIfAbsent(email, e -> userRepository.findByEmail(e).map(u -> u.getId()).orElse(null));
+    }
+
+    // --- Pricing (USD per million tokens) ---
+    private record Price(double input, double output) {}
+
+    private static final Map<String, Price> PRICES = new LinkedHashMap<>();
+    static {
+        // Most specific prefixes first
+        PRICES.put("claude-3-haiku", new Price(0.25, 1.25));
+        PRICES.put("claude-3-5-haiku", new Price(0.80, 4.00));
+        PRICES.put("haiku", new Price(1.00, 5.00));
+        PRICES.put("sonnet", new Price(3.00, 15.00));
+        PRICES.put("opus", new Price(15.00, 75.00));
+        PRICES.put("gpt-4o-mini", new Price(0.15, 0.60));
+        PRICES.put("gpt-4o", new Price(2.50, 10.00));
+    }
+
+    static double costOf(Usage u) {
+        Price price = new Price(3.00, 15.00);
+        String model = u.model() == null ? "" : u.model().toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, Price> e : PRICES.entrySet()) {
+            if (model.contains(e.getKey())) { price = e.getValue(); break; }
+        }
+        // Cache writes bill at 1.25x input, cache reads at 0.1x input
+        double inputEquivalent = u.inputTokens() + u.cacheCreationTokens() * 1.25 + u.cacheReadTokens() * 0.10;
+        return (inputEquivalent * price.input() + u.outputTokens() * price.output()) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Ingredient names that indicate each allergen group on the plan form ("prawn" is shellfish, "whey" is dairy).
+ * {@link #guardFor} compiles the synonyms of a set of allergies into one {@link FoodTermMatcher}; guards are
+ * cached per allergy set, so checking a plan never compiles a pattern in the common case.
+ *
+ * <p>Phrases that contain a synonym without containing the allergen ("peanut butter" for dairy, "rice noodles"
+ * for gluten) are part of the same alternation. The matcher takes the longest term at each position, so the
+ * phrase consumes the text and the inner synonym is never reported.
+ */
+@Component
+public class AllergenLexicon {
+
+    private static final Map<String, List<String>> SYNONYMS = new LinkedHashMap<>();
+    private static final Map<String, List<String>> EXEMPT = new LinkedHashMap<>();
+    static {
+        SYNONYMS.put("dairy", List.of("dairy", "milk", "cheese", "butter", "cream", "yogurt", "yoghurt", "whey", "casein",
+                "ghee", "kefir", "ricotta", "mozzarella", "cheddar", "parmesan", "feta", "cottage cheese", "cream cheese",
+                "sour cream", "buttermilk", "lactose", "ice cream", "custard", "paneer", "brie", "gouda", "mascarpone",
+                "queso", "tzatziki", "alfredo"));
+        EXEMPT.put("dairy", List.of("peanut butter", "almond butter", "cashew butter", "sunflower butter", "nut butter",
+                "apple butter", "cocoa butter", "almond milk", "oat milk", "soy milk", "coconut milk", "rice milk",
+                "cashew milk", "coconut cream", "dairy-free", "dairy free", "vegan cheese", "vegan butter"));
+        SYNONYMS.put("eggs", List.of("egg", "egg white", "egg yolk", "mayonnaise", "mayo", "meringue", "aioli",
+                "frittata", "omelette", "omelet", "quiche"));
+        EXEMPT.put("eggs", List.of("egg-free", "egg free", "vegan mayo", "vegan mayonnaise"));
+        SYNONYMS.put("peanuts", List.of("peanut", "peanut butter", "peanut oil", "satay", "groundnut"));
+        SYNONYMS.put("tree nuts", List.of("almond", "walnut", "cashew", "pecan", "pistachio", "hazelnut", "macadamia",
+                "brazil nut", "pine nut", "praline", "marzipan", "nutella", "almond butter", "almond milk", "almond flour",
+                "mixed nuts", "nuts"));
+        SYNONYMS.put("soy", List.of("soy", "soya", "tofu", "tempeh", "edamame", "miso", "soy sauce", "tamari",
+                "soybean", "natto", "shoyu", "soy milk"));
+        SYNONYMS.put("shellfish", List.of("shellfish", "shrimp", "prawn", "crab", "lobster", "crayfish", "crawfish",
+                "scallop", "clam", "mussel", "oyster", "squid", "calamari", "octopus", "langoustine"));
+        SYNONYMS.put("fish", List.of("fish", "salmon", "tuna", "cod", "tilapia", "halibut", "trout", "sardine",
+                "anchovy", "anchovies", "mackerel", "haddock", "sea bass", "snapper", "mahi mahi", "swordfish", "pollock",
+                "catfish", "fish sauce", "herring", "worcestershire"));
+        SYNONYMS.put("gluten", List.of("gluten", "wheat", "flour", "bread", "breadcrumb", "panko", "pasta", "spaghetti",
+                "penne", "macaroni", "noodle", "couscous", "barley", "rye", "bulgur", "farro", "semolina", "seitan",
+                "cracker", "bagel", "croissant", "pita", "naan", "orzo", "malt", "spelt", "muffin", "pancake", "waffle",
+                "tortilla", "wrap", "soy sauce", "english muffin", "sourdough", "bun"));
+        EXEMPT.put("gluten", List.of("gluten-free", "gluten free", "rice noodle", "rice flour", "almond flour",
+                "coconut flour", "corn tortilla", "chickpea pasta", "lettuce wrap", "rice paper", "tamari",
+                "gluten-free bread", "gluten-free pasta", "gluten free bread", "gluten free pasta", "buckwheat noodle"));
+    }
+
+    /** A compiled check for one set of allergies. */
+    public static final class Guard {
+        private static final Guard NONE = new Guard(FoodTermMatcher.of(List.of()), Map.of());
+
+        private final FoodTermMatcher matcher;
+        // Matched term to the allergy it belongs to; exempt phrases map to null
+        private final Map<String, String> allergyByTerm;
+
+        private Guard(FoodTermMatcher matcher, Map<String, String> allergyByTerm) {
+            this.matcher = matcher;
+            this.allergyByTerm = allergyByTerm;
+        }
+
+        public boolean isEmpty() {
+            return matcher.isEmpty();
+        }
+
+        public boolean matches(String text) {
+            return !find(text).isEmpty();
+        }
+
+        /** Offending terms in {@code text}, each labelled with its allergy, e.g. "prawn (shellfish)". */
+        public Set<String> find(String text) {
+            if (matcher.isEmpty() || text == null) return Set.of();
+            Set<String> found = null;
+            for (String term : matcher.findAll(text)) {
+                String allergy = allergyByTerm.get(term);
+                if (allergy == null) continue;
+                if (found == null) found = new LinkedHashSet<>();
+                found.add(term.equals(allergy) ? term : term + " (" + allergy + ")");
+            }
+            return found == null ? Set.of() : found;
+        }
+    }
+
+    private final Cache<List<String>, Guard> guards = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .build();
+
+    /**
+     * Guard for allergies as entered on the plan form. Known groups ("Shellfish", "Gluten/Wheat") expand to
+     * their synonyms; anything else ("strawberries") is matched as written.
+     */
+    public Guard guardFor(Collection<String> allergies) {
+        if (allergies == null || allergies.isEmpty()) return Guard.NONE;
+        SortedSet<String> key = new TreeSet<>();
+        for (String a : allergies) {
+            if (a == null) continue;
+            for (String part : a.split("/")) {
+                String n = part.trim().toLowerCase(Locale.ROOT);
+                if (n.equals("wheat")) n = "gluten";
+                if (!n.isEmpty()) key.add(n);
+            }
+        }
+        if (key.isEmpty()) return Guard.NONE;
+        return guards.get(List.copyOf(key), AllergenLexicon::compile);
+    }
+
+    private static Guard compile(List<String> allergies) {
+        Map<String, String> byTerm = new HashMap<>();
+        for (String allergy : allergies) {
+            List<String> synonyms = SYNONYMS.getOrDefault(allergy, List.of(allergy));
+            for (String s : synonyms) byTerm.putIfAbsent(s, allergy);
+        }
+        // Exempt phrases only shadow terms they would otherwise hide; an allergen's own term always wins
+        for (String allergy : allergies) {
+            for (String e : EXEMPT.getOrDefault(allergy, List.of())) {
+                if (!byTerm.containsKey(e)) byTerm.put(e, null);
+            }
+        }
+        Map<String, String> allergyByTerm = new HashMap<>();
+        byTerm.forEach((term, allergy) -> { if (allergy != null) allergyByTerm.put(term, allergy); });
+        return new Guard(FoodTermMatcher.of(byTerm.keySet()), allergyByTerm);
+    }
+}
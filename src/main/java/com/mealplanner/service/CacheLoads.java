@@ -0,0 +1,45 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Get-or-load for caches whose loaders block on I/O (JDBC, template rendering, disk). Caffeine runs a
+ * {@code get(key, loader)} loader inside the map's bin lock, and on Java 21 a virtual thread that blocks while
+ * holding it pins its carrier. Here the caller only publishes a placeholder future under the lock, loads with
+ * no lock held, then completes the future. Concurrent callers for the same key wait on that future (which
+ * unmounts a virtual thread rather than pinning it), and an invalidation during the load drops the placeholder,
+ * so a stale result is never cached.
+ */
+public final class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.asMap().putIfAbsent(key, pending);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                // Same exception the loading caller saw
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                if (e.getCause() instanceof Error err) throw err;
+                throw e;
+            }
+        }
+        try {
+            V value = loader.apply(key);
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.mealplanner.service;
 
 import com.mealplanner.model.User;
 import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.AdminFlagCache;
+import com.mealplanner.security.AppUserPrincipal;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
@@ -14,15 +16,25 @@ import java.time.LocalDateTime;
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final AdminFlagCache adminFlagCache;
 
-    public CustomOAuth2UserService(UserRepository userRepository) {
+    public CustomOAuth2UserService(UserRepository userRepository, AdminFlagCache adminFlagCache) {
         this.userRepository = userRepository;
+        this.adminFlagCache = adminFlagCache;
     }
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
         OAuth2User oAuth2User = super.loadUser(userRequest);
+        User user = recordLogin(oAuth2User);
 
+        // Resolve the local user once here; controllers read it from the principal instead of querying per request
+        adminFlagCache.put(user.getId(), user.isAdmin());
+        return new AppUserPrincipal(oAuth2User, user.getId(), user.getEmail(), user.getName(), user.isAdmin());
+    }
+
+    /** Finds or creates the local user for a provider login and records the login; shared with the OIDC path. */
+    User recordLogin(OAuth2User oAuth2User) {
         String email = oAuth2User.getAttribute("email");
         String name = oAuth2User.getAttribute("name");
         String googleId = oAuth2User.getAttribute("sub");
@@ -58,8 +70,6 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         if (name != null && (user.getName() == null || user.getName().isBlank())) {
             user.setName(name);
         }
-        userRepository.save(user);
-
-        return oAuth2User;
+        return userRepository.save(user);
     }
 }
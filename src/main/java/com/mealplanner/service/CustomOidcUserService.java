@@ -0,0 +1,34 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.User;
+import com.mealplanner.security.AdminFlagCache;
+import com.mealplanner.security.AppOidcUserPrincipal;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.stereotype.Service;
+
+/**
+ * User service for OpenID Connect logins (Google with the {@code openid} scope). Records the login the
+ * same way {@link CustomOAuth2UserService} does and returns a principal carrying the local user id and admin flag.
+ */
+@Service
+public class CustomOidcUserService extends OidcUserService {
+
+    private final CustomOAuth2UserService oAuth2UserService;
+    private final AdminFlagCache adminFlagCache;
+
+    public CustomOidcUserService(CustomOAuth2UserService oAuth2UserService, AdminFlagCache adminFlagCache) {
+        this.oAuth2UserService = oAuth2UserService;
+        this.adminFlagCache = adminFlagCache;
+    }
+
+    @Override
+    public OidcUser loadUser(OidcUserRequest userRequest) throws OAuth2AuthenticationException {
+        OidcUser oidcUser = super.loadUser(userRequest);
+        User user = oAuth2UserService.recordLogin(oidcUser);
+        adminFlagCache.put(user.getId(), user.isAdmin());
+        return new AppOidcUserPrincipal(oidcUser, user.getId(), user.getEmail(), user.getName(), user.isAdmin());
+    }
+}
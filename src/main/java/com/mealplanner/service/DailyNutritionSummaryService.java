@@ -0,0 +1,96 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.DailyNutritionSummary;
+import com.mealplanner.repository.DailyNutritionSummaryRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Reads and maintains daily_nutrition_summary. Writes join the caller's transaction,
+ * so a food log and its day total always commit together.
+ */
+@Service
+public class DailyNutritionSummaryService {
+
+    private final DailyNutritionSummaryRepository summaryRepository;
+    private final TransactionTemplate tx;
+
+    public DailyNutritionSummaryService(DailyNutritionSummaryRepository summaryRepository,
+                                        PlatformTransactionManager transactionManager) {
+        this.summaryRepository = summaryRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDelta(Long userId, LocalDate date, int calories, int protein, int carbs, int fat, int entries) {
+        if (userId == null || date == null) return;
+        summaryRepository.ensureRow(userId, date);
+        summaryRepository.addDelta(userId, date, calories, protein, carbs, fat, entries);
+    }
+
+    public Map<String, Integer> getDailyTotals(Long userId, LocalDate date) {
+        return toTotals(summaryRepository.findByUserIdAndLogDate(userId, date).orElse(null));
+    }
+
+    /** Totals for every day in [from, to], newest first; days without logs are zero. */
+    public Map<LocalDate, Map<String, Integer>> getDailyTotals(Long userId, LocalDate from, LocalDate to) {
+        Map<LocalDate, DailyNutritionSummary> rows = new HashMap<>();
+        for (DailyNutritionSummary s : summaryRepository.findByUserIdAndLogDateBetweenOrderByLogDateDesc(userId, from, to)) {
+            rows.put(s.getLogDate(), s);
+        }
+        Map<LocalDate, Map<String, Integer>> out = new LinkedHashMap<>();
+        for (LocalDate d = to; !d.isBefore(from); d = d.minusDays(1)) {
+            out.put(d, toTotals(rows.get(d)));
+        }
+        return out;
+    }
+
+    public long countActiveUsersOnDate(LocalDate date) {
+        return summaryRepository.countActiveUsersOnDate(date);
+    }
+
+    /** totalFoodLogs, daysActive and lastActive for a user, from the summary rows alone. */
+    public Map<String, Object> getActivitySummary(Long userId) {
+        Map<String, Object> out = new HashMap<>();
+        List<Object[]> rows = summaryRepository.summarizeUser(userId);
+        Object[] row = rows.isEmpty() ? new Object[]{0L, 0L, null} : rows.get(0);
+        out.put("totalFoodLogs", row[0] != null ? ((Number) row[0]).longValue() : 0L);
+        out.put("daysActive", row[1] != null ? ((Number) row[1]).longValue() : 0L);
+        out.put("lastActive", row[2]);
+        return out;
+    }
+
+    @Transactional
+    public void deleteForUser(Long userId) {
+        summaryRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Recomputes every row from food_logs in place, as a periodic reconciliation. Existing databases are
+     * backfilled by migration V8; this never runs at startup.
+     */
+    @Scheduled(cron = "${nutrition.summary.rebuild-cron:-}")
+    public int rebuild() {
+        Integer rows = tx.execute(status -> {
+            summaryRepository.insertMissingDays();
+            return summaryRepository.recomputeFromFoodLogs();
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private static Map<String, Integer> toTotals(DailyNutritionSummary s) {
+        Map<String, Integer> totals = new HashMap<>();
+        totals.put("calories", s != null ? s.getCalories() : 0);
+        totals.put("protein", s != null ? s.getProtein() : 0);
+        totals.put("carbs", s != null ? s.getCarbs() : 0);
+        totals.put("fat", s != null ? s.getFat() : 0);
+        return totals;
+    }
+}
@@ -0,0 +1,157 @@
+package com.mealplanner.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reference foods loaded once from {@code nutrition/foods.csv}, with a name matcher for finding foods
+ * in free text and a {@link MacroKdTree} for nearest-composition lookups. Immutable after construction.
+ */
+@Component
+public class FoodCatalog {
+
+    static final String RESOURCE = "nutrition/foods.csv";
+
+    /** One reference serving: {@code amount} {@code unit} carries the listed macros. */
+    public record Food(String name, List<String> aliases, String category, double amount, String unit,
+                       double calories, double protein, double carbs, double fat, Set<String> allergens) {}
+
+    private final List<Food> foods;
+    private final Map<String, Food> byTerm;
+    private final FoodTermMatcher nameMatcher;
+    private final MacroKdTree index;
+
+    public FoodCatalog() throws IOException {
+        this.foods = List.copyOf(load());
+        Map<String, Food> terms = new HashMap<>();
+        for (Food f : foods) {
+            terms.putIfAbsent(f.name().toLowerCase(Locale.ROOT), f);
+            for (String a : f.aliases()) terms.putIfAbsent(a, f);
+        }
+        this.byTerm = Map.copyOf(terms);
+        this.nameMatcher = FoodTermMatcher.of(terms.keySet());
+        this.index = new MacroKdTree(foods);
+    }
+
+    public List<Food> getFoods() {
+        return foods;
+    }
+
+    /** The catalog food named in {@code text}, preferring the longest name at the earliest position. */
+    public Optional<Food> find(String text) {
+        for (String term : nameMatcher.findAll(text)) {
+            Food f = byTerm.get(term);
+            if (f != null) return Optional.of(f);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * How many reference servings of {@code food} a free-text portion ("6 oz", "1 1/2 cups", "200g", "2 large")
+     * amounts to. Weights convert between g/oz/lb and volumes between cup/tbsp/tsp/ml; counts (each, large,
+     * slice, scoop...) compare directly. NaN when the portion has no quantity or its unit cannot be converted
+     * to the food's serving unit.
+     */
+    public static double servings(Food food, String portion) {
+        if (portion == null) return Double.NaN;
+        Matcher m = PORTION.matcher(portion.toLowerCase(Locale.ROOT));
+        if (!m.find()) return Double.NaN;
+        double qty = quantity(m.group(1));
+        if (m.group(2) != null) qty = (qty + quantity(m.group(2))) / 2;
+        Unit from = Unit.of(m.group(3));
+        Unit to = Unit.of(food.unit());
+        if (from == null || to == null || from.family != to.family || qty <= 0) return Double.NaN;
+        return qty * from.base / (food.amount() * to.base);
+    }
+
+    private static final String NUMBER = "(\\d+\\s+\\d+/\\d+|\\d+/\\d+|\\d+(?:\\.\\d+)?|\\.\\d+|[½¼¾⅓⅔])";
+    private static final Pattern PORTION = Pattern.compile(
+            NUMBER + "(?:\\s*(?:-|–|to)\\s*" + NUMBER + ")?\\s*([a-z]+)?");
+
+    /** Parses "2", "1.5", "3/4", "1 1/2" or a vulgar fraction character. */
+    static double quantity(String s) {
+        switch (s) {
+            case "½": return 0.5;
+            case "¼": return 0.25;
+            case "¾": return 0.75;
+            case "⅓": return 1.0 / 3;
+            case "⅔": return 2.0 / 3;
+            default: break;
+        }
+        String t = s.trim();
+        int space = t.indexOf(' ');
+        if (space > 0) return Double.parseDouble(t.substring(0, space)) + quantity(t.substring(space + 1).trim());
+        int slash = t.indexOf('/');
+        if (slash > 0) {
+            double den = Double.parseDouble(t.substring(slash + 1));
+            return den == 0 ? 0 : Double.parseDouble(t.substring(0, slash)) / den;
+        }
+        return Double.parseDouble(t);
+    }
+
+    private enum Family { MASS, VOLUME, COUNT }
+
+    // Base units: grams, millilitres, items
+    private record Unit(Family family, double base) {
+        private static final Map<String, Unit> UNITS = new HashMap<>();
+        static {
+            for (String u : List.of("g", "gram", "grams", "gr")) UNITS.put(u, new Unit(Family.MASS, 1));
+            for (String u : List.of("kg", "kilogram", "kilograms")) UNITS.put(u, new Unit(Family.MASS, 1000));
+            for (String u : List.of("oz", "ounce", "ounces")) UNITS.put(u, new Unit(Family.MASS, 28.35));
+            for (String u : List.of("lb", "lbs", "pound", "pounds")) UNITS.put(u, new Unit(Family.MASS, 453.6));
+            for (String u : List.of("cup", "cups")) UNITS.put(u, new Unit(Family.VOLUME, 240));
+            for (String u : List.of("tbsp", "tablespoon", "tablespoons", "tbs")) UNITS.put(u, new Unit(Family.VOLUME, 15));
+            for (String u : List.of("tsp", "teaspoon", "teaspoons")) UNITS.put(u, new Unit(Family.VOLUME, 5));
+            for (String u : List.of("ml", "milliliter", "milliliters", "millilitre", "millilitres")) UNITS.put(u, new Unit(Family.VOLUME, 1));
+            for (String u : List.of("", "each", "whole", "large", "medium", "small", "piece", "pieces", "slice", "slices",
+                    "scoop", "scoops", "egg", "eggs", "fillet", "fillets", "x")) UNITS.put(u, new Unit(Family.COUNT, 1));
+        }
+
+        static Unit of(String name) {
+            return UNITS.get(name == null ? "" : name.trim());
+        }
+    }
+
+    MacroKdTree index() {
+        return index;
+    }
+
+    private static List<Food> load() throws IOException {
+        List<Food> out = new ArrayList<>();
+        ClassPathResource resource = new ClassPathResource(RESOURCE);
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            boolean header = true;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                if (header) { header = false; continue; }
+                String[] c = line.split(",", -1);
+                if (c.length < 10) throw new IOException("Malformed food row: " + line);
+                double calories = Double.parseDouble(c[5]);
+                if (calories <= 0) continue;
+                out.add(new Food(c[0].trim(), split(c[1]), c[2].trim(), Double.parseDouble(c[3]), c[4].trim(),
+                        calories, Double.parseDouble(c[6]), Double.parseDouble(c[7]), Double.parseDouble(c[8]),
+                        Set.copyOf(split(c[9]))));
+            }
+        }
+        return out;
+    }
+
+    private static List<String> split(String cell) {
+        if (cell == null || cell.isBlank()) return List.of();
+        List<String> out = new ArrayList<>();
+        for (String s : cell.split("\\|")) {
+            String t = s.trim().toLowerCase(Locale.ROOT);
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+}
@@ -1,32 +1,132 @@
 package com.mealplanner.service;
 
+import com.mealplanner.model.AiFeature;
+import com.mealplanner.model.Day;
+import com.mealplanner.model.FoodItem;
 import com.mealplanner.model.FoodLog;
+import com.mealplanner.model.MacroTargets;
+import com.mealplanner.model.Meal;
+import com.mealplanner.model.MealPlan;
+import com.mealplanner.model.SavedMealPlan;
 import com.mealplanner.model.User;
 import com.mealplanner.repository.FoodLogRepository;
+import com.mealplanner.repository.SavedMealPlanRepository;
 import org.springframework.core.env.Environment;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
 
 @Service
 public class FoodLogService {
 
     private final FoodLogRepository foodLogRepository;
     private final Environment env;
-
-    public FoodLogService(FoodLogRepository foodLogRepository, Environment env) {
+    private final AiUsageService usageService;
+    private final DailyNutritionSummaryService summaryService;
+    private final SavedMealPlanRepository savedMealPlanRepository;
+    private final SavedMealPlanService savedMealPlanService;
+
+    public FoodLogService(FoodLogRepository foodLogRepository, Environment env, AiUsageService usageService,
+                          DailyNutritionSummaryService summaryService,
+                          SavedMealPlanRepository savedMealPlanRepository,
+                          SavedMealPlanService savedMealPlanService) {
         this.foodLogRepository = foodLogRepository;
         this.env = env;
+        this.usageService = usageService;
+        this.summaryService = summaryService;
+        this.savedMealPlanRepository = savedMealPlanRepository;
+        this.savedMealPlanService = savedMealPlanService;
     }
 
+    @Transactional
     public FoodLog addFoodLog(FoodLog foodLog) {
-        return foodLogRepository.save(foodLog);
+        FoodLog saved = foodLogRepository.save(foodLog);
+        summaryService.applyDelta(userIdOf(saved), saved.getLogDate(),
+                saved.getCalories(), saved.getProtein(), saved.getCarbs(), saved.getFat(), 1);
+        return saved;
+    }
+
+    /**
+     * Inserts all logs in one transaction. Ids come from the pooled sequence, so the inserts go out as
+     * JDBC batches, and each affected (user, day) summary row is updated once with the combined delta.
+     */
+    @Transactional
+    public List<FoodLog> addFoodLogs(List<FoodLog> foodLogs) {
+        List<FoodLog> saved = foodLogRepository.saveAll(foodLogs);
+        Map<Long, Map<LocalDate, int[]>> deltas = new HashMap<>();
+        for (FoodLog log : saved) {
+            int[] d = deltas.computeIfAbsent(userIdOf(log), k -> new HashMap<>())
+                    .computeIfAbsent(log.getLogDate(), k -> new int[5]);
+            d[0] += log.getCalories();
+            d[1] += log.getProtein();
+            d[2] += log.getCarbs();
+            d[3] += log.getFat();
+            d[4]++;
+        }
+        deltas.forEach((userId, byDate) -> byDate.forEach((date, d) ->
+                summaryService.applyDelta(userId, date, d[0], d[1], d[2], d[3], d[4])));
+        return saved;
+    }
+
+    /**
+     * Logs meals of one day of a saved plan as eaten today. {@code mealIndexes} selects meals by position
+     * within the day; null or empty logs the whole day.
+     *
+     * @throws IllegalArgumentException if the plan is not the user's or the day does not exist
+     */
+    @Transactional
+    public List<FoodLog> logPlanMeals(User user, Long planId, int dayNumber, Collection<Integer> mealIndexes, ZoneId zone) throws Exception {
+        SavedMealPlan saved = savedMealPlanRepository.findById(planId)
+                .filter(p -> p.getUser() != null && p.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new IllegalArgumentException("Plan not found"));
+        MealPlan plan = savedMealPlanService.loadMealPlan(saved);
+        Day day = plan.getDays() == null ? null : plan.getDays().stream()
+                .filter(d -> d.getDayNumber() == dayNumber).findFirst().orElse(null);
+        if (day == null || day.getMeals() == null) throw new IllegalArgumentException("Day not found");
+
+        LocalDate today = LocalDate.now(zone);
+        LocalDateTime now = LocalDateTime.now(zone);
+        List<FoodLog> logs = new ArrayList<>();
+        for (int i = 0; i < day.getMeals().size(); i++) {
+            if (mealIndexes != null && !mealIndexes.isEmpty() && !mealIndexes.contains(i)) continue;
+            Meal meal = day.getMeals().get(i);
+            MacroTargets m = meal.getMacros();
+            FoodLog log = new FoodLog();
+            log.setUser(user);
+            log.setMealName(meal.getName() != null ? meal.getName() : "Meal");
+            log.setFoodDescription(describe(meal));
+            log.setCalories(m != null ? m.getCalories() : 0);
+            log.setProtein(m != null ? m.getProtein() : 0);
+            log.setCarbs(m != null ? m.getCarbs() : 0);
+            log.setFat(m != null ? m.getFat() : 0);
+            log.setFromMealPlan(true);
+            log.setMealPlan(saved);
+            log.setLogDate(today);
+            log.setTimeLogged(now);
+            logs.add(log);
+        }
+        return logs.isEmpty() ? logs : addFoodLogs(logs);
+    }
+
+    // Same shape as the single-meal quick add on the plan page: "Recipe - portion item, portion item"
+    private static String describe(Meal meal) {
+        StringJoiner foods = new StringJoiner(", ");
+        if (meal.getFoods() != null) {
+            for (FoodItem f : meal.getFoods()) {
+                String text = ((f.getPortion() != null ? f.getPortion() + " " : "") + (f.getItem() != null ? f.getItem() : "")).trim();
+                if (!text.isEmpty()) foods.add(text);
+            }
+        }
+        String recipe = meal.getRecipe() != null ? meal.getRecipe().getName() : null;
+        String desc = (recipe != null && !recipe.isBlank() ? recipe + " - " : "") + foods;
+        return desc.isBlank() ? (meal.getName() != null ? meal.getName() : "Meal") : desc;
     }
 
     public List<FoodLog> getTodaysFoodLogs(User user) {
@@ -50,29 +150,45 @@ public class FoodLogService {
     }
 
     public Map<String, Integer> calculateDailyTotals(User user, LocalDate date) {
-        java.util.List<Object[]> rows = foodLogRepository.calculateDailyTotals(user, date);
-        Map<String, Integer> totals = new HashMap<>();
-        if (rows != null && !rows.isEmpty()) {
-            Object[] result = rows.get(0);
-            totals.put("calories", ((Number) result[0]).intValue());
-            totals.put("protein", ((Number) result[1]).intValue());
-            totals.put("carbs", ((Number) result[2]).intValue());
-            totals.put("fat", ((Number) result[3]).intValue());
-        } else {
-            totals.put("calories", 0);
-            totals.put("protein", 0);
-            totals.put("carbs", 0);
-            totals.put("fat", 0);
-        }
-        return totals;
+        return summaryService.getDailyTotals(user.getId(), date);
     }
 
+    /** Day totals for the last {@code days} days ending today, newest first. */
+    public Map<LocalDate, Map<String, Integer>> getRecentDailyTotals(User user, int days) {
+        LocalDate today = LocalDate.now();
+        return summaryService.getDailyTotals(user.getId(), today.minusDays(days - 1), today);
+    }
+
+    @Transactional
     public void deleteFoodLog(Long id) {
-        foodLogRepository.deleteById(id);
+        FoodLog log = foodLogRepository.findById(id).orElse(null);
+        if (log == null) return;
+        foodLogRepository.delete(log);
+        summaryService.applyDelta(userIdOf(log), log.getLogDate(),
+                -log.getCalories(), -log.getProtein(), -log.getCarbs(), -log.getFat(), -1);
     }
 
+    @Transactional
     public FoodLog updateFoodLog(FoodLog foodLog) {
-        return foodLogRepository.save(foodLog);
+        if (foodLog.getId() == null) return addFoodLog(foodLog);
+        FoodLog.LoadedState before = foodLog.getLoadedState();
+        if (before == null) {
+            // Built outside a persistence context: read the stored row to know what to take off
+            before = foodLogRepository.findById(foodLog.getId()).map(FoodLog::getLoadedState).orElse(null);
+        }
+        FoodLog saved = foodLogRepository.save(foodLog);
+        Long userId = userIdOf(saved);
+        if (before != null) {
+            summaryService.applyDelta(userId, before.logDate(),
+                    -before.calories(), -before.protein(), -before.carbs(), -before.fat(), -1);
+        }
+        summaryService.applyDelta(userId, saved.getLogDate(),
+                saved.getCalories(), saved.getProtein(), saved.getCarbs(), saved.getFat(), 1);
+        return saved;
+    }
+
+    private static Long userIdOf(FoodLog log) {
+        return log.getUser() != null ? log.getUser().getId() : null;
     }
 
     public FoodLog getFoodLogById(Long id) {
@@ -96,7 +212,7 @@ public class FoodLogService {
             if ("true".equalsIgnoreCase(mock)) {
                 return estimateMacrosMock(desc);
             }
-            String aiResponse = callClaudeAPI(desc);
+            String aiResponse = callClaudeAPI(desc, AiFeature.ESTIMATE);
             return parseMacroResponse(aiResponse);
         } catch (Exception e) {
             System.err.println("Error estimating macros: " + e.getMessage());
@@ -104,7 +220,7 @@ public class FoodLogService {
         }
     }
 
-    private String callClaudeAPI(String foodDescription) throws Exception {
+    private String callClaudeAPI(String foodDescription, AiFeature feature) throws Exception {
         String apiKey = env.getProperty("ai.api.key");
         // Support both ai.anthropic.url and ai.api.url keys
         String apiUrl = env.getProperty("ai.anthropic.url", env.getProperty("ai.api.url"));
@@ -139,7 +255,16 @@ public class FoodLogService {
         factory.setConnectTimeout(timeout);
         factory.setReadTimeout(timeout);
         RestTemplate restTemplate = new RestTemplate(factory);
-        ResponseEntity<String> response = restTemplate.postForEntity(apiUrl, request, String.class);
+        long started = System.nanoTime();
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.postForEntity(apiUrl, request, String.class);
+        } catch (Exception e) {
+            usageService.recordFailure(feature, "anthropic", model, (System.nanoTime() - started) / 1_000_000L);
+            throw e;
+        }
+        usageService.record(feature, "anthropic", usageService.parseAnthropicUsage(response.getBody(), model),
+                (System.nanoTime() - started) / 1_000_000L);
         return response.getBody();
     }
 
@@ -290,7 +415,7 @@ public class FoodLogService {
                 return randomMealMock(targetCalories);
             }
             String prompt = buildRandomMealPrompt(targetCalories);
-            String aiResponse = callClaudeAPI(prompt);
+            String aiResponse = callClaudeAPI(prompt, AiFeature.RANDOM_MEAL);
             return parseRandomMealResponse(aiResponse);
         } catch (Exception e) {
             System.err.println("Error generating random meal: " + e.getMessage());
@@ -356,7 +481,7 @@ public class FoodLogService {
         if (!needsAlt) return null;
         try {
             String prompt = buildHealthierAlternativePrompt(originalFood, calories, protein, carbs, fat);
-            String resp = callClaudeAPI(prompt);
+            String resp = callClaudeAPI(prompt, AiFeature.ALTERNATIVE);
             return extractContentFromAPIResponse(resp);
         } catch (Exception e) {
             return null;
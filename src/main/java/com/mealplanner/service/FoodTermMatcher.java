@@ -0,0 +1,63 @@
+package com.mealplanner.service;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Case-insensitive whole-word matcher for a fixed set of food terms, compiled once into a single
+ * alternation so checking a text is one regex scan regardless of how many terms there are.
+ * Simple plurals ("egg" matches "eggs", "peach" matches "peaches") are accepted.
+ */
+public final class FoodTermMatcher {
+
+    private static final FoodTermMatcher EMPTY = new FoodTermMatcher(Collections.emptySet(), null);
+
+    private final Set<String> terms;
+    private final Pattern pattern;
+
+    private FoodTermMatcher(Set<String> terms, Pattern pattern) {
+        this.terms = terms;
+        this.pattern = pattern;
+    }
+
+    public static FoodTermMatcher of(Collection<String> rawTerms) {
+        Set<String> terms = new TreeSet<>();
+        if (rawTerms != null) {
+            for (String t : rawTerms) {
+                if (t == null) continue;
+                String n = t.trim().toLowerCase(Locale.ROOT);
+                if (!n.isEmpty()) terms.add(n);
+            }
+        }
+        if (terms.isEmpty()) return EMPTY;
+        // Longest first so "peanut butter" wins over "peanut" at the same position
+        List<String> ordered = new ArrayList<>(terms);
+        ordered.sort(Comparator.comparingInt(String::length).reversed());
+        StringJoiner alternation = new StringJoiner("|", "(?<![\\p{L}])(", ")(?:e?s)?(?![\\p{L}])");
+        for (String t : ordered) alternation.add(Pattern.quote(t));
+        Pattern p = Pattern.compile(alternation.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return new FoodTermMatcher(Collections.unmodifiableSet(terms), p);
+    }
+
+    public boolean isEmpty() {
+        return pattern == null;
+    }
+
+    public Set<String> getTerms() {
+        return terms;
+    }
+
+    public boolean matches(String text) {
+        return pattern != null && text != null && pattern.matcher(text).find();
+    }
+
+    /** The configured terms that occur in {@code text}, in order of first occurrence. */
+    public Set<String> findAll(String text) {
+        if (pattern == null || text == null) return Collections.emptySet();
+        Set<String> found = new LinkedHashSet<>();
+        Matcher m = pattern.matcher(text);
+        while (m.find()) found.add(m.group(1).toLowerCase(Locale.ROOT));
+        return found;
+    }
+}
@@ -0,0 +1,80 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mealplanner.model.GroceryList;
+import com.mealplanner.model.MealPlan;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Single home for JSON mapping. Readers and writers are built once from the application's ObjectMapper
+ * so Jackson's per-type (de)serializer caches are shared instead of rebuilt per call site.
+ */
+@Component
+public class JsonCodec {
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper lenientMapper;
+
+    private final ObjectReader mealPlanReader;
+    private final ObjectWriter mealPlanWriter;
+    private final ObjectReader groceryListReader;
+    private final ObjectWriter groceryListWriter;
+
+    public JsonCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+        // Model output is not always strict JSON
+        this.lenientMapper = mapper.copy()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true)
+                .configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true)
+                .configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+
+        this.mealPlanReader = mapper.readerFor(MealPlan.class);
+        this.mealPlanWriter = mapper.writerFor(MealPlan.class);
+        this.groceryListReader = mapper.readerFor(GroceryList.class);
+        this.groceryListWriter = mapper.writerFor(GroceryList.class);
+    }
+
+    public MealPlan readMealPlan(String json) throws IOException {
+        return mealPlanReader.readValue(json);
+    }
+
+    public String writeMealPlan(MealPlan plan) throws IOException {
+        return mealPlanWriter.writeValueAsString(plan);
+    }
+
+    public GroceryList readGroceryList(String json) throws IOException {
+        return groceryListReader.readValue(json);
+    }
+
+    public String writeGroceryList(GroceryList list) throws IOException {
+        return groceryListWriter.writeValueAsString(list);
+    }
+
+    public JsonNode readTree(String json) throws IOException {
+        return mapper.readTree(json);
+    }
+
+    /** Reader for provider responses and model output; callers keep the returned reader in a field. */
+    public ObjectReader lenientReaderFor(Class<?> type) {
+        return lenientMapper.readerFor(type);
+    }
+
+    public JsonNode readTreeLenient(String json) throws IOException {
+        return lenientMapper.readTree(json);
+    }
+
+    /** Streaming generator for output too large to build as a tree; the caller closes it. */
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return mapper.getFactory().createGenerator(out);
+    }
+}
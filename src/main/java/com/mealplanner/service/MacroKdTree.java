@@ -0,0 +1,105 @@
+package com.mealplanner.service;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Three-dimensional k-d tree over foods keyed by grams of protein, carbs and fat per 100 kcal.
+ * Once a candidate is scaled to the calories of the food it replaces, calories are equal and the macro
+ * difference is proportional to the distance between these vectors, so ranking here is ranking by
+ * (calories, protein, carbs, fat) distance after portion scaling.
+ *
+ * <p>Nodes are stored implicitly in an array (median of each range at its midpoint), so a query touches
+ * no allocation beyond its result heap.
+ */
+final class MacroKdTree {
+
+    private static final int DIMS = 3;
+
+    private final FoodCatalog.Food[] foods;
+    private final double[][] points;
+
+    MacroKdTree(List<FoodCatalog.Food> source) {
+        int n = source.size();
+        this.foods = source.toArray(new FoodCatalog.Food[0]);
+        this.points = new double[n][];
+        for (int i = 0; i < n; i++) points[i] = vector(foods[i].calories(), foods[i].protein(), foods[i].carbs(), foods[i].fat());
+        build(0, n, 0);
+    }
+
+    /** Grams of protein, carbs and fat per 100 kcal; callers must pass positive calories. */
+    static double[] vector(double calories, double protein, double carbs, double fat) {
+        double s = 100.0 / calories;
+        return new double[]{protein * s, carbs * s, fat * s};
+    }
+
+    /** Up to {@code k} accepted foods nearest to {@code target}, closest first. */
+    List<FoodCatalog.Food> nearest(double[] target, int k, Predicate<FoodCatalog.Food> accept) {
+        if (k <= 0 || foods.length == 0) return List.of();
+        // Max-heap on distance, so the worst of the current best k is at the head
+        PriorityQueue<double[]> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(b[0], a[0]));
+        search(0, foods.length, 0, target, k, accept, best);
+        List<double[]> ordered = new ArrayList<>(best);
+        ordered.sort(Comparator.comparingDouble(a -> a[0]));
+        List<FoodCatalog.Food> out = new ArrayList<>(ordered.size());
+        for (double[] e : ordered) out.add(foods[(int) e[1]]);
+        return out;
+    }
+
+    private void search(int lo, int hi, int axis, double[] target, int k,
+                        Predicate<FoodCatalog.Food> accept, PriorityQueue<double[]> best) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        double[] p = points[mid];
+        if (best.size() < k || dist2(p, target) < best.peek()[0]) {
+            if (accept.test(foods[mid])) {
+                best.offer(new double[]{dist2(p, target), mid});
+                if (best.size() > k) best.poll();
+            }
+        }
+        double diff = target[axis] - p[axis];
+        int next = (axis + 1) % DIMS;
+        if (diff < 0) {
+            search(lo, mid, next, target, k, accept, best);
+            if (best.size() < k || diff * diff < best.peek()[0]) search(mid + 1, hi, next, target, k, accept, best);
+        } else {
+            search(mid + 1, hi, next, target, k, accept, best);
+            if (best.size() < k || diff * diff < best.peek()[0]) search(lo, mid, next, target, k, accept, best);
+        }
+    }
+
+    private void build(int lo, int hi, int axis) {
+        if (hi - lo <= 1) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        int next = (axis + 1) % DIMS;
+        build(lo, mid, next);
+        build(mid + 1, hi, next);
+    }
+
+    // Quickselect so that position k holds the median on this axis, smaller values before it and larger after
+    private void select(int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = points[(lo + hi) >>> 1][axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (points[i][axis] < pivot) i++;
+                while (points[j][axis] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double[] p = points[i]; points[i] = points[j]; points[j] = p;
+        FoodCatalog.Food f = foods[i]; foods[i] = foods[j]; foods[j] = f;
+    }
+
+    private static double dist2(double[] a, double[] b) {
+        double d0 = a[0] - b[0], d1 = a[1] - b[1], d2 = a[2] - b[2];
+        return d0 * d0 + d1 * d1 + d2 * d2;
+    }
+}
@@ -0,0 +1,115 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Recomputes a plan's macros from the reference food table and scores the plan against its targets.
+ * Runs entirely in memory (a name match and a unit conversion per food item), so it is done on every save.
+ *
+ * <p>A meal's computed macros count only when every food in it is recognised with a convertible portion;
+ * otherwise the model's claimed figures stand in for it. Meals whose claim disagrees with a full computation
+ * beyond the tolerances below are flagged.
+ */
+@Service
+public class MacroVerifier {
+
+    // A claim is flagged when calories are off by more than 15% (and 75 kcal), or protein by 20% (and 8 g)
+    private static final double CALORIE_TOLERANCE = 0.15;
+    private static final int CALORIE_FLOOR = 75;
+    private static final double PROTEIN_TOLERANCE = 0.20;
+    private static final int PROTEIN_FLOOR = 8;
+
+    /** One meal's claimed figures next to the food-table figures. */
+    public record MealCheck(int dayIndex, int mealIndex, String mealName, MacroTargets claimed, MacroTargets computed,
+                            boolean fullyRecognised, boolean flagged) {}
+
+    /**
+     * Average daily macros as verified, the 0-100 accuracy of those against the targets,
+     * and the meals whose claims disagree with the table.
+     */
+    public record Report(MacroTargets actualDaily, double accuracyScore, List<MealCheck> flagged) {
+        /** Flagged meals keyed "day-meal" by list index, for lookup from the results template. */
+        public Map<String, MealCheck> flaggedBySlot() {
+            Map<String, MealCheck> out = new HashMap<>();
+            for (MealCheck c : flagged) out.put(c.dayIndex() + "-" + c.mealIndex(), c);
+            return out;
+        }
+    }
+
+    private final FoodCatalog foodCatalog;
+
+    public MacroVerifier(FoodCatalog foodCatalog) {
+        this.foodCatalog = foodCatalog;
+    }
+
+    public Report verify(MealPlan plan, MacroTargets targets) {
+        List<MealCheck> flagged = new ArrayList<>();
+        long cal = 0, p = 0, c = 0, f = 0;
+        int days = 0;
+        if (plan != null && plan.getDays() != null) {
+            for (int d = 0; d < plan.getDays().size(); d++) {
+                List<Meal> meals = plan.getDays().get(d).getMeals();
+                if (meals == null || meals.isEmpty()) continue;
+                days++;
+                for (int m = 0; m < meals.size(); m++) {
+                    MealCheck check = check(d, m, meals.get(m));
+                    if (check.flagged()) flagged.add(check);
+                    MacroTargets used = check.fullyRecognised() ? check.computed() : check.claimed();
+                    if (used == null) continue;
+                    cal += used.getCalories(); p += used.getProtein(); c += used.getCarbs(); f += used.getFat();
+                }
+            }
+        }
+        if (days == 0) return new Report(null, 0, flagged);
+        MacroTargets actual = new MacroTargets((int) Math.round((double) cal / days), (int) Math.round((double) p / days),
+                (int) Math.round((double) c / days), (int) Math.round((double) f / days));
+        return new Report(actual, accuracy(actual, targets), List.copyOf(flagged));
+    }
+
+    private MealCheck check(int dayIndex, int mealIndex, Meal meal) {
+        double cal = 0, p = 0, c = 0, f = 0;
+        boolean all = meal.getFoods() != null && !meal.getFoods().isEmpty();
+        if (meal.getFoods() != null) {
+            for (FoodItem item : meal.getFoods()) {
+                Optional<FoodCatalog.Food> food = foodCatalog.find(item.getItem());
+                double servings = food.isPresent() ? FoodCatalog.servings(food.get(), item.getPortion()) : Double.NaN;
+                if (Double.isNaN(servings)) {
+                    all = false;
+                    continue;
+                }
+                FoodCatalog.Food ref = food.get();
+                cal += ref.calories() * servings; p += ref.protein() * servings;
+                c += ref.carbs() * servings; f += ref.fat() * servings;
+            }
+        }
+        MacroTargets computed = new MacroTargets((int) Math.round(cal), (int) Math.round(p), (int) Math.round(c), (int) Math.round(f));
+        MacroTargets claimed = meal.getMacros();
+        boolean flagged = all && claimed != null && (
+                off(claimed.getCalories(), computed.getCalories(), CALORIE_TOLERANCE, CALORIE_FLOOR)
+                        || off(claimed.getProtein(), computed.getProtein(), PROTEIN_TOLERANCE, PROTEIN_FLOOR));
+        return new MealCheck(dayIndex, mealIndex, meal.getName(), claimed, computed, all, flagged);
+    }
+
+    static boolean off(int claimed, int computed, double tolerance, int floor) {
+        int diff = Math.abs(claimed - computed);
+        return diff > floor && diff > tolerance * Math.max(claimed, computed);
+    }
+
+    // 100 minus the mean absolute percentage error over calories, protein, carbs and fat; 0 at worst
+    static double accuracy(MacroTargets actual, MacroTargets targets) {
+        if (targets == null) return 0;
+        double error = (pctError(actual.getCalories(), targets.getCalories())
+                + pctError(actual.getProtein(), targets.getProtein())
+                + pctError(actual.getCarbs(), targets.getCarbs())
+                + pctError(actual.getFat(), targets.getFat())) / 4;
+        return Math.round(Math.max(0, 100 - error) * 10) / 10.0;
+    }
+
+    private static double pctError(int actual, int target) {
+        if (target <= 0) return actual <= 0 ? 0 : 100;
+        return Math.min(100, Math.abs(actual - target) * 100.0 / target);
+    }
+}
@@ -3,8 +3,7 @@ package com.mealplanner.service;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.mealplanner.model.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
@@ -22,7 +21,10 @@ import java.util.regex.Pattern;
 public class MealPlanService {
 
     private final WebClient webClient;
-    private final ObjectMapper mapper;
+    private final JsonCodec jsonCodec;
+    private final ObjectReader mealPlanDtoReader;
+    private final ObjectReader anthropicResponseReader;
+    private final ObjectReader openAIResponseReader;
     private final String provider; // anthropic | openai
     private final String anthropicUrl;
     private final String openaiUrl;
@@ -32,6 +34,7 @@ public class MealPlanService {
     private final boolean repairEnabled;
     private final int maxTokens;
     private final double temperature;
+    private final AiUsageService usageService;
 
     @Value("${ai.anthropic.model:claude-3-5-sonnet-latest}")
     private String anthropicModel;
@@ -39,6 +42,16 @@ public class MealPlanService {
     @Value("${ai.openai.model:gpt-4o}")
     private String openaiModel;
 
+    // Speculative calls (prefetched swap alternatives) use a cheaper model and a tighter output cap
+    @Value("${ai.prefetch.anthropic-model:claude-3-5-haiku-20241022}")
+    private String prefetchAnthropicModel;
+
+    @Value("${ai.prefetch.openai-model:gpt-4o-mini}")
+    private String prefetchOpenaiModel;
+
+    @Value("${ai.prefetch.max-tokens:1500}")
+    private int prefetchMaxTokens;
+
     public MealPlanService(WebClient.Builder builder,
                            @Value("${ai.provider:anthropic}") String provider,
                            @Value("${ai.anthropic.url:https://api.anthropic.com/v1/messages}") String anthropicUrl,
@@ -48,7 +61,9 @@ public class MealPlanService {
                            @Value("${ai.mock:false}") boolean mockMode,
                            @Value("${ai.repair.enabled:true}") boolean repairEnabled,
                            @Value("${ai.max_tokens:6000}") int maxTokens,
-                           @Value("${ai.temperature:0.2}") double temperature) {
+                           @Value("${ai.temperature:0.2}") double temperature,
+                           AiUsageService usageService,
+                           JsonCodec jsonCodec) {
         this.provider = provider;
         this.anthropicUrl = anthropicUrl;
         this.openaiUrl = openaiUrl;
@@ -58,13 +73,13 @@ public class MealPlanService {
         this.repairEnabled = repairEnabled;
         this.maxTokens = maxTokens;
         this.temperature = temperature;
+        this.usageService = usageService;
         this.webClient = builder.build();
 
-        this.mapper = new ObjectMapper()
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_SINGLE_QUOTES, true)
-                .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true)
-                .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_COMMENTS, true);
+        this.jsonCodec = jsonCodec;
+        this.mealPlanDtoReader = jsonCodec.lenientReaderFor(MealPlanDTO.class);
+        this.anthropicResponseReader = jsonCodec.lenientReaderFor(AnthropicResponse.class);
+        this.openAIResponseReader = jsonCodec.lenientReaderFor(OpenAIResponse.class);
     }
 
     public MealPlan generateMealPlan(UserProfile profile, MacroTargets targets) throws RuntimeException {
@@ -72,7 +87,7 @@ public class MealPlanService {
             return generateMockMealPlan(profile, targets);
         }
         String prompt = buildPromptV2(profile, targets);
-        String raw = callAI(prompt);
+        String raw = callAI(prompt, AiFeature.PLAN);
         try {
             String json = sanitizeToJson(raw);
             MealPlan plan = parseAIResponse(json, targets);
@@ -94,7 +109,7 @@ public class MealPlanService {
         }
         String base = buildPromptV2(profile, targets);
         String prompt = (extraPrompt != null && !extraPrompt.isBlank()) ? (base + "\n\n" + extraPrompt) : base;
-        String raw = callAI(prompt);
+        String raw = callAI(prompt, AiFeature.PLAN);
         try {
             String json = sanitizeToJson(raw);
             MealPlan plan = parseAIResponse(json, targets);
@@ -152,20 +167,25 @@ public class MealPlanService {
     }
 
     // --- AI Integration ---
-    private String callAI(String prompt) {
+    private String callAI(String prompt, AiFeature feature) {
+        return callAI(prompt, feature, false);
+    }
+
+    private String callAI(String prompt, AiFeature feature, boolean speculative) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("AI API key is not configured. Set ai.api.key or AI_API_KEY env var.");
         }
+        int tokens = speculative ? prefetchMaxTokens : maxTokens;
         if ("openai".equalsIgnoreCase(provider)) {
-            return callOpenAI(prompt);
+            return callOpenAI(prompt, feature, speculative ? prefetchOpenaiModel : openaiModel, tokens);
         }
-        return callAnthropic(prompt);
+        return callAnthropic(prompt, feature, speculative ? prefetchAnthropicModel : anthropicModel, tokens);
     }
 
-    private String callAnthropic(String prompt) {
+    private String callAnthropic(String prompt, AiFeature feature, String preferredModel, int maxTokens) {
         List<String> candidates = new ArrayList<>();
-        if (anthropicModel != null && !anthropicModel.isBlank()) {
-            candidates.add(anthropicModel);
+        if (preferredModel != null && !preferredModel.isBlank()) {
+            candidates.add(preferredModel);
         }
         // Fallbacks (broadly available)
         candidates.add("claude-3-5-haiku-20241022");
@@ -176,7 +196,7 @@ public class MealPlanService {
         for (String model : candidates) {
             if (!tried.add(model)) continue;
             try {
-                return callAnthropicWithModel(prompt, model);
+                return callAnthropicWithModel(prompt, model, feature, maxTokens);
             } catch (RuntimeException e) {
                 last = e;
                 String msg = e.getMessage() == null ? "" : e.getMessage().toLowerCase(Locale.ROOT);
@@ -192,7 +212,7 @@ public class MealPlanService {
         throw new RuntimeException("Anthropic call failed: no models attempted");
     }
 
-    private String callAnthropicWithModel(String prompt, String model) {
+    private String callAnthropicWithModel(String prompt, String model, AiFeature feature, int maxTokens) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("model", model);
         body.put("max_tokens", maxTokens);
@@ -205,53 +225,82 @@ public class MealPlanService {
         messages.add(userMsg);
         body.put("messages", messages);
 
-        return webClient.post()
-                .uri(anthropicUrl)
-                .header("x-api-key", apiKey)
-                .header("anthropic-version", "2023-06-01")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .exchangeToMono(resp -> {
-                    if (resp.statusCode().isError()) {
-                        return resp.bodyToMono(String.class).defaultIfEmpty("").flatMap(errBody ->
-                                Mono.error(new RuntimeException("Failed to call Anthropic: " + resp.statusCode() + (errBody.isBlank() ? "" : (" - " + errBody)) )));
-                    }
-                    return resp.bodyToMono(String.class);
-                })
-                .timeout(timeout)
-                .map(this::extractAnthropicText)
-                .block();
+        long started = System.nanoTime();
+        String raw;
+        try {
+            raw = webClient.post()
+                    .uri(anthropicUrl)
+                    .header("x-api-key", apiKey)
+                    .header("anthropic-version", "2023-06-01")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .exchangeToMono(resp -> {
+                        if (resp.statusCode().isError()) {
+                            return resp.bodyToMono(String.class).defaultIfEmpty("").flatMap(errBody ->
+                                    Mono.error(new RuntimeException("Failed to call Anthropic: " + resp.statusCode() + (errBody.isBlank() ? "" : (" - " + errBody)) )));
+                        }
+                        return resp.bodyToMono(String.class);
+                    })
+                    .timeout(timeout)
+                    .block();
+        } catch (RuntimeException e) {
+            usageService.recordFailure(feature, "anthropic", model, elapsedMs(started));
+            throw e;
+        }
+        return extractAnthropicText(raw, model, feature, elapsedMs(started));
     }
 
-    private String callOpenAI(String prompt) {
+    private String callOpenAI(String prompt, AiFeature feature, String model, int maxTokens) {
         Map<String, Object> body = new LinkedHashMap<>();
-        body.put("model", openaiModel);
+        body.put("model", model);
         List<Map<String, String>> messages = new ArrayList<>();
         messages.add(Map.of("role", "user", "content", prompt));
         body.put("messages", messages);
         body.put("temperature", temperature);
         body.put("max_tokens", maxTokens);
 
-        return webClient.post()
-                .uri(openaiUrl)
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .exchangeToMono(resp -> {
-                    if (resp.statusCode().isError()) {
-                        return resp.bodyToMono(String.class).defaultIfEmpty("").flatMap(errBody ->
-                                Mono.error(new RuntimeException("Failed to call OpenAI: " + resp.statusCode() + (errBody.isBlank() ? "" : (" - " + errBody)) )));
-                    }
-                    return resp.bodyToMono(String.class);
-                })
-                .timeout(timeout)
-                .map(this::extractOpenAIText)
-                .block();
+        long started = System.nanoTime();
+        String raw;
+        try {
+            raw = webClient.post()
+                    .uri(openaiUrl)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .exchangeToMono(resp -> {
+                        if (resp.statusCode().isError()) {
+                            return resp.bodyToMono(String.class).defaultIfEmpty("").flatMap(errBody ->
+                                    Mono.error(new RuntimeException("Failed to call OpenAI: " + resp.statusCode() + (errBody.isBlank() ? "" : (" - " + errBody)) )));
+                        }
+                        return resp.bodyToMono(String.class);
+                    })
+                    .timeout(timeout)
+                    .block();
+        } catch (RuntimeException e) {
+            usageService.recordFailure(feature, "openai", model, elapsedMs(started));
+            throw e;
+        }
+        return extractOpenAIText(raw, model, feature, elapsedMs(started));
     }
 
-    private String extractAnthropicText(String raw) {
+    private static long elapsedMs(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000L;
+    }
+
+    private String extractAnthropicText(String raw, String requestedModel, AiFeature feature, long latencyMs) {
+        AnthropicResponse r;
+        try {
+            r = anthropicResponseReader.readValue(raw);
+        } catch (Exception e) {
+            usageService.record(feature, "anthropic", AiUsageService.Usage.empty(requestedModel), latencyMs);
+            return raw;
+        }
+        AnthropicUsage u = r.usage != null ? r.usage : new AnthropicUsage();
+        usageService.record(feature, "anthropic", new AiUsageService.Usage(
+                r.model != null ? r.model : requestedModel,
+                u.inputTokens, u.outputTokens, u.cacheCreationInputTokens, u.cacheReadInputTokens,
+                r.stopReason), latencyMs);
         try {
-            AnthropicResponse r = mapper.readValue(raw, AnthropicResponse.class);
             if (r.content != null && !r.content.isEmpty()) {
                 StringBuilder sb = new StringBuilder();
                 for (AnthropicContent c : r.content) {
@@ -263,9 +312,23 @@ public class MealPlanService {
         return raw;
     }
 
-    private String extractOpenAIText(String raw) {
+    private String extractOpenAIText(String raw, String requestedModel, AiFeature feature, long latencyMs) {
+        OpenAIResponse r;
+        try {
+            r = openAIResponseReader.readValue(raw);
+        } catch (Exception e) {
+            usageService.record(feature, "openai", AiUsageService.Usage.empty(requestedModel), latencyMs);
+            return raw;
+        }
+        // OpenAI reports cached prompt tokens as a subset of prompt_tokens
+        OpenAIUsage u = r.usage != null ? r.usage : new OpenAIUsage();
+        int cached = u.promptTokensDetails != null ? u.promptTokensDetails.cachedTokens : 0;
+        String finishReason = (r.choices != null && !r.choices.isEmpty()) ? r.choices.get(0).finishReason : null;
+        usageService.record(feature, "openai", new AiUsageService.Usage(
+                r.model != null ? r.model : requestedModel,
+                Math.max(0, u.promptTokens - cached), u.completionTokens, 0, cached,
+                finishReason), latencyMs);
         try {
-            OpenAIResponse r = mapper.readValue(raw, OpenAIResponse.class);
             if (r.choices != null && !r.choices.isEmpty() && r.choices.get(0).message != null) {
                 return Optional.ofNullable(r.choices.get(0).message.content).orElse(raw);
             }
@@ -277,7 +340,7 @@ public class MealPlanService {
     // using the configured provider/models. Returns the raw text content from the model.
     public String completeText(String prompt) {
         try {
-            return callAI(prompt);
+            return callAI(prompt, AiFeature.OTHER);
         } catch (RuntimeException e) {
             throw e;
         }
@@ -288,7 +351,7 @@ public class MealPlanService {
         String repairPrompt = "You returned content that was not valid JSON for the required schema.\n" +
                 "Fix it now by outputting ONLY a valid JSON object matching the schema. No prose. No code fences.\n\n" +
                 schema + "\n\nHere is the content to fix:\n" + badOutput;
-        String response = callAI(repairPrompt);
+        String response = callAI(repairPrompt, AiFeature.PLAN);
         return response;
     }
 
@@ -367,7 +430,39 @@ public class MealPlanService {
 
     // --- Single-meal generation for Swap ---
     public Meal generateReplacementMeal(MacroTargets target, String avoidSimilarTo) {
-        String avoid = (avoidSimilarTo == null || avoidSimilarTo.isBlank()) ? "" : ("Avoid making anything similar to: " + avoidSimilarTo + "\n");
+        return generateReplacementMeal(target, avoidSimilarTo, List.of(), false);
+    }
+
+    /** As {@link #generateReplacementMeal(MacroTargets, String)}, with ingredients the meal must not contain. */
+    public Meal generateReplacementMeal(MacroTargets target, String avoidSimilarTo, Collection<String> excludedFoods) {
+        return generateReplacementMeal(target, avoidSimilarTo, excludedFoods, false);
+    }
+
+    /**
+     * Generates a swap alternative ahead of demand on the cheaper prefetch model. Usage is attributed to
+     * {@link AiFeature#SWAP_PREFETCH} so speculative spend shows separately from swaps users waited for.
+     */
+    public Meal generateSpeculativeMeal(MacroTargets target, String avoidSimilarTo, Collection<String> excludedFoods) {
+        return generateReplacementMeal(target, avoidSimilarTo, excludedFoods, true);
+    }
+
+    /** True when provider calls can actually be made (a key is configured and mock mode is off). */
+    public boolean isAiAvailable() {
+        return !mockMode && apiKey != null && !apiKey.isBlank();
+    }
+
+    /** Upper bound on the cost of one speculative call: a generous prompt plus the full output allowance. */
+    public double speculativeCallCeilingUsd() {
+        String model = "openai".equalsIgnoreCase(provider) ? prefetchOpenaiModel : prefetchAnthropicModel;
+        return AiUsageService.costOf(new AiUsageService.Usage(model, 1000, prefetchMaxTokens, 0, 0, null));
+    }
+
+    private Meal generateReplacementMeal(MacroTargets target, String avoidSimilarTo, Collection<String> excludedFoods,
+                                         boolean speculative) {
+        String avoid = (avoidSimilarTo == null || avoidSimilarTo.isBlank()) ? "" : ("Avoid making anything similar to: " + avoidSimilarTo + "\n- ");
+        if (excludedFoods != null && !excludedFoods.isEmpty()) {
+            avoid += "Must NOT contain any of these, including in sauces, oils and garnishes: " + String.join(", ", excludedFoods) + "\n- ";
+        }
         String prompt = String.format("""
                 You are a professional fitness nutritionist and chef. Generate ONE different meal that fits these macros closely.
 
@@ -391,14 +486,14 @@ public class MealPlanService {
                 """,
                 target.getCalories(), target.getProtein(), target.getCarbs(), target.getFat(), avoid);
 
-        String raw = callAI(prompt);
+        String raw = callAI(prompt, speculative ? AiFeature.SWAP_PREFETCH : AiFeature.SWAP, speculative);
         String json = sanitizeToJson(raw);
         return parseSingleMeal(json);
     }
 
     private Meal parseSingleMeal(String json) {
         try {
-            com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(json);
+            com.fasterxml.jackson.databind.JsonNode root = jsonCodec.readTreeLenient(json);
             Meal m = new Meal();
             m.setName(asText(root.get("name"), List.of("name"), "Meal"));
             // macros
@@ -566,12 +661,12 @@ public class MealPlanService {
     // --- Parsing ---
     private MealPlan parseAIResponse(String json, MacroTargets targets) {
         try {
-            MealPlanDTO dto = mapper.readValue(json, MealPlanDTO.class);
+            MealPlanDTO dto = mealPlanDtoReader.readValue(json);
             return toDomain(dto, targets);
         } catch (Exception e1) {
             try {
                 // Lenient tree parsing as fallback
-                com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(json);
+                com.fasterxml.jackson.databind.JsonNode root = jsonCodec.readTreeLenient(json);
                 return parseLenient(root, targets);
             } catch (Exception e2) {
                 String snippet = json == null ? "" : json.substring(0, Math.min(300, json.length()));
@@ -1108,7 +1203,18 @@ public class MealPlanService {
     // --- API response DTOs ---
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class AnthropicResponse {
+        public String model;
         public List<AnthropicContent> content;
+        @JsonProperty("stop_reason") public String stopReason;
+        public AnthropicUsage usage;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class AnthropicUsage {
+        @JsonProperty("input_tokens") public int inputTokens;
+        @JsonProperty("output_tokens") public int outputTokens;
+        @JsonProperty("cache_creation_input_tokens") public int cacheCreationInputTokens;
+        @JsonProperty("cache_read_input_tokens") public int cacheReadInputTokens;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -1119,12 +1225,27 @@ public class MealPlanService {
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class OpenAIResponse {
+        public String model;
         public List<OpenAIChoice> choices;
+        public OpenAIUsage usage;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class OpenAIChoice {
         public OpenAIMessage message;
+        @JsonProperty("finish_reason") public String finishReason;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class OpenAIUsage {
+        @JsonProperty("prompt_tokens") public int promptTokens;
+        @JsonProperty("completion_tokens") public int completionTokens;
+        @JsonProperty("prompt_tokens_details") public OpenAIPromptDetails promptTokensDetails;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class OpenAIPromptDetails {
+        @JsonProperty("cached_tokens") public int cachedTokens;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -0,0 +1,192 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks a generated plan against the user's allergies and avoided foods, and regenerates only the meals that
+ * break them. Allergies and avoids are otherwise only requested in prompt text; this is the local check that
+ * catches a model slip before the plan is shown or saved.
+ *
+ * <p>Every food item, recipe name, ingredient and instruction line is scanned with two precompiled matchers:
+ * the allergen guard from {@link AllergenLexicon} and the avoid matcher of the user's {@link PreferenceProfile}.
+ * Offending meals are replaced concurrently in one {@link ProviderCalls.Scope}, each replacement is checked again,
+ * and a meal that still fails after the allowed attempts, or within {@code plan.repair.timeout-ms}, is left in place
+ * and reported.
+ */
+@Service
+public class MealPlanValidator {
+
+    /** A meal that contains something the user must not get; positions are indexes into the plan's lists. */
+    public record Violation(int dayIndex, int mealIndex, String mealName, Set<String> found) {}
+
+    /** How many meals were replaced, and what could not be fixed. */
+    public record Result(int replaced, List<Violation> unresolved) {}
+
+    private final MealPlanService mealPlanService;
+    private final AllergenLexicon allergenLexicon;
+    private final ProviderCalls providerCalls;
+    private final int maxAttempts;
+    private final Duration timeout;
+
+    public MealPlanValidator(MealPlanService mealPlanService,
+                             AllergenLexicon allergenLexicon,
+                             ProviderCalls providerCalls,
+                             @Value("${plan.repair.max-attempts:2}") int maxAttempts,
+                             @Value("${plan.repair.timeout-ms:180000}") long timeoutMs) {
+        this.mealPlanService = mealPlanService;
+        this.allergenLexicon = allergenLexicon;
+        this.providerCalls = providerCalls;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    public List<Violation> scan(MealPlan plan, Collection<String> allergies, PreferenceProfile preferences) {
+        AllergenLexicon.Guard guard = allergenLexicon.guardFor(allergies);
+        FoodTermMatcher avoid = preferences.getAvoidMatcher();
+        List<Violation> out = new ArrayList<>();
+        if (plan == null || plan.getDays() == null || (guard.isEmpty() && avoid.isEmpty())) return out;
+        for (int d = 0; d < plan.getDays().size(); d++) {
+            List<Meal> meals = plan.getDays().get(d).getMeals();
+            if (meals == null) continue;
+            for (int m = 0; m < meals.size(); m++) {
+                Set<String> found = offending(meals.get(m), guard, avoid);
+                if (!found.isEmpty()) out.add(new Violation(d, m, meals.get(m).getName(), found));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Replaces every offending meal in {@code plan} in place and adjusts the affected day totals.
+     * Blocks until all replacements have finished or the repair timeout has passed.
+     */
+    public Result enforce(MealPlan plan, Collection<String> allergies, PreferenceProfile preferences) {
+        List<Violation> violations = scan(plan, allergies, preferences);
+        if (violations.isEmpty()) return new Result(0, List.of());
+        if (!mealPlanService.isAiAvailable()) return new Result(0, violations);
+
+        AllergenLexicon.Guard guard = allergenLexicon.guardFor(allergies);
+        FoodTermMatcher avoid = preferences.getAvoidMatcher();
+        List<String> exclusions = new ArrayList<>();
+        if (allergies != null) exclusions.addAll(allergies);
+        exclusions.addAll(preferences.getAvoidedFoods());
+
+        Map<Violation, Future<Meal>> pending = new LinkedHashMap<>();
+        try (ProviderCalls.Scope scope = providerCalls.openScope()) {
+            for (Violation v : violations) {
+                Day day = plan.getDays().get(v.dayIndex());
+                Meal original = day.getMeals().get(v.mealIndex());
+                MacroTargets target = original.getMacros() != null ? original.getMacros() : shareOf(plan, day);
+                pending.put(v, scope.fork(() -> replacement(original, target, v, exclusions, guard, avoid)));
+            }
+            scope.join(timeout);
+        } catch (InterruptedException ie) {
+            // Closing the scope has cancelled the outstanding repairs
+            Thread.currentThread().interrupt();
+        }
+
+        int replaced = 0;
+        List<Violation> unresolved = new ArrayList<>();
+        for (Map.Entry<Violation, Future<Meal>> e : pending.entrySet()) {
+            Violation v = e.getKey();
+            Meal meal = null;
+            Future<Meal> f = e.getValue();
+            if (f.state() == Future.State.SUCCESS) {
+                meal = f.resultNow();
+            } else if (f.state() == Future.State.FAILED) {
+                System.err.println("Meal repair failed for " + v.mealName() + ": " + f.exceptionNow().getMessage());
+            } else {
+                System.err.println("Meal repair for " + v.mealName() + " did not finish within " + timeout.toSeconds() + "s");
+            }
+            if (meal == null) {
+                unresolved.add(v);
+                continue;
+            }
+            Day day = plan.getDays().get(v.dayIndex());
+            Meal original = day.getMeals().get(v.mealIndex());
+            if (meal.getName() == null || meal.getName().isBlank()) meal.setName(original.getName());
+            adjustDailyTotal(day, original.getMacros(), meal.getMacros());
+            day.getMeals().set(v.mealIndex(), meal);
+            replaced++;
+        }
+        return new Result(replaced, unresolved);
+    }
+
+    /**
+     * A replacement for a single meal the user asked to swap, generated under the plan's allergies and avoided
+     * foods and checked like a repair. Null when no attempt came back clean.
+     */
+    public Meal swap(MacroTargets target, String avoidSimilarTo, Collection<String> allergies, PreferenceProfile preferences) {
+        List<String> exclusions = new ArrayList<>();
+        if (allergies != null) exclusions.addAll(allergies);
+        exclusions.addAll(preferences.getAvoidedFoods());
+        Meal meal = firstClean(target, avoidSimilarTo, exclusions, allergenLexicon.guardFor(allergies), preferences.getAvoidMatcher());
+        if (meal == null) System.err.println("Meal swap gave up after " + maxAttempts + " attempts");
+        return meal;
+    }
+
+    private Meal replacement(Meal original, MacroTargets target, Violation v, List<String> exclusions,
+                             AllergenLexicon.Guard guard, FoodTermMatcher avoid) {
+        String similar = original.getRecipe() != null && original.getRecipe().getName() != null
+                ? original.getRecipe().getName() : original.getName();
+        Meal meal = firstClean(target, similar, exclusions, guard, avoid);
+        if (meal == null) {
+            System.err.println("Meal repair gave up on " + v.mealName() + " after " + maxAttempts + " attempts: " + v.found());
+        }
+        return meal;
+    }
+
+    private Meal firstClean(MacroTargets target, String similar, List<String> exclusions,
+                            AllergenLexicon.Guard guard, FoodTermMatcher avoid) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Meal meal = mealPlanService.generateReplacementMeal(target, similar, exclusions);
+            if (meal != null && offending(meal, guard, avoid).isEmpty()) return meal;
+        }
+        return null;
+    }
+
+    // Allergens and avoided foods named anywhere in the meal; also screens prefetched swap alternatives
+    static Set<String> offending(Meal meal, AllergenLexicon.Guard guard, FoodTermMatcher avoid) {
+        Set<String> found = new LinkedHashSet<>();
+        if (meal.getFoods() != null) {
+            for (FoodItem f : meal.getFoods()) collect(f.getItem(), guard, avoid, found);
+        }
+        Recipe r = meal.getRecipe();
+        if (r != null) {
+            collect(r.getName(), guard, avoid, found);
+            if (r.getIngredients() != null) for (String line : r.getIngredients()) collect(line, guard, avoid, found);
+            if (r.getInstructions() != null) for (String line : r.getInstructions()) collect(line, guard, avoid, found);
+        }
+        return found;
+    }
+
+    private static void collect(String text, AllergenLexicon.Guard guard, FoodTermMatcher avoid, Set<String> into) {
+        if (text == null || text.isEmpty()) return;
+        into.addAll(guard.find(text));
+        for (String term : avoid.findAll(text)) into.add(term + " (avoided)");
+    }
+
+    // An even split of the day's targets, for a meal the model returned without macros
+    private static MacroTargets shareOf(MealPlan plan, Day day) {
+        MacroTargets t = plan.getDailyTargets() != null ? plan.getDailyTargets() : day.getDailyTotal();
+        int n = Math.max(1, day.getMeals().size());
+        if (t == null) return new MacroTargets(0, 0, 0, 0);
+        return new MacroTargets(t.getCalories() / n, t.getProtein() / n, t.getCarbs() / n, t.getFat() / n);
+    }
+
+    private static void adjustDailyTotal(Day day, MacroTargets before, MacroTargets after) {
+        MacroTargets total = day.getDailyTotal();
+        if (total == null || before == null || after == null) return;
+        day.setDailyTotal(new MacroTargets(
+                total.getCalories() - before.getCalories() + after.getCalories(),
+                total.getProtein() - before.getProtein() + after.getProtein(),
+                total.getCarbs() - before.getCarbs() + after.getCarbs(),
+                total.getFat() - before.getFat() + after.getFat()));
+    }
+}
@@ -0,0 +1,230 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mealplanner.model.Day;
+import com.mealplanner.model.MacroTargets;
+import com.mealplanner.model.Meal;
+import com.mealplanner.model.MealPlan;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-generates swap alternatives for each meal slot of a freshly saved plan, so a "Swap Meal" click can be
+ * answered from memory instead of waiting on the provider.
+ *
+ * <p>Work runs on a few workers from {@link ProviderCalls#workerFactory} (minimum-priority daemon threads, or
+ * virtual threads) behind a bounded queue, using the cheaper prefetch model. Taking an alternative queues one
+ * refill for that slot. Each call is charged against a per-user daily budget at its worst-case cost before it
+ * is made; once the budget is spent, slots simply stop refilling and swaps fall back to synchronous generation.
+ * Pools live in memory and are dropped after the plan has gone unviewed for a while.
+ *
+ * <p>Alternatives are generated under the same allergies and avoided foods as the plan they belong to, and
+ * are screened against them again before they are pooled, as {@link MealPlanValidator} does for repairs.
+ */
+@Service
+public class MealPrefetchService {
+
+    private final MealPlanService mealPlanService;
+    private final AllergenLexicon allergenLexicon;
+    private final boolean enabled;
+    private final int perSlot;
+    private final double dailyBudgetUsd;
+    private final ThreadPoolExecutor executor;
+    private final Cache<Long, PlanPool> pools;
+    private final Cache<Long, Budget> budgets = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofDays(2))
+            .build();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+
+    private record PlanPool(long userId, List<Slot> slots, Restrictions restrictions) {}
+
+    // What every alternative for a plan must leave out: named in the prompt, then checked on the result
+    private record Restrictions(List<String> exclusions, AllergenLexicon.Guard guard, FoodTermMatcher avoid) {}
+
+    private static final class Slot {
+        final int dayIndex;
+        final int mealIndex;
+        final MacroTargets target;
+        final String original;
+        final ConcurrentLinkedDeque<Meal> ready = new ConcurrentLinkedDeque<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Slot(int dayIndex, int mealIndex, MacroTargets target, String original) {
+            this.dayIndex = dayIndex;
+            this.mealIndex = mealIndex;
+            this.target = target;
+            this.original = original;
+        }
+    }
+
+    private static final class Budget {
+        LocalDate day = LocalDate.now();
+        double spentUsd;
+    }
+
+    public MealPrefetchService(MealPlanService mealPlanService,
+                               ProviderCalls providerCalls,
+                               AllergenLexicon allergenLexicon,
+                               @Value("${prefetch.enabled:true}") boolean enabled,
+                               @Value("${prefetch.per-slot:2}") int perSlot,
+                               @Value("${prefetch.concurrency:2}") int concurrency,
+                               @Value("${prefetch.queue-capacity:200}") int queueCapacity,
+                               @Value("${prefetch.max-usd-per-user-per-day:0.05}") double dailyBudgetUsd,
+                               @Value("${prefetch.idle-minutes:120}") long idleMinutes) {
+        this.mealPlanService = mealPlanService;
+        this.allergenLexicon = allergenLexicon;
+        this.enabled = enabled;
+        this.perSlot = Math.max(0, perSlot);
+        this.dailyBudgetUsd = dailyBudgetUsd;
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                providerCalls.workerFactory("meal-prefetch-", Thread.MIN_PRIORITY));
+        this.pools = Caffeine.newBuilder()
+                .maximumSize(5_000)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    /**
+     * Starts filling alternatives for every meal of a plan the user just generated and saved, under the
+     * allergies and preferences the plan was generated with.
+     */
+    public void prefetch(long userId, long planId, MealPlan plan, Collection<String> allergies, PreferenceProfile preferences) {
+        if (!enabled || perSlot == 0 || plan == null || plan.getDays() == null || !mealPlanService.isAiAvailable()) return;
+        List<Slot> slots = new ArrayList<>();
+        for (int d = 0; d < plan.getDays().size(); d++) {
+            Day day = plan.getDays().get(d);
+            if (day.getMeals() == null) continue;
+            for (int m = 0; m < day.getMeals().size(); m++) {
+                Meal meal = day.getMeals().get(m);
+                if (meal.getMacros() == null) continue;
+                String original = meal.getRecipe() != null && meal.getRecipe().getName() != null
+                        ? meal.getRecipe().getName() : meal.getName();
+                slots.add(new Slot(d, m, meal.getMacros(), original));
+            }
+        }
+        List<String> exclusions = new ArrayList<>();
+        if (allergies != null) exclusions.addAll(allergies);
+        exclusions.addAll(preferences.getAvoidedFoods());
+        PlanPool pool = new PlanPool(userId, List.copyOf(slots),
+                new Restrictions(List.copyOf(exclusions), allergenLexicon.guardFor(allergies), preferences.getAvoidMatcher()));
+        pools.put(planId, pool);
+        // Breadth first: every slot gets its first alternative before any slot gets its second
+        for (int round = 0; round < perSlot; round++) {
+            for (Slot slot : slots) submit(pool, slot);
+        }
+    }
+
+    /**
+     * Takes a prefetched alternative for the given slot and queues a replacement for it.
+     * Empty when nothing is ready (not prefetched, still generating, or the plan belongs to someone else).
+     */
+    public Optional<Meal> take(long userId, long planId, int dayIndex, int mealIndex) {
+        PlanPool pool = pools.getIfPresent(planId);
+        Slot slot = pool != null && pool.userId() == userId ? find(pool, dayIndex, mealIndex) : null;
+        Meal meal = slot != null ? slot.ready.pollFirst() : null;
+        if (meal == null) {
+            missed.incrementAndGet();
+            // Refill a slot left empty by a failed or discarded generation; no-op while one is in flight
+            if (slot != null) submit(pool, slot);
+            return Optional.empty();
+        }
+        served.incrementAndGet();
+        submit(pool, slot);
+        return Optional.of(meal);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("plans", pools.estimatedSize());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("served", served.get());
+        stats.put("missed", missed.get());
+        stats.put("rejected", rejectedTasks.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Speculative work is disposable; don't hold up shutdown for it
+        executor.shutdownNow();
+    }
+
+    private static Slot find(PlanPool pool, int dayIndex, int mealIndex) {
+        for (Slot s : pool.slots()) {
+            if (s.dayIndex == dayIndex && s.mealIndex == mealIndex) return s;
+        }
+        return null;
+    }
+
+    private void submit(PlanPool pool, Slot slot) {
+        if (slot.ready.size() + slot.inFlight.get() >= perSlot) return;
+        slot.inFlight.incrementAndGet();
+        // Carry the caller's security context so provider usage is attributed to this user
+        Runnable task = new DelegatingSecurityContextRunnable(() -> {
+            try {
+                fill(pool, slot);
+            } finally {
+                slot.inFlight.decrementAndGet();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Queue full or shutting down; the slot is refilled on its next take
+            slot.inFlight.decrementAndGet();
+            rejectedTasks.incrementAndGet();
+        }
+    }
+
+    private void fill(PlanPool pool, Slot slot) {
+        if (!reserve(pool.userId(), mealPlanService.speculativeCallCeilingUsd())) return;
+        StringJoiner avoid = new StringJoiner(", ");
+        avoid.add(slot.original);
+        for (Meal m : slot.ready) {
+            String name = m.getRecipe() != null && m.getRecipe().getName() != null ? m.getRecipe().getName() : m.getName();
+            if (name != null) avoid.add(name);
+        }
+        try {
+            Restrictions r = pool.restrictions();
+            Meal meal = mealPlanService.generateSpeculativeMeal(slot.target, avoid.toString(), r.exclusions());
+            if (meal == null) return;
+            Set<String> found = MealPlanValidator.offending(meal, r.guard(), r.avoid());
+            if (!found.isEmpty()) {
+                // The slot refills on its next take; a swap must never offer what the plan was checked to exclude
+                System.err.println("Discarding prefetched meal " + meal.getName() + ": " + found);
+                return;
+            }
+            slot.ready.addLast(meal);
+        } catch (Exception e) {
+            System.err.println("Meal prefetch failed: " + e.getMessage());
+        }
+    }
+
+    private boolean reserve(long userId, double costUsd) {
+        Budget b = budgets.get(userId, id -> new Budget());
+        synchronized (b) {
+            LocalDate today = LocalDate.now();
+            if (!today.equals(b.day)) {
+                b.day = today;
+                b.spentUsd = 0;
+            }
+            if (b.spentUsd + costUsd > dailyBudgetUsd) return false;
+            b.spentUsd += costUsd;
+            return true;
+        }
+    }
+}
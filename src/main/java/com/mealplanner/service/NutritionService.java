@@ -1,7 +1,6 @@
 package com.mealplanner.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mealplanner.dto.NutritionDtos;
 import org.springframework.stereotype.Service;
 
@@ -13,10 +12,11 @@ import java.util.regex.Pattern;
 public class NutritionService {
 
     private final MealPlanService mealPlanService; // reuse AI call plumbing
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonCodec jsonCodec;
 
-    public NutritionService(MealPlanService mealPlanService) {
+    public NutritionService(MealPlanService mealPlanService, JsonCodec jsonCodec) {
         this.mealPlanService = mealPlanService;
+        this.jsonCodec = jsonCodec;
     }
 
     public NutritionDtos.EstimateResponse estimate(String text) {
@@ -64,7 +64,7 @@ public class NutritionService {
             String raw = mealPlanService == null ? null : callAI(prompt);
             if (raw == null) return Collections.emptyList();
             String json = sanitize(raw);
-            JsonNode arr = mapper.readTree(json);
+            JsonNode arr = jsonCodec.readTreeLenient(json);
             if (!arr.isArray()) return Collections.emptyList();
             List<NutritionDtos.Item> out = new ArrayList<>();
             for (JsonNode n : arr) {
@@ -87,7 +87,7 @@ public class NutritionService {
             String raw = mealPlanService == null ? null : callAI(prompt);
             if (raw == null) return null;
             String json = sanitize(raw);
-            JsonNode n = mapper.readTree(json);
+            JsonNode n = jsonCodec.readTreeLenient(json);
             NutritionDtos.Item it = new NutritionDtos.Item();
             it.setItem(item);
             it.setQuantity(qty <= 0 ? 1.0 : qty);
@@ -0,0 +1,166 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.DailyNutritionSummary;
+import com.mealplanner.model.MacroTargets;
+import com.mealplanner.model.User;
+import com.mealplanner.repository.DailyNutritionSummaryRepository;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Intake trends over arbitrary ranges, bucketed by day, week or month.
+ * Built from daily_nutrition_summary, so a year of history is one query over at most 366 rows.
+ */
+@Service
+public class NutritionTrendService {
+
+    public static final int MAX_RANGE_DAYS = 3 * 366;
+    private static final String[] MACROS = {"calories", "protein", "carbs", "fat"};
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private final DailyNutritionSummaryRepository summaryRepository;
+    private final SavedMealPlanRepository savedMealPlanRepository;
+
+    public NutritionTrendService(DailyNutritionSummaryRepository summaryRepository,
+                                 SavedMealPlanRepository savedMealPlanRepository) {
+        this.summaryRepository = summaryRepository;
+        this.savedMealPlanRepository = savedMealPlanRepository;
+    }
+
+    public static Granularity parseGranularity(String value) {
+        if (value == null || value.isBlank()) return Granularity.DAY;
+        try {
+            return Granularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("granularity must be day, week or month");
+        }
+    }
+
+    /**
+     * Sums, per-logged-day averages and adherence to the latest plan targets for each bucket in [from, to].
+     * Columnar output holds one array per field, which is what chart libraries consume directly.
+     */
+    public Map<String, Object> getTrend(User user, LocalDate from, LocalDate to, Granularity granularity, boolean columnar) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range is limited to " + MAX_RANGE_DAYS + " days");
+        }
+
+        // Every bucket in range, so charts get a continuous axis
+        Map<LocalDate, long[]> buckets = new LinkedHashMap<>();
+        for (LocalDate start = bucketStart(from, granularity); !start.isAfter(to); start = next(start, granularity)) {
+            // calories, protein, carbs, fat, entries, daysLogged
+            buckets.put(start, new long[6]);
+        }
+        for (DailyNutritionSummary s : summaryRepository.findByUserIdAndLogDateBetweenOrderByLogDateDesc(user.getId(), from, to)) {
+            long[] b = buckets.get(bucketStart(s.getLogDate(), granularity));
+            if (b == null) continue;
+            b[0] += s.getCalories();
+            b[1] += s.getProtein();
+            b[2] += s.getCarbs();
+            b[3] += s.getFat();
+            b[4] += s.getEntries();
+            if (s.getEntries() > 0) b[5]++;
+        }
+
+        MacroTargets targets = latestTargets(user);
+        int[] targetValues = targets == null ? null
+                : new int[]{targets.getCalories(), targets.getProtein(), targets.getCarbs(), targets.getFat()};
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("from", from);
+        out.put("to", to);
+        out.put("granularity", granularity.name().toLowerCase(Locale.ROOT));
+        out.put("targets", targets);
+
+        if (columnar) {
+            Map<String, List<Object>> cols = new LinkedHashMap<>();
+            for (String c : columnNames(targetValues != null)) cols.put(c, new ArrayList<>(buckets.size()));
+            for (Map.Entry<LocalDate, long[]> e : buckets.entrySet()) {
+                Map<String, Object> row = row(clampStart(e.getKey(), from), clampEnd(e.getKey(), granularity, to), e.getValue(), targetValues);
+                for (Map.Entry<String, List<Object>> c : cols.entrySet()) c.getValue().add(row.get(c.getKey()));
+            }
+            out.put("columns", cols);
+        } else {
+            List<Map<String, Object>> rows = new ArrayList<>(buckets.size());
+            for (Map.Entry<LocalDate, long[]> e : buckets.entrySet()) {
+                rows.add(row(clampStart(e.getKey(), from), clampEnd(e.getKey(), granularity, to), e.getValue(), targetValues));
+            }
+            out.put("buckets", rows);
+        }
+        return out;
+    }
+
+    private MacroTargets latestTargets(User user) {
+        List<Object[]> rows = savedMealPlanRepository.findLatestTargets(user, PageRequest.of(0, 1));
+        if (rows.isEmpty()) return null;
+        Object[] r = rows.get(0);
+        return new MacroTargets(((Number) r[0]).intValue(), ((Number) r[1]).intValue(),
+                ((Number) r[2]).intValue(), ((Number) r[3]).intValue());
+    }
+
+    private static List<String> columnNames(boolean withAdherence) {
+        List<String> names = new ArrayList<>(List.of("start", "end", "entries", "daysLogged"));
+        for (String m : MACROS) names.add(m);
+        for (String m : MACROS) names.add("avg" + capitalize(m));
+        if (withAdherence) for (String m : MACROS) names.add("adherence" + capitalize(m));
+        return names;
+    }
+
+    private static Map<String, Object> row(LocalDate start, LocalDate end, long[] b, int[] targets) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("start", start);
+        row.put("end", end);
+        row.put("entries", b[4]);
+        row.put("daysLogged", b[5]);
+        for (int i = 0; i < MACROS.length; i++) row.put(MACROS[i], b[i]);
+        for (int i = 0; i < MACROS.length; i++) {
+            row.put("avg" + capitalize(MACROS[i]), b[5] > 0 ? Math.round((double) b[i] / b[5]) : 0);
+        }
+        if (targets != null) {
+            // Average logged day as a percentage of the daily target
+            for (int i = 0; i < MACROS.length; i++) {
+                Double pct = (b[5] > 0 && targets[i] > 0)
+                        ? Math.round(1000.0 * b[i] / b[5] / targets[i]) / 10.0 : null;
+                row.put("adherence" + capitalize(MACROS[i]), pct);
+            }
+        }
+        return row;
+    }
+
+    private static LocalDate bucketStart(LocalDate d, Granularity g) {
+        return switch (g) {
+            case DAY -> d;
+            case WEEK -> d.with(DayOfWeek.MONDAY);
+            case MONTH -> d.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate next(LocalDate start, Granularity g) {
+        return switch (g) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    private static LocalDate clampStart(LocalDate start, LocalDate from) {
+        return start.isBefore(from) ? from : start;
+    }
+
+    private static LocalDate clampEnd(LocalDate start, Granularity g, LocalDate to) {
+        LocalDate end = next(start, g).minusDays(1);
+        return end.isAfter(to) ? to : end;
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
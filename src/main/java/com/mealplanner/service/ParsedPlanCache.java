@@ -0,0 +1,116 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mealplanner.model.Day;
+import com.mealplanner.model.FoodItem;
+import com.mealplanner.model.GroceryList;
+import com.mealplanner.model.Meal;
+import com.mealplanner.model.MealPlan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of rebuilt plans keyed by saved plan id.
+ * Saved plans are never edited after creation, so entries only leave the cache through weight-based eviction.
+ * Cached objects are shared between requests and must be treated as read-only. Rebuilding reads the database
+ * or parses JSON, so it runs outside the cache's lock (see {@link CacheLoads}).
+ */
+@Component
+public class ParsedPlanCache {
+
+    /** A saved plan's meal plan and grocery list as shown to the user. */
+    public record Entry(MealPlan mealPlan, GroceryList groceryList) {}
+
+    private final AsyncCache<Long, Entry> cache;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public ParsedPlanCache(@Value("${plan.cache.max-kb:16384}") long maxKb) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxKb * 1024)
+                .weigher((Long id, Entry e) -> estimateBytes(e))
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Entry get(Long planId, Function<Long, Entry> loader) {
+        // Looked up first so hits and misses are counted; a load in flight is waited for by CacheLoads
+        CompletableFuture<Entry> cached = cache.getIfPresent(planId);
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) return cached.join();
+        return CacheLoads.get(cache, planId, id -> {
+            long start = System.nanoTime();
+            try {
+                return loader.apply(id);
+            } finally {
+                loads.increment();
+                loadNanos.add(System.nanoTime() - start);
+            }
+        });
+    }
+
+    public void put(Long planId, Entry entry) {
+        cache.put(planId, CompletableFuture.completedFuture(entry));
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats s = cache.synchronous().stats();
+        long loadCount = loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", cache.synchronous().estimatedSize());
+        stats.put("hits", s.hitCount());
+        stats.put("misses", s.missCount());
+        stats.put("hitRate", Math.round(s.hitRate() * 1000) / 10.0);
+        stats.put("evictions", s.evictionCount());
+        stats.put("averageLoadMs", loadCount == 0 ? 0.0 : Math.round(loadNanos.sum() / loadCount / 100_000.0) / 10.0);
+        return stats;
+    }
+
+    // Rough retained size: two bytes per char plus a fixed overhead per object
+    static int estimateBytes(Entry e) {
+        long bytes = 64;
+        MealPlan plan = e.mealPlan();
+        if (plan != null && plan.getDays() != null) {
+            for (Day day : plan.getDays()) {
+                bytes += 64;
+                if (day.getMeals() == null) continue;
+                for (Meal meal : day.getMeals()) {
+                    bytes += 96 + chars(meal.getName());
+                    if (meal.getFoods() != null) {
+                        for (FoodItem f : meal.getFoods()) bytes += 48 + chars(f.getItem()) + chars(f.getPortion());
+                    }
+                    if (meal.getRecipe() != null) {
+                        bytes += 64 + chars(meal.getRecipe().getName()) + chars(meal.getRecipe().getIngredients())
+                                + chars(meal.getRecipe().getInstructions());
+                    }
+                }
+            }
+        }
+        GroceryList groceries = e.groceryList();
+        if (groceries != null && groceries.getCategorizedItems() != null) {
+            for (Map.Entry<String, List<String>> c : groceries.getCategorizedItems().entrySet()) {
+                bytes += 48 + chars(c.getKey()) + chars(c.getValue());
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static long chars(List<String> lines) {
+        if (lines == null) return 0;
+        long n = 0;
+        for (String l : lines) n += chars(l);
+        return n;
+    }
+}
@@ -0,0 +1,146 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rendered HTML of the plan section of results.html, keyed by saved plan id. Saved plans never change, so an
+ * entry stays valid until the template does.
+ *
+ * <p>Entries are held in memory up to {@code plan.page-cache.max-kb}. Entries evicted for size are written to
+ * a spill directory, up to {@code plan.page-cache.max-disk-mb}, and read back from there before rendering
+ * again. Each instance creates its own spill directory under {@code plan.page-cache.dir}, readable only by
+ * the process owner where the file system supports it, and deletes it on shutdown. Nothing is shared with
+ * other instances on the same host or with an older build.
+ */
+@Component
+public class PlanPageCache {
+
+    private final AsyncCache<Long, String> memory;
+    // Null when no directory could be created; spilled entries are then simply dropped
+    private final Path spillDir;
+    private final long maxDiskBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+    // Identifies the template the cached bodies were rendered from; part of every ETag
+    private final String templateVersion;
+
+    public PlanPageCache(@Value("${plan.page-cache.max-kb:8192}") long maxKb,
+                         @Value("${plan.page-cache.max-disk-mb:256}") long maxDiskMb,
+                         @Value("${plan.page-cache.dir:${java.io.tmpdir}}") String baseDir) {
+        this.maxDiskBytes = maxDiskMb * 1024 * 1024;
+        this.templateVersion = hash(readTemplate()).substring(0, 12);
+        this.spillDir = createSpillDir(Path.of(baseDir));
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxKb * 1024)
+                .weigher((Long id, String html) -> html.length() * 2)
+                .removalListener((Long id, String html, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && id != null && html != null) spill(id, html);
+                })
+                .buildAsync();
+    }
+
+    /**
+     * Strong validator for one plan page as seen by one session. The session part changes at sign-in and
+     * sign-out, which is when the page's embedded CSRF token stops being valid.
+     */
+    public String etag(long planId, String sessionId) {
+        return "\"p" + planId + "-" + templateVersion + "-" + hash(sessionId).substring(0, 16) + "\"";
+    }
+
+    /** The cached plan body, rendering it with {@code renderer} if neither memory nor disk has it. */
+    public String body(long planId, Supplier<String> renderer) {
+        // Disk reads and rendering happen outside the cache's lock; see CacheLoads
+        return CacheLoads.get(memory, planId, id -> {
+            String html = unspill(id);
+            return html != null ? html : renderer.get();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (spillDir == null) return;
+        try {
+            FileSystemUtils.deleteRecursively(spillDir);
+        } catch (IOException e) {
+            System.err.println("Could not delete plan page spill directory " + spillDir + ": " + e.getMessage());
+        }
+    }
+
+    private static Path createSpillDir(Path base) {
+        try {
+            Files.createDirectories(base);
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                FileAttribute<?> ownerOnly = PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"));
+                return Files.createTempDirectory(base, "plan-pages-", ownerOnly);
+            }
+            return Files.createTempDirectory(base, "plan-pages-");
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Plan page spill directory unavailable, caching in memory only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void spill(long planId, String html) {
+        if (spillDir == null) return;
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        if (diskBytes.get() + bytes.length > maxDiskBytes) return;
+        try {
+            Files.write(spillDir.resolve(planId + ".html"), bytes);
+            diskBytes.addAndGet(bytes.length);
+        } catch (IOException e) {
+            System.err.println("Could not spill plan page " + planId + ": " + e.getMessage());
+        }
+    }
+
+    private String unspill(long planId) {
+        if (spillDir == null) return null;
+        Path file = spillDir.resolve(planId + ".html");
+        try {
+            if (!Files.exists(file)) return null;
+            byte[] bytes = Files.readAllBytes(file);
+            Files.deleteIfExists(file);
+            diskBytes.addAndGet(-bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String readTemplate() {
+        try (InputStream in = new ClassPathResource("templates/results.html").getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Fall back to a per-start version; pages are then revalidated after every restart
+            return Long.toString(System.currentTimeMillis());
+        }
+    }
+
+    private static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
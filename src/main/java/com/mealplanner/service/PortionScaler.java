@@ -0,0 +1,246 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Nudges the portions of a generated plan so each day lands on its macro targets, instead of asking the
+ * model for another plan. For every day it solves a small bounded least-squares problem over one scale
+ * factor per food item, then rewrites portions and matching recipe ingredient lines with the rounded result.
+ * Meals whose portions changed have their stated macros moved by the change; untouched meals keep theirs.
+ *
+ * <p>Per-item macros come from the reference food table when the item and its portion are recognised.
+ * The rest of each meal's claimed macros is split evenly over its unrecognised items, so they scale too.
+ * Items without a numeric portion ("to taste") stay fixed.
+ *
+ * <p>The objective is the sum of squared relative errors of calories, protein, carbs and fat, plus a small
+ * pull toward the original portions so the smallest change that fits is preferred. It is minimised by
+ * cyclic coordinate descent inside the box [1 - bound, 1 + bound], which for a few dozen variables and four
+ * residuals converges in well under a millisecond.
+ */
+@Service
+public class PortionScaler {
+
+    private static final double REGULARISATION = 0.01;
+    private static final int MAX_SWEEPS = 100;
+    private static final double CONVERGED = 1e-7;
+    // Days already within this relative error on every macro are left untouched
+    private static final double ON_TARGET = 0.03;
+
+    private static final Pattern QUANTITY = Pattern.compile(
+            "(\\d+\\s+\\d+/\\d+|\\d+/\\d+|\\d+(?:\\.\\d+)?|\\.\\d+|[½¼¾⅓⅔])\\s*([a-zA-Z]+)?");
+
+    private final FoodCatalog foodCatalog;
+    private final double bound;
+
+    public PortionScaler(FoodCatalog foodCatalog, @Value("${plan.scaling.max-change:0.4}") double bound) {
+        this.foodCatalog = foodCatalog;
+        this.bound = bound;
+    }
+
+    /** One food item as a solver variable: its macros at the current portion, and whether it may scale. */
+    private static final class Term {
+        final Meal meal;
+        final int foodIndex;
+        final double[] macros;
+        final boolean scalable;
+        double scale = 1.0;
+
+        Term(Meal meal, int foodIndex, double[] macros, boolean scalable) {
+            this.meal = meal;
+            this.foodIndex = foodIndex;
+            this.macros = macros;
+            this.scalable = scalable;
+        }
+    }
+
+    /** Scales every day of {@code plan} toward {@code targets} in place; returns how many days changed. */
+    public int apply(MealPlan plan, MacroTargets targets) {
+        if (plan == null || plan.getDays() == null || targets == null || targets.getCalories() <= 0) return 0;
+        double[] goal = {targets.getCalories(), targets.getProtein(), targets.getCarbs(), targets.getFat()};
+        int changed = 0;
+        for (Day day : plan.getDays()) {
+            if (day.getMeals() == null || day.getMeals().isEmpty()) continue;
+            if (scaleDay(day, goal)) changed++;
+        }
+        return changed;
+    }
+
+    private boolean scaleDay(Day day, double[] goal) {
+        List<Term> terms = new ArrayList<>();
+        for (Meal meal : day.getMeals()) terms.addAll(termsOf(meal));
+        if (terms.isEmpty()) return false;
+
+        double[] weights = new double[4];
+        for (int k = 0; k < 4; k++) weights[k] = goal[k] > 0 ? 1.0 / (goal[k] * goal[k]) : 0;
+        double[] residual = new double[4];
+        for (int k = 0; k < 4; k++) residual[k] = -goal[k];
+        for (Term t : terms) for (int k = 0; k < 4; k++) residual[k] += t.macros[k];
+        if (onTarget(residual, goal)) return false;
+
+        solve(terms, residual, weights);
+
+        boolean any = false;
+        for (Term t : terms) {
+            if (!t.scalable || Math.abs(t.scale - 1.0) < 0.02) { t.scale = 1.0; continue; }
+            FoodItem item = t.meal.getFoods().get(t.foodIndex);
+            Rewritten portion = rescale(item.getPortion(), t.scale);
+            if (portion == null || Math.abs(portion.factor() - 1.0) < 1e-9) { t.scale = 1.0; continue; }
+            t.scale = portion.factor();
+            rescaleIngredient(t.meal, item.getItem(), t.scale);
+            item.setPortion(portion.text());
+            any = true;
+        }
+        if (!any) return false;
+
+        // Each changed meal's figures move by what its rescaled items add or remove. Claims are adjusted rather
+        // than replaced, so a claim that disagreed with the food table before scaling still disagrees after
+        Map<Meal, double[]> mealTotals = new IdentityHashMap<>();
+        Map<Meal, double[]> mealDeltas = new IdentityHashMap<>();
+        for (Term t : terms) {
+            double[] sum = mealTotals.computeIfAbsent(t.meal, m -> new double[4]);
+            for (int k = 0; k < 4; k++) sum[k] += t.macros[k];
+            if (t.scale == 1.0) continue;
+            double[] delta = mealDeltas.computeIfAbsent(t.meal, m -> new double[4]);
+            for (int k = 0; k < 4; k++) delta[k] += t.macros[k] * (t.scale - 1.0);
+        }
+        double[] dayTotal = new double[4];
+        for (Meal meal : day.getMeals()) {
+            double[] delta = mealDeltas.get(meal);
+            if (delta != null) {
+                MacroTargets claimed = meal.getMacros();
+                double[] base = claimed == null ? mealTotals.get(meal) : new double[]{
+                        claimed.getCalories(), claimed.getProtein(), claimed.getCarbs(), claimed.getFat()};
+                double[] adjusted = new double[4];
+                for (int k = 0; k < 4; k++) adjusted[k] = Math.max(0, base[k] + delta[k]);
+                meal.setMacros(round(adjusted));
+            }
+            MacroTargets m = meal.getMacros();
+            if (m == null) continue;
+            dayTotal[0] += m.getCalories(); dayTotal[1] += m.getProtein(); dayTotal[2] += m.getCarbs(); dayTotal[3] += m.getFat();
+        }
+        day.setDailyTotal(round(dayTotal));
+        return true;
+    }
+
+    // Cyclic coordinate descent on sum_k w_k r_k^2 + lambda * sum_i (s_i - 1)^2 with s_i in [1 - bound, 1 + bound]
+    private void solve(List<Term> terms, double[] residual, double[] weights) {
+        double lo = 1.0 - bound, hi = 1.0 + bound;
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            double moved = 0;
+            for (Term t : terms) {
+                if (!t.scalable) continue;
+                double g = REGULARISATION * (t.scale - 1.0), h = REGULARISATION;
+                for (int k = 0; k < 4; k++) {
+                    g += weights[k] * t.macros[k] * residual[k];
+                    h += weights[k] * t.macros[k] * t.macros[k];
+                }
+                double next = Math.max(lo, Math.min(hi, t.scale - g / h));
+                double delta = next - t.scale;
+                if (delta == 0) continue;
+                for (int k = 0; k < 4; k++) residual[k] += t.macros[k] * delta;
+                t.scale = next;
+                moved = Math.max(moved, Math.abs(delta));
+            }
+            if (moved < CONVERGED) break;
+        }
+    }
+
+    private List<Term> termsOf(Meal meal) {
+        List<FoodItem> foods = meal.getFoods();
+        if (foods == null || foods.isEmpty()) return List.of();
+        List<Term> terms = new ArrayList<>(foods.size());
+        double[] known = new double[4];
+        List<Integer> unknown = new ArrayList<>();
+        for (int i = 0; i < foods.size(); i++) {
+            FoodItem item = foods.get(i);
+            boolean hasQuantity = item.getPortion() != null && QUANTITY.matcher(item.getPortion()).find();
+            Optional<FoodCatalog.Food> food = foodCatalog.find(item.getItem());
+            double servings = food.isPresent() ? FoodCatalog.servings(food.get(), item.getPortion()) : Double.NaN;
+            if (Double.isNaN(servings)) {
+                unknown.add(i);
+                continue;
+            }
+            FoodCatalog.Food f = food.get();
+            double[] macros = {f.calories() * servings, f.protein() * servings, f.carbs() * servings, f.fat() * servings};
+            for (int k = 0; k < 4; k++) known[k] += macros[k];
+            terms.add(new Term(meal, i, macros, hasQuantity));
+        }
+        if (!unknown.isEmpty()) {
+            MacroTargets claimed = meal.getMacros();
+            double[] rest = new double[4];
+            if (claimed != null) {
+                rest[0] = Math.max(0, claimed.getCalories() - known[0]);
+                rest[1] = Math.max(0, claimed.getProtein() - known[1]);
+                rest[2] = Math.max(0, claimed.getCarbs() - known[2]);
+                rest[3] = Math.max(0, claimed.getFat() - known[3]);
+            }
+            for (int i : unknown) {
+                double[] share = new double[4];
+                for (int k = 0; k < 4; k++) share[k] = rest[k] / unknown.size();
+                String portion = foods.get(i).getPortion();
+                terms.add(new Term(meal, i, share, portion != null && QUANTITY.matcher(portion).find()));
+            }
+        }
+        return terms;
+    }
+
+    private static boolean onTarget(double[] residual, double[] goal) {
+        for (int k = 0; k < 4; k++) {
+            if (goal[k] > 0 && Math.abs(residual[k]) > ON_TARGET * goal[k]) return false;
+        }
+        return true;
+    }
+
+    private record Rewritten(String text, double factor) {}
+
+    // Scales the first quantity in a portion and rounds it to a step that suits its unit
+    private static Rewritten rescale(String portion, double factor) {
+        if (portion == null) return null;
+        Matcher m = QUANTITY.matcher(portion);
+        if (!m.find()) return null;
+        double qty = FoodCatalog.quantity(m.group(1));
+        if (qty <= 0) return null;
+        double step = stepFor(m.group(2));
+        double scaled = Math.max(step, Math.round(qty * factor / step) * step);
+        String text = portion.substring(0, m.start(1)) + format(scaled) + portion.substring(m.end(1));
+        return new Rewritten(text, scaled / qty);
+    }
+
+    // Ingredient lines name the food and usually repeat its quantity; scale the line that mentions the item
+    private static void rescaleIngredient(Meal meal, String item, double factor) {
+        Recipe r = meal.getRecipe();
+        if (r == null || r.getIngredients() == null || item == null || item.isBlank()) return;
+        FoodTermMatcher name = FoodTermMatcher.of(List.of(item));
+        List<String> lines = r.getIngredients();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line == null || !name.matches(line)) continue;
+            Rewritten scaled = rescale(line, factor);
+            if (scaled != null) lines.set(i, scaled.text());
+            return;
+        }
+    }
+
+    private static double stepFor(String unit) {
+        String u = unit == null ? "" : unit.toLowerCase(Locale.ROOT);
+        if (u.startsWith("g") || u.startsWith("ml") || u.equals("grams")) return 5;
+        if (u.startsWith("cup") || u.startsWith("tbsp") || u.startsWith("tablespoon")
+                || u.startsWith("tsp") || u.startsWith("teaspoon")) return 0.25;
+        return 0.5;
+    }
+
+    private static String format(double q) {
+        if (Math.abs(q - Math.rint(q)) < 1e-9) return String.valueOf((long) Math.rint(q));
+        return String.valueOf(Math.round(q * 100) / 100.0);
+    }
+
+    private static MacroTargets round(double[] m) {
+        return new MacroTargets((int) Math.round(m[0]), (int) Math.round(m[1]), (int) Math.round(m[2]), (int) Math.round(m[3]));
+    }
+}
@@ -0,0 +1,32 @@
+package com.mealplanner.service;
+
+import java.util.Set;
+
+/**
+ * A user's food preferences compiled for reuse: the prompt text sent with every generation request,
+ * the explicit and learned prefer/avoid sets, and a matcher over the avoid set for checking generated meals.
+ * Instances are immutable and shared through {@link PreferenceProfileService}.
+ */
+public final class PreferenceProfile {
+
+    static final PreferenceProfile EMPTY = new PreferenceProfile("", Set.of(), Set.of(), FoodTermMatcher.of(Set.of()));
+
+    private final String promptFragment;
+    private final Set<String> preferredFoods;
+    private final Set<String> avoidedFoods;
+    private final FoodTermMatcher avoidMatcher;
+
+    PreferenceProfile(String promptFragment, Set<String> preferredFoods, Set<String> avoidedFoods, FoodTermMatcher avoidMatcher) {
+        this.promptFragment = promptFragment;
+        this.preferredFoods = preferredFoods;
+        this.avoidedFoods = avoidedFoods;
+        this.avoidMatcher = avoidMatcher;
+    }
+
+    /** Saved preferences followed by high-confidence learned ones; empty when the user has neither. */
+    public String getPromptFragment() { return promptFragment; }
+    public Set<String> getPreferredFoods() { return preferredFoods; }
+    /** Foods the user listed as avoided plus foods learned as disliked. */
+    public Set<String> getAvoidedFoods() { return avoidedFoods; }
+    public FoodTermMatcher getAvoidMatcher() { return avoidMatcher; }
+}
@@ -0,0 +1,123 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mealplanner.model.LearnedUserPreference;
+import com.mealplanner.model.UserFoodPreferences;
+import com.mealplanner.repository.LearnedUserPreferenceRepository;
+import com.mealplanner.repository.UserFoodPreferencesRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Builds and caches each user's {@link PreferenceProfile}. Entries are dropped when the underlying rows
+ * change: {@link UserFoodPreferencesService#savePreferences} and the learned-preference flush in
+ * {@link SwapService} call {@link #invalidate} after they write.
+ */
+@Service
+public class PreferenceProfileService {
+
+    static final int LEARNED_MIN_CONFIDENCE_PCT = 70;
+
+    private final UserFoodPreferencesRepository preferencesRepository;
+    private final LearnedUserPreferenceRepository learnedRepository;
+    private final AsyncCache<Long, PreferenceProfile> cache;
+
+    public PreferenceProfileService(UserFoodPreferencesRepository preferencesRepository,
+                                    LearnedUserPreferenceRepository learnedRepository) {
+        this.preferencesRepository = preferencesRepository;
+        this.learnedRepository = learnedRepository;
+        // Invalidation keeps entries correct; the idle expiry only bounds memory for inactive users
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(Duration.ofHours(1))
+                .buildAsync();
+    }
+
+    public PreferenceProfile get(Long userId) {
+        if (userId == null) return PreferenceProfile.EMPTY;
+        // Compiled outside the cache's lock; compile() reads the database
+        return CacheLoads.get(cache, userId, this::compile);
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) cache.synchronous().invalidate(userId);
+    }
+
+    public void invalidateAll(Collection<Long> userIds) {
+        cache.synchronous().invalidateAll(userIds);
+    }
+
+    private PreferenceProfile compile(Long userId) {
+        UserFoodPreferences prefs = preferencesRepository.findByUserId(userId).orElse(null);
+        List<LearnedUserPreference> learned = learnedRepository.findByUserIdAndConfidencePctGreaterThanEqual(userId, LEARNED_MIN_CONFIDENCE_PCT);
+
+        Set<String> preferred = new LinkedHashSet<>();
+        Set<String> avoided = new LinkedHashSet<>();
+        if (prefs != null) {
+            addFoods(preferred, prefs.getPreferredFoodsText());
+            addFoods(avoided, prefs.getAvoidedFoodsText());
+        }
+        for (LearnedUserPreference p : learned) {
+            if (SwapService.PREFERS_OVER.equals(p.getPreferenceType())) addFood(preferred, p.getFoodItem());
+            else if (SwapService.DISLIKES.equals(p.getPreferenceType())) addFood(avoided, p.getFoodItem());
+        }
+
+        String prompt = preferencesPrompt(prefs) + learnedPrompt(learned);
+        if (prompt.isEmpty() && preferred.isEmpty() && avoided.isEmpty()) return PreferenceProfile.EMPTY;
+        return new PreferenceProfile(prompt, Collections.unmodifiableSet(preferred), Collections.unmodifiableSet(avoided),
+                FoodTermMatcher.of(avoided));
+    }
+
+    private static void addFoods(Set<String> into, String commaList) {
+        if (commaList == null || commaList.isBlank()) return;
+        for (String f : commaList.split(",")) addFood(into, f);
+    }
+
+    private static void addFood(Set<String> into, String food) {
+        if (food == null) return;
+        String n = food.trim().toLowerCase(Locale.ROOT);
+        if (!n.isEmpty()) into.add(n);
+    }
+
+    private static String preferencesPrompt(UserFoodPreferences prefs) {
+        if (prefs == null || (prefs.getPreferredFoodsText() == null || prefs.getPreferredFoodsText().isEmpty())) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n\nUSER'S FOOD PREFERENCES:\n");
+        sb.append("- Foods they like and want: ").append(prefs.getPreferredFoodsText()).append("\n");
+        if (prefs.getAvoidedFoodsText() != null && !prefs.getAvoidedFoodsText().isEmpty()) {
+            sb.append("- Foods to avoid: ").append(prefs.getAvoidedFoodsText()).append("\n");
+        }
+        if (prefs.getCookingPreference() != null && !prefs.getCookingPreference().isEmpty()) {
+            sb.append("- Cooking preference: ").append(prefs.getCookingPreference()).append("\n");
+        }
+        if (prefs.getDietaryStyle() != null && !prefs.getDietaryStyle().isEmpty()) {
+            sb.append("- Dietary style: ").append(prefs.getDietaryStyle()).append("\n");
+        }
+        sb.append("\nIMPORTANT: Use foods from their preferred list. Respect their preferences completely.\n");
+        sb.append("Do NOT exclude convenient, packaged, or restaurant foods if they fit macros.\n");
+        return sb.toString();
+    }
+
+    private static String learnedPrompt(List<LearnedUserPreference> list) {
+        if (list == null || list.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n\nLEARNED USER PREFERENCES (High Confidence):\n");
+        for (LearnedUserPreference p : list) {
+            if (SwapService.PREFERS_OVER.equals(p.getPreferenceType())) {
+                sb.append("- Prefers ").append(p.getFoodItem()).append(" over ").append(p.getComparedToFood())
+                        .append(" (confidence: ").append(p.getConfidencePct()).append("%)\n");
+            } else if (SwapService.DISLIKES.equals(p.getPreferenceType())) {
+                sb.append("- Avoid ").append(p.getFoodItem())
+                        .append(" (confidence: ").append(p.getConfidencePct()).append("%)\n");
+            }
+        }
+        sb.append("\nIMPORTANT: Use their preferred foods. Avoid disliked foods.\n");
+        sb.append("Remember: ALWAYS use white rice, never brown rice.\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.mealplanner.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Where provider calls made off the request thread run. With {@code spring.threads.virtual.enabled} every call
+ * gets its own virtual thread, so a call blocked on the provider holds a few KB of heap rather than a platform
+ * thread and its stack. Otherwise calls share a fixed pool of {@code ai.calls.platform-threads} daemon threads.
+ *
+ * <p>Fan-out goes through a {@link Scope}: subtasks are forked inside a try-with-resources block, joined
+ * together against one deadline, and whatever is still running when the block exits (deadline passed,
+ * caller interrupted, or an exception) is cancelled. No subtask outlives the request that started it.
+ */
+@Component
+public class ProviderCalls {
+
+    private final boolean virtual;
+    private final ExecutorService platformPool;
+
+    public ProviderCalls(@Value("${spring.threads.virtual.enabled:false}") boolean virtual,
+                         @Value("${ai.calls.platform-threads:8}") int platformThreads) {
+        this.virtual = virtual;
+        this.platformPool = virtual ? null : Executors.newFixedThreadPool(platformThreads,
+                workerFactory("provider-call-", Thread.NORM_PRIORITY));
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Threads for long-lived workers that make provider calls. Virtual threads ignore {@code priority};
+     * the worker's own concurrency limit is what keeps background work from crowding out requests.
+     */
+    public ThreadFactory workerFactory(String namePrefix, int priority) {
+        if (virtual) return Thread.ofVirtual().name(namePrefix, 1).factory();
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        };
+    }
+
+    public Scope openScope() {
+        return new Scope(virtual ? Executors.newVirtualThreadPerTaskExecutor() : platformPool, virtual);
+    }
+
+    /** A group of provider calls started and finished together. Confined to the thread that opened it. */
+    public static final class Scope implements AutoCloseable {
+        private final ExecutorService executor;
+        private final boolean ownsExecutor;
+        private final List<Future<?>> forks = new ArrayList<>();
+
+        private Scope(ExecutorService executor, boolean ownsExecutor) {
+            this.executor = executor;
+            this.ownsExecutor = ownsExecutor;
+        }
+
+        /** Starts {@code task} with the caller's security context, so usage is attributed to the same user. */
+        public <T> Future<T> fork(Callable<T> task) {
+            Future<T> future = executor.submit(new DelegatingSecurityContextCallable<>(task));
+            forks.add(future);
+            return future;
+        }
+
+        /**
+         * Waits until every fork has finished or {@code timeout} has passed. Failed forks do not end the wait;
+         * their {@code Future} reports the failure.
+         */
+        public void join(Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            for (Future<?> f : forks) {
+                try {
+                    f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | CancellationException e) {
+                    // Left for the caller to read from the fork
+                } catch (TimeoutException e) {
+                    return;
+                }
+            }
+        }
+
+        /** Cancels every fork that has not finished, interrupting its thread. */
+        @Override
+        public void close() {
+            for (Future<?> f : forks) f.cancel(true);
+            if (ownsExecutor) executor.shutdownNow();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (platformPool != null) platformPool.shutdownNow();
+    }
+}
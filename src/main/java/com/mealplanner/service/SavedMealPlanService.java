@@ -0,0 +1,140 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.GroceryList;
+import com.mealplanner.model.MacroTargets;
+import com.mealplanner.model.MealPlan;
+import com.mealplanner.model.SavedMealPlan;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import com.mealplanner.repository.SavedPlanStructureRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists generated plans as normalized day/meal/food rows and rebuilds them for display.
+ * Plans saved before the normalized tables existed still carry their JSON blobs and are read from those.
+ * Rebuilt plans are kept in {@link ParsedPlanCache}, so repeat views do no parsing or row reads.
+ */
+@Service
+public class SavedMealPlanService {
+
+    // Width of saved_meal_plans.allergies
+    private static final int ALLERGIES_LENGTH = 1000;
+
+    private final SavedMealPlanRepository savedMealPlanRepository;
+    private final SavedPlanStructureRepository structureRepository;
+    private final ParsedPlanCache planCache;
+    private final JsonCodec jsonCodec;
+
+    public SavedMealPlanService(SavedMealPlanRepository savedMealPlanRepository,
+                                SavedPlanStructureRepository structureRepository,
+                                ParsedPlanCache planCache,
+                                JsonCodec jsonCodec) {
+        this.savedMealPlanRepository = savedMealPlanRepository;
+        this.structureRepository = structureRepository;
+        this.planCache = planCache;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /** Saves the plan with the food-table totals and accuracy score from {@code verification}. */
+    @Transactional
+    public SavedMealPlan save(SavedMealPlan saved, MealPlan mealPlan, GroceryList groceryList, MacroVerifier.Report verification) {
+        if (verification != null && verification.actualDaily() != null) {
+            MacroTargets actual = verification.actualDaily();
+            saved.setActualCalories(actual.getCalories());
+            saved.setActualProtein(actual.getProtein());
+            saved.setActualCarbs(actual.getCarbs());
+            saved.setActualFat(actual.getFat());
+            saved.setAccuracyScore(verification.accuracyScore());
+            saved.setFlaggedMeals(verification.flagged().size());
+        }
+        saved.setMealPlanJson(null);
+        saved.setGroceryListJson(null);
+        SavedMealPlan persisted = savedMealPlanRepository.save(saved);
+        structureRepository.insert(persisted.getId(), mealPlan, groceryList);
+        // The generated objects are exactly what a later view would rebuild; seed the cache with them
+        planCache.put(persisted.getId(), new ParsedPlanCache.Entry(mealPlan, groceryList));
+        return persisted;
+    }
+
+    public MealPlan loadMealPlan(SavedMealPlan saved) throws Exception {
+        return load(saved).mealPlan();
+    }
+
+    public GroceryList loadGroceryList(SavedMealPlan saved) throws Exception {
+        return load(saved).groceryList();
+    }
+
+    private ParsedPlanCache.Entry load(SavedMealPlan saved) throws Exception {
+        try {
+            return planCache.get(saved.getId(), id -> {
+                try {
+                    return rebuild(saved);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private ParsedPlanCache.Entry rebuild(SavedMealPlan saved) throws Exception {
+        if (saved.getMealPlanJson() != null) {
+            MealPlan mealPlan = jsonCodec.readMealPlan(saved.getMealPlanJson());
+            GroceryList groceryList = saved.getGroceryListJson() != null
+                    ? jsonCodec.readGroceryList(saved.getGroceryListJson())
+                    : new GroceryList();
+            return new ParsedPlanCache.Entry(mealPlan, groceryList);
+        }
+        return new ParsedPlanCache.Entry(
+                structureRepository.loadMealPlan(saved.getId(), targetsOf(saved)),
+                structureRepository.loadGroceryList(saved.getId()));
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return planCache.getStats();
+    }
+
+    /** Meal and food frequencies across all of a user's normalized plans. */
+    public Map<String, Object> getPlanningStats(Long userId, int limit) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mostPlannedMeals", structureRepository.findMostPlannedMeals(userId, limit));
+        stats.put("mostPlannedFoods", structureRepository.findMostPlannedFoods(userId, limit));
+        return stats;
+    }
+
+    public MacroTargets targetsOf(SavedMealPlan saved) {
+        return new MacroTargets(saved.getTargetCalories(), saved.getTargetProtein(), saved.getTargetCarbs(), saved.getTargetFat());
+    }
+
+    /** Allergies the plan was generated under; empty for plans saved before they were recorded. */
+    public List<String> allergiesOf(SavedMealPlan saved) {
+        List<String> out = new ArrayList<>();
+        if (saved.getAllergies() == null) return out;
+        for (String a : saved.getAllergies().split(",")) {
+            if (!a.isBlank()) out.add(a.trim());
+        }
+        return out;
+    }
+
+    /** Records the allergies on the plan row; entries past the column width are dropped whole, never cut. */
+    public void setAllergies(SavedMealPlan saved, Collection<String> allergies) {
+        StringBuilder joined = new StringBuilder();
+        if (allergies != null) {
+            for (String a : allergies) {
+                if (a == null || a.isBlank()) continue;
+                String entry = a.trim().replace(",", " ");
+                if (joined.length() + entry.length() + 1 > ALLERGIES_LENGTH) break;
+                if (joined.length() > 0) joined.append(',');
+                joined.append(entry);
+            }
+        }
+        saved.setAllergies(joined.length() == 0 ? null : joined.toString());
+    }
+}
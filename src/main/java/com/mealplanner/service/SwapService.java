@@ -1,99 +1,148 @@
 package com.mealplanner.service;
 
-import com.mealplanner.model.LearnedUserPreference;
 import com.mealplanner.model.SwapHistory;
 import com.mealplanner.model.User;
-import com.mealplanner.repository.LearnedUserPreferenceRepository;
+import com.mealplanner.repository.LearnedPreferenceUpsertRepository;
 import com.mealplanner.repository.SwapHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class SwapService {
 
+    static final String PREFERS_OVER = "prefers_over";
+    static final String DISLIKES = "dislikes";
+    private static final int MAX_PENDING = 10_000;
+    private static final int MAX_BATCH = 500;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int SUGGESTION_COUNT = 5;
+    private static final double MIN_PORTION_FACTOR = 0.25;
+    private static final double MAX_PORTION_FACTOR = 4.0;
+
     private final SwapHistoryRepository swapHistoryRepository;
-    private final LearnedUserPreferenceRepository preferenceRepository;
+    private final LearnedPreferenceUpsertRepository upsertRepository;
+    private final PreferenceProfileService profileService;
+    private final FoodCatalog foodCatalog;
+    private final AllergenLexicon allergenLexicon;
+    private final TransactionTemplate tx;
+
+    private final BlockingQueue<PreferenceEvent> preferenceEvents = new LinkedBlockingQueue<>(MAX_PENDING);
+    private final AtomicLong droppedPreferenceEvents = new AtomicLong();
+
+    // One recorded swap: the replacement is preferred over the original, and the original is disliked
+    private record PreferenceEvent(long userId, String originalFood, String replacementFood, int attempts) {
+        PreferenceEvent retried() {
+            return new PreferenceEvent(userId, originalFood, replacementFood, attempts + 1);
+        }
+    }
+
+    private record ObservationKey(long userId, String preferenceType, String foodItem, String comparedToFood) {}
 
     public SwapService(SwapHistoryRepository swapHistoryRepository,
-                       LearnedUserPreferenceRepository preferenceRepository) {
+                       LearnedPreferenceUpsertRepository upsertRepository,
+                       PreferenceProfileService profileService,
+                       FoodCatalog foodCatalog,
+                       AllergenLexicon allergenLexicon,
+                       PlatformTransactionManager transactionManager) {
         this.swapHistoryRepository = swapHistoryRepository;
-        this.preferenceRepository = preferenceRepository;
+        this.upsertRepository = upsertRepository;
+        this.profileService = profileService;
+        this.foodCatalog = foodCatalog;
+        this.allergenLexicon = allergenLexicon;
+        this.tx = new TransactionTemplate(transactionManager);
     }
 
-    public List<Map<String, Object>> getSwapSuggestions(String originalFood, Map<String, Integer> macros) {
-        String category = categorizeFood(originalFood);
-        switch (category) {
-            case "protein": return getProteinSwaps(macros);
-            case "carb": return getCarbSwaps(macros);
-            case "veggie": return getVeggieSwaps();
-            case "fat": return getFatSwaps(macros);
-            default: return Collections.emptyList();
+    /**
+     * Foods closest in macro composition to {@code originalFood}, each scaled to the original's calories.
+     * The original's macros come from {@code macros} when the caller knows them, otherwise from its catalog
+     * serving; an unrecognised food with no macros yields no suggestions. Foods carrying one of the given
+     * allergens, or matching the user's avoided and learned-disliked foods, are never suggested.
+     */
+    public List<Suggestion> getSwapSuggestions(Long userId, String originalFood, Map<String, Integer> macros,
+                                               Collection<String> allergies) {
+        Optional<FoodCatalog.Food> original = foodCatalog.find(originalFood);
+        double cal = macros.getOrDefault("calories", 0);
+        double p, c, f;
+        if (cal > 0) {
+            p = macros.getOrDefault("protein", 0);
+            c = macros.getOrDefault("carbs", 0);
+            f = macros.getOrDefault("fat", 0);
+        } else if (original.isPresent()) {
+            FoodCatalog.Food o = original.get();
+            cal = o.calories(); p = o.protein(); c = o.carbs(); f = o.fat();
+        } else {
+            return List.of();
         }
-    }
 
-    private List<Map<String, Object>> getProteinSwaps(Map<String, Integer> t) {
-        List<Map<String, Object>> swaps = new ArrayList<>();
-        swaps.add(create("Chicken breast (6oz)", 280, 53, 0, 6));
-        swaps.add(create("Ground turkey (6oz)", 260, 48, 0, 10));
-        swaps.add(create("Salmon (6oz)", 340, 40, 0, 20));
-        swaps.add(create("Lean ground beef (5oz)", 310, 42, 0, 18));
-        swaps.add(create("Tilapia (8oz)", 290, 50, 0, 8));
-        return swaps;
+        Set<String> allergenTags = allergenTags(allergies);
+        AllergenLexicon.Guard allergyNames = allergenLexicon.guardFor(allergies);
+        FoodTermMatcher avoided = profileService.get(userId).getAvoidMatcher();
+        FoodCatalog.Food self = original.orElse(null);
+        List<FoodCatalog.Food> nearest = foodCatalog.index().nearest(MacroKdTree.vector(cal, p, c, f), SUGGESTION_COUNT, food ->
+                food != self
+                        && Collections.disjoint(food.allergens(), allergenTags)
+                        && !allergyNames.matches(food.name())
+                        && !avoided.matches(food.name()));
+
+        List<Suggestion> out = new ArrayList<>(nearest.size());
+        for (FoodCatalog.Food food : nearest) out.add(scaled(food, cal));
+        return out;
     }
 
-    private List<Map<String, Object>> getCarbSwaps(Map<String, Integer> t) {
-        List<Map<String, Object>> swaps = new ArrayList<>();
-        swaps.add(create("White rice (1 cup)", 200, 4, 45, 0));
-        swaps.add(create("Sweet potato (200g)", 180, 4, 41, 0));
-        swaps.add(create("Oats (1 cup cooked)", 150, 5, 27, 3));
-        swaps.add(create("Whole wheat bread (2 slices)", 160, 8, 28, 2));
-        swaps.add(create("Quinoa (1 cup cooked)", 220, 8, 39, 4));
-        return swaps;
+    /** A replacement food at the portion that matches the original's calories. */
+    public record Suggestion(String name, String food, String portion, int calories, int protein, int carbs, int fat) {}
+
+    private static Suggestion scaled(FoodCatalog.Food food, double targetCalories) {
+        double factor = Math.max(MIN_PORTION_FACTOR, Math.min(MAX_PORTION_FACTOR, targetCalories / food.calories()));
+        double amount = roundPortion(food.amount() * factor, food.unit());
+        double actual = amount / food.amount();
+        String portion = formatAmount(amount) + " " + food.unit();
+        return new Suggestion(food.name() + " (" + portion + ")", food.name(), portion,
+                (int) Math.round(food.calories() * actual), (int) Math.round(food.protein() * actual),
+                (int) Math.round(food.carbs() * actual), (int) Math.round(food.fat() * actual));
     }
 
-    private List<Map<String, Object>> getVeggieSwaps() {
-        List<Map<String, Object>> swaps = new ArrayList<>();
-        swaps.add(create("Broccoli (1 cup)", 31, 3, 6, 0));
-        swaps.add(create("Spinach (2 cups)", 14, 2, 2, 0));
-        swaps.add(create("Green beans (1 cup)", 31, 2, 7, 0));
-        swaps.add(create("Bell peppers (1 cup)", 30, 1, 7, 0));
-        swaps.add(create("Asparagus (1 cup)", 27, 3, 5, 0));
-        swaps.add(create("Zucchini (1 cup)", 20, 1, 4, 0));
-        return swaps;
+    // Kitchen-friendly steps: 5 g, half ounces and half units, quarter cups and spoons
+    private static double roundPortion(double amount, String unit) {
+        double step = switch (unit) {
+            case "g" -> 5;
+            case "cup", "tbsp", "tsp" -> 0.25;
+            default -> 0.5;
+        };
+        return Math.max(step, Math.round(amount / step) * step);
     }
 
-    private List<Map<String, Object>> getFatSwaps(Map<String, Integer> t) {
-        List<Map<String, Object>> swaps = new ArrayList<>();
-        swaps.add(create("Avocado (1/2 medium)", 120, 1, 6, 11));
-        swaps.add(create("Almonds (1oz)", 160, 6, 6, 14));
-        swaps.add(create("Olive oil (1 tbsp)", 120, 0, 0, 14));
-        swaps.add(create("Peanut butter (2 tbsp)", 190, 8, 7, 16));
-        swaps.add(create("Walnuts (1oz)", 185, 4, 4, 18));
-        return swaps;
+    private static String formatAmount(double amount) {
+        return amount == Math.rint(amount) ? String.valueOf((long) amount) : String.valueOf(amount);
     }
 
-    private Map<String, Object> create(String name, int cal, int p, int c, int f) {
-        Map<String, Object> m = new HashMap<>();
-        m.put("name", name);
-        m.put("calories", cal);
-        m.put("protein", p);
-        m.put("carbs", c);
-        m.put("fat", f);
-        return m;
-    }
-
-    private String categorizeFood(String food) {
-        String lower = Optional.ofNullable(food).orElse("").toLowerCase();
-        if (lower.matches(".*(chicken|salmon|beef|turkey|fish|egg|protein).*")) return "protein";
-        if (lower.matches(".*(rice|potato|oat|bread|pasta|quinoa).*")) return "carb";
-        if (lower.matches(".*(broccoli|spinach|pepper|veggie|vegetable|green).*")) return "veggie";
-        if (lower.matches(".*(avocado|oil|nut|butter).*")) return "fat";
-        return "unknown";
+    // Form options such as "Gluten/Wheat" and "Tree Nuts" to the catalog's lower-case allergen tags
+    private static Set<String> allergenTags(Collection<String> allergies) {
+        if (allergies == null || allergies.isEmpty()) return Set.of();
+        Set<String> tags = new HashSet<>();
+        for (String a : allergies) {
+            if (a == null) continue;
+            for (String part : a.split("/")) {
+                String t = part.trim().toLowerCase(Locale.ROOT);
+                if (!t.isEmpty()) tags.add(t);
+            }
+        }
+        return tags;
     }
 
+    /**
+     * Appends the swap to history and queues the preference observations it implies. The learned-preference
+     * rows are updated by {@link #flushPreferenceEvents()}, so the request only pays for the history insert.
+     */
     public void recordSwap(User user, String swapType, String originalFood, String replacementFood, String mealContext) {
         SwapHistory sh = new SwapHistory();
         sh.setUser(user);
@@ -103,66 +152,68 @@ public class SwapService {
         sh.setMealContext(mealContext);
         sh.setSwapDate(LocalDateTime.now());
         swapHistoryRepository.save(sh);
-        updateLearnedPreferences(user, originalFood, replacementFood);
-    }
 
-    private void updateLearnedPreferences(User user, String originalFood, String replacementFood) {
-        Optional<LearnedUserPreference> prefOpt = preferenceRepository
-                .findByUserAndPreferenceTypeAndFoodItemAndComparedToFood(user, "prefers_over", replacementFood, originalFood);
-        if (prefOpt.isPresent()) {
-            LearnedUserPreference pref = prefOpt.get();
-            pref.setTimesObserved(pref.getTimesObserved() + 1);
-            BigDecimal newConf = pref.getConfidenceScore().add(new BigDecimal("0.10"));
-            if (newConf.compareTo(new BigDecimal("0.95")) > 0) newConf = new BigDecimal("0.95");
-            pref.setConfidenceScore(newConf);
-            pref.setLastObserved(LocalDateTime.now());
-            preferenceRepository.save(pref);
-        } else {
-            LearnedUserPreference pref = new LearnedUserPreference();
-            pref.setUser(user);
-            pref.setPreferenceType("prefers_over");
-            pref.setFoodItem(replacementFood);
-            pref.setComparedToFood(originalFood);
-            preferenceRepository.save(pref);
+        if (user.getId() == null || originalFood == null || replacementFood == null) return;
+        if (!preferenceEvents.offer(new PreferenceEvent(user.getId(), clip(originalFood), clip(replacementFood), 0))) {
+            // History still has the swap; only the learned signal for this one is lost
+            droppedPreferenceEvents.incrementAndGet();
         }
+    }
 
-        Optional<LearnedUserPreference> dislike = preferenceRepository
-                .findByUserAndPreferenceTypeAndFoodItemAndComparedToFood(user, "dislikes", originalFood, null);
-        if (dislike.isPresent()) {
-            LearnedUserPreference d = dislike.get();
-            d.setTimesObserved(d.getTimesObserved() + 1);
-            BigDecimal newConf = d.getConfidenceScore().add(new BigDecimal("0.10"));
-            if (newConf.compareTo(new BigDecimal("0.95")) > 0) newConf = new BigDecimal("0.95");
-            d.setConfidenceScore(newConf);
-            d.setLastObserved(LocalDateTime.now());
-            preferenceRepository.save(d);
-        } else {
-            LearnedUserPreference d = new LearnedUserPreference();
-            d.setUser(user);
-            d.setPreferenceType("dislikes");
-            d.setFoodItem(originalFood);
-            preferenceRepository.save(d);
+    public long getDroppedPreferenceEventCount() {
+        return droppedPreferenceEvents.get();
+    }
+
+    /**
+     * Folds queued swaps into learned preferences. Repeated observations of the same key within a batch are
+     * coalesced into one increment; each batch is two JDBC batch statements in one transaction. A batch that
+     * fails is queued again and retried on later flushes, up to {@code MAX_ATTEMPTS}.
+     */
+    @Scheduled(fixedDelayString = "${swap.preferences.flush-ms:1000}")
+    public void flushPreferenceEvents() {
+        while (!preferenceEvents.isEmpty()) {
+            List<PreferenceEvent> batch = new ArrayList<>(Math.min(preferenceEvents.size(), MAX_BATCH));
+            preferenceEvents.drainTo(batch, MAX_BATCH);
+            if (batch.isEmpty()) return;
+
+            Map<ObservationKey, Integer> counts = new LinkedHashMap<>();
+            for (PreferenceEvent e : batch) {
+                counts.merge(new ObservationKey(e.userId(), PREFERS_OVER, e.replacementFood(), e.originalFood()), 1, Integer::sum);
+                counts.merge(new ObservationKey(e.userId(), DISLIKES, e.originalFood(), ""), 1, Integer::sum);
+            }
+            List<LearnedPreferenceUpsertRepository.Observation> observations = new ArrayList<>(counts.size());
+            counts.forEach((k, n) -> observations.add(new LearnedPreferenceUpsertRepository.Observation(
+                    k.userId(), k.preferenceType(), k.foodItem(), k.comparedToFood(), n)));
+            try {
+                tx.executeWithoutResult(status -> upsertRepository.apply(observations, LocalDateTime.now()));
+            } catch (Exception e) {
+                System.err.println("Error applying " + batch.size() + " learned preference events: " + e.getMessage());
+                requeue(batch);
+                return;
+            }
+            // Only after commit, so a profile rebuilt right away sees the new confidences
+            Set<Long> touched = new HashSet<>();
+            for (PreferenceEvent e : batch) touched.add(e.userId());
+            profileService.invalidateAll(touched);
         }
     }
 
-    public String buildLearnedPreferencesPrompt(User user) {
-        List<LearnedUserPreference> list = preferenceRepository
-                .findByUserAndConfidenceScoreGreaterThanEqual(user, new BigDecimal("0.70"));
-        if (list == null || list.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n\nLEARNED USER PREFERENCES (High Confidence):\n");
-        for (LearnedUserPreference p : list) {
-            if ("prefers_over".equals(p.getPreferenceType())) {
-                sb.append(String.format("- Prefers %s over %s (confidence: %.0f%%)\n",
-                        p.getFoodItem(), p.getComparedToFood(), p.getConfidenceScore().multiply(new BigDecimal("100")).doubleValue()));
-            } else if ("dislikes".equals(p.getPreferenceType())) {
-                sb.append(String.format("- Avoid %s (confidence: %.0f%%)\n",
-                        p.getFoodItem(), p.getConfidenceScore().multiply(new BigDecimal("100")).doubleValue()));
+    // The transaction rolled back, so none of the batch was applied; retry it on a later flush
+    private void requeue(List<PreferenceEvent> batch) {
+        for (PreferenceEvent e : batch) {
+            if (e.attempts() + 1 >= MAX_ATTEMPTS || !preferenceEvents.offer(e.retried())) {
+                droppedPreferenceEvents.incrementAndGet();
             }
         }
-        sb.append("\nIMPORTANT: Use their preferred foods. Avoid disliked foods.\n");
-        sb.append("Remember: ALWAYS use white rice, never brown rice.\n");
-        return sb.toString();
     }
-}
 
+    @PreDestroy
+    public void shutdown() {
+        flushPreferenceEvents();
+    }
+
+    private static String clip(String food) {
+        String s = food.trim();
+        return s.length() > 255 ? s.substring(0, 255) : s;
+    }
+}
@@ -13,9 +13,12 @@ import java.util.stream.Collectors;
 public class UserFoodPreferencesService {
 
     private final UserFoodPreferencesRepository preferencesRepository;
+    private final PreferenceProfileService profileService;
 
-    public UserFoodPreferencesService(UserFoodPreferencesRepository preferencesRepository) {
+    public UserFoodPreferencesService(UserFoodPreferencesRepository preferencesRepository,
+                                      PreferenceProfileService profileService) {
         this.preferencesRepository = preferencesRepository;
+        this.profileService = profileService;
     }
 
     public UserFoodPreferences getUserPreferences(User user) {
@@ -34,7 +37,9 @@ public class UserFoodPreferencesService {
         prefs.setAvoidedFoodsText(cleanFoodList(avoidedFoodsText));
         prefs.setCookingPreference(cookingPreference);
         prefs.setDietaryStyle(dietaryStyle);
-        return preferencesRepository.save(prefs);
+        UserFoodPreferences saved = preferencesRepository.save(prefs);
+        profileService.invalidate(user.getId());
+        return saved;
     }
 
     private String cleanFoodList(String foodList) {
@@ -50,29 +55,4 @@ public class UserFoodPreferencesService {
     public boolean hasPreferences(User user) {
         return preferencesRepository.existsByUser(user);
     }
-
-    public String buildPreferencesPrompt(User user) {
-        UserFoodPreferences prefs = getUserPreferences(user);
-        if (prefs == null || (prefs.getPreferredFoodsText() == null || prefs.getPreferredFoodsText().isEmpty())) {
-            return "";
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n\nUSER'S FOOD PREFERENCES:\n");
-        if (prefs.getPreferredFoodsText() != null && !prefs.getPreferredFoodsText().isEmpty()) {
-            sb.append("- Foods they like and want: ").append(prefs.getPreferredFoodsText()).append("\n");
-        }
-        if (prefs.getAvoidedFoodsText() != null && !prefs.getAvoidedFoodsText().isEmpty()) {
-            sb.append("- Foods to avoid: ").append(prefs.getAvoidedFoodsText()).append("\n");
-        }
-        if (prefs.getCookingPreference() != null && !prefs.getCookingPreference().isEmpty()) {
-            sb.append("- Cooking preference: ").append(prefs.getCookingPreference()).append("\n");
-        }
-        if (prefs.getDietaryStyle() != null && !prefs.getDietaryStyle().isEmpty()) {
-            sb.append("- Dietary style: ").append(prefs.getDietaryStyle()).append("\n");
-        }
-        sb.append("\nIMPORTANT: Use foods from their preferred list. Respect their preferences completely.\n");
-        sb.append("Do NOT exclude convenient, packaged, or restaurant foods if they fit macros.\n");
-        return sb.toString();
-    }
 }
-
@@ -0,0 +1,30 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Pooled sequence for food_logs ids so Hibernate can batch inserts. Written in Java because the start
+ * value depends on existing rows and neither H2 nor PostgreSQL accepts a subquery in CREATE SEQUENCE.
+ * The identity default on food_logs.id stays in place and is simply no longer used by the application.
+ */
+public class V3__food_logs_sequence extends BaseJavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement st = context.getConnection().createStatement()) {
+            long maxId = 0;
+            try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM food_logs")) {
+                if (rs.next()) maxId = rs.getLong(1);
+            }
+            // Hibernate's pooled optimizer hands out (value - allocationSize, value]; keep that whole block above maxId
+            long start = maxId + ALLOCATION_SIZE + 1;
+            st.execute("CREATE SEQUENCE food_logs_seq START WITH " + start + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+-- Tables added after the Hibernate-managed schema: AI usage records and their daily rollup, the per-day
+-- nutrition summary, and the relational copy of saved plans. Kept out of V1 so databases baselined at
+-- version 1 (which skip V1) still get them.
+
+CREATE SEQUENCE ai_usage_records_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE ai_usage_records (
+    id                    BIGINT PRIMARY KEY,
+    user_id               BIGINT,
+    feature               VARCHAR(20) NOT NULL,
+    provider              VARCHAR(20),
+    model                 VARCHAR(100),
+    input_tokens          INTEGER NOT NULL,
+    output_tokens         INTEGER NOT NULL,
+    cache_creation_tokens INTEGER NOT NULL,
+    cache_read_tokens     INTEGER NOT NULL,
+    latency_ms            BIGINT NOT NULL,
+    stop_reason           VARCHAR(50),
+    cost_usd              DOUBLE PRECISION NOT NULL,
+    success               BOOLEAN NOT NULL,
+    created_at            TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE ai_usage_daily (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    usage_date            DATE NOT NULL,
+    feature               VARCHAR(20) NOT NULL,
+    model                 VARCHAR(100) NOT NULL,
+    calls                 BIGINT NOT NULL,
+    failures              BIGINT NOT NULL,
+    input_tokens          BIGINT NOT NULL,
+    output_tokens         BIGINT NOT NULL,
+    cache_creation_tokens BIGINT NOT NULL,
+    cache_read_tokens     BIGINT NOT NULL,
+    total_latency_ms      BIGINT NOT NULL,
+    cost_usd              DOUBLE PRECISION NOT NULL,
+    CONSTRAINT uk_ai_usage_daily UNIQUE (usage_date, feature, model)
+);
+
+CREATE TABLE daily_nutrition_summary (
+    user_id  BIGINT NOT NULL,
+    log_date DATE NOT NULL,
+    calories INTEGER NOT NULL,
+    protein  INTEGER NOT NULL,
+    carbs    INTEGER NOT NULL,
+    fat      INTEGER NOT NULL,
+    entries  INTEGER NOT NULL,
+    PRIMARY KEY (user_id, log_date)
+);
+CREATE INDEX idx_daily_nutrition_summary_date ON daily_nutrition_summary (log_date);
+
+CREATE TABLE saved_plan_days (
+    plan_id    BIGINT NOT NULL,
+    day_number INTEGER NOT NULL,
+    calories   INTEGER,
+    protein    INTEGER,
+    carbs      INTEGER,
+    fat        INTEGER,
+    PRIMARY KEY (plan_id, day_number),
+    CONSTRAINT fk_saved_plan_days_plan FOREIGN KEY (plan_id) REFERENCES saved_meal_plans (id) ON DELETE CASCADE
+);
+
+CREATE TABLE saved_plan_meals (
+    plan_id      BIGINT NOT NULL,
+    day_number   INTEGER NOT NULL,
+    meal_index   INTEGER NOT NULL,
+    name         VARCHAR(255),
+    calories     INTEGER,
+    protein      INTEGER,
+    carbs        INTEGER,
+    fat          INTEGER,
+    has_recipe   BOOLEAN NOT NULL,
+    recipe_name  VARCHAR(255),
+    ingredients  TEXT,
+    instructions TEXT,
+    prep_time    VARCHAR(50),
+    cook_time    VARCHAR(50),
+    total_time   VARCHAR(50),
+    PRIMARY KEY (plan_id, day_number, meal_index),
+    CONSTRAINT fk_saved_plan_meals_plan FOREIGN KEY (plan_id) REFERENCES saved_meal_plans (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_saved_plan_meals_name ON saved_plan_meals (name);
+
+CREATE TABLE saved_plan_foods (
+    plan_id    BIGINT NOT NULL,
+    day_number INTEGER NOT NULL,
+    meal_index INTEGER NOT NULL,
+    food_index INTEGER NOT NULL,
+    item       VARCHAR(255),
+    portion    VARCHAR(255),
+    PRIMARY KEY (plan_id, day_number, meal_index, food_index),
+    CONSTRAINT fk_saved_plan_foods_plan FOREIGN KEY (plan_id) REFERENCES saved_meal_plans (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_saved_plan_foods_item ON saved_plan_foods (item);
+
+CREATE TABLE saved_plan_grocery_items (
+    plan_id        BIGINT NOT NULL,
+    category_index INTEGER NOT NULL,
+    line_index     INTEGER NOT NULL,
+    category       VARCHAR(50),
+    line           VARCHAR(255),
+    PRIMARY KEY (plan_id, category_index, line_index),
+    CONSTRAINT fk_saved_plan_grocery_items_plan FOREIGN KEY (plan_id) REFERENCES saved_meal_plans (id) ON DELETE CASCADE
+);
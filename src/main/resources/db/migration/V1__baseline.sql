@@ -0,0 +1,99 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). Databases that already have these
+-- tables are baselined at this version (spring.flyway.baseline-on-migrate) and skip this script.
+-- Written in the PostgreSQL dialect; dev H2 runs with MODE=PostgreSQL.
+
+CREATE TABLE users (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email               VARCHAR(255) NOT NULL,
+    name                VARCHAR(255) NOT NULL,
+    profile_picture_url VARCHAR(255),
+    google_id           VARCHAR(255) NOT NULL,
+    created_at          TIMESTAMP(6),
+    last_login_at       TIMESTAMP(6),
+    is_admin            BOOLEAN NOT NULL,
+    timezone            VARCHAR(255),
+    last_active_at      TIMESTAMP(6),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_google_id UNIQUE (google_id)
+);
+
+CREATE TABLE saved_meal_plans (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id            BIGINT NOT NULL,
+    created_at         TIMESTAMP(6),
+    weight             DOUBLE PRECISION NOT NULL,
+    height_feet        INTEGER NOT NULL,
+    height_inches      INTEGER NOT NULL,
+    age                INTEGER NOT NULL,
+    sex                VARCHAR(255),
+    activity_level     VARCHAR(255),
+    fitness_goal       VARCHAR(255),
+    target_calories    INTEGER NOT NULL,
+    target_protein     INTEGER NOT NULL,
+    target_carbs       INTEGER NOT NULL,
+    target_fat         INTEGER NOT NULL,
+    meal_plan_json     TEXT,
+    grocery_list_json  TEXT,
+    actual_calories    INTEGER,
+    actual_protein     INTEGER,
+    actual_carbs       INTEGER,
+    actual_fat         INTEGER,
+    accuracy_score     DOUBLE PRECISION,
+    generation_failed  BOOLEAN NOT NULL,
+    error_message      TEXT,
+    CONSTRAINT fk_saved_meal_plans_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE food_logs (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id          BIGINT NOT NULL,
+    log_date         DATE NOT NULL,
+    time_logged      TIMESTAMP(6),
+    meal_name        VARCHAR(100),
+    food_description TEXT NOT NULL,
+    calories         INTEGER NOT NULL,
+    protein          INTEGER NOT NULL,
+    carbs            INTEGER NOT NULL,
+    fat              INTEGER NOT NULL,
+    from_meal_plan   BOOLEAN NOT NULL,
+    meal_plan_id     BIGINT,
+    CONSTRAINT fk_food_logs_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_food_logs_meal_plan FOREIGN KEY (meal_plan_id) REFERENCES saved_meal_plans (id)
+);
+
+CREATE TABLE learned_user_preferences (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id          BIGINT NOT NULL,
+    preference_type  VARCHAR(50) NOT NULL,
+    food_item        VARCHAR(255) NOT NULL,
+    compared_to_food VARCHAR(255),
+    confidence_score NUMERIC(3, 2),
+    times_observed   INTEGER,
+    last_observed    TIMESTAMP(6),
+    created_at       TIMESTAMP(6),
+    CONSTRAINT fk_learned_user_preferences_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_swap_history (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id          BIGINT NOT NULL,
+    swap_type        VARCHAR(20) NOT NULL,
+    original_food    VARCHAR(255) NOT NULL,
+    replacement_food VARCHAR(255) NOT NULL,
+    meal_context     VARCHAR(50),
+    swap_date        TIMESTAMP(6),
+    CONSTRAINT fk_user_swap_history_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_food_preferences (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id              BIGINT NOT NULL,
+    preferred_foods_text TEXT,
+    avoided_foods_text   TEXT,
+    cooking_preference   VARCHAR(50),
+    dietary_style        VARCHAR(50),
+    created_at           TIMESTAMP(6),
+    updated_at           TIMESTAMP(6),
+    CONSTRAINT uk_user_food_preferences_user UNIQUE (user_id),
+    CONSTRAINT fk_user_food_preferences_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
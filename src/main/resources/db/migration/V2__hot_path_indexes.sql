@@ -0,0 +1,22 @@
+-- Indexes for the access paths every page uses. users.email and users.google_id are already
+-- covered by their unique constraints.
+
+-- Daily log, history and range reads: user + date, ordered by time within the day
+CREATE INDEX idx_food_logs_user_date_time ON food_logs (user_id, log_date, time_logged);
+
+-- Admin food log listing (log_date desc nulls last, id desc) across all users
+CREATE INDEX idx_food_logs_date_id ON food_logs (log_date DESC NULLS LAST, id DESC);
+
+-- "My plans", latest-targets lookups and the per-user admin plan tab. Declared in the order those
+-- queries read it (newest first) so H2 can also return rows in index order without a sort
+CREATE INDEX idx_saved_meal_plans_user_created ON saved_meal_plans (user_id DESC, created_at DESC);
+
+-- Admin plan listing (created_at desc nulls last, id desc) across all users. created_at is nullable, and
+-- PostgreSQL and H2 disagree on where a DESC index puts nulls, so the order is spelled out
+CREATE INDEX idx_saved_meal_plans_created ON saved_meal_plans (created_at DESC NULLS LAST, id DESC);
+
+-- Swap learning looks up one (user, type, food, compared-to) row per recorded swap
+CREATE INDEX idx_learned_prefs_lookup
+    ON learned_user_preferences (user_id, preference_type, food_item, compared_to_food);
+
+CREATE INDEX idx_user_swap_history_user_date ON user_swap_history (user_id, swap_date);
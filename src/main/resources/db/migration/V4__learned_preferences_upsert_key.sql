@@ -0,0 +1,38 @@
+-- Learned preferences are now written with insert-if-absent plus atomic increments keyed on
+-- (user, type, food, compared-to). That needs a real unique key, so null comparisons become ''
+-- and duplicate rows left by the old read-modify-write path are folded into the oldest one.
+
+UPDATE learned_user_preferences SET compared_to_food = '' WHERE compared_to_food IS NULL;
+
+UPDATE learned_user_preferences SET times_observed = (
+    SELECT SUM(COALESCE(d.times_observed, 1)) FROM learned_user_preferences d
+    WHERE d.user_id = learned_user_preferences.user_id
+      AND d.preference_type = learned_user_preferences.preference_type
+      AND d.food_item = learned_user_preferences.food_item
+      AND d.compared_to_food = learned_user_preferences.compared_to_food)
+WHERE id = (
+    SELECT MIN(k.id) FROM learned_user_preferences k
+    WHERE k.user_id = learned_user_preferences.user_id
+      AND k.preference_type = learned_user_preferences.preference_type
+      AND k.food_item = learned_user_preferences.food_item
+      AND k.compared_to_food = learned_user_preferences.compared_to_food);
+
+DELETE FROM learned_user_preferences WHERE id > (
+    SELECT MIN(k.id) FROM learned_user_preferences k
+    WHERE k.user_id = learned_user_preferences.user_id
+      AND k.preference_type = learned_user_preferences.preference_type
+      AND k.food_item = learned_user_preferences.food_item
+      AND k.compared_to_food = learned_user_preferences.compared_to_food);
+
+ALTER TABLE learned_user_preferences ALTER COLUMN compared_to_food SET NOT NULL;
+
+-- Confidence as whole percent (fixed-point) instead of NUMERIC(3,2)
+ALTER TABLE learned_user_preferences ADD COLUMN confidence_pct INTEGER;
+UPDATE learned_user_preferences SET confidence_pct = CAST(ROUND(COALESCE(confidence_score, 0.50) * 100) AS INTEGER);
+ALTER TABLE learned_user_preferences ALTER COLUMN confidence_pct SET NOT NULL;
+ALTER TABLE learned_user_preferences DROP COLUMN confidence_score;
+
+-- The unique constraint's index serves the same lookups as the plain index it replaces
+DROP INDEX idx_learned_prefs_lookup;
+ALTER TABLE learned_user_preferences ADD CONSTRAINT uk_learned_user_preferences
+    UNIQUE (user_id, preference_type, food_item, compared_to_food);
@@ -0,0 +1,2 @@
+-- Count of meals whose claimed macros disagree with the food-table computation at save time
+ALTER TABLE saved_meal_plans ADD COLUMN flagged_meals INTEGER;
@@ -0,0 +1,13 @@
+-- HTTP sessions shared by every node. Times are epoch milliseconds; attributes are one Java-serialized map.
+
+CREATE TABLE http_sessions (
+    id                   VARCHAR(64) PRIMARY KEY,
+    created_at           BIGINT NOT NULL,
+    last_accessed_at     BIGINT NOT NULL,
+    max_inactive_seconds INTEGER NOT NULL,
+    expires_at           BIGINT NOT NULL,
+    attributes           BYTEA NOT NULL
+);
+
+-- Periodic removal of expired sessions
+CREATE INDEX idx_http_sessions_expires_at ON http_sessions (expires_at);
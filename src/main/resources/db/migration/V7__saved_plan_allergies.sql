@@ -0,0 +1,2 @@
+-- Allergies a plan was generated and checked under, comma-separated, so swaps on the saved plan honour them
+ALTER TABLE saved_meal_plans ADD COLUMN allergies VARCHAR(1000);
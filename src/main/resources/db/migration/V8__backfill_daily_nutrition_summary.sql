@@ -0,0 +1,7 @@
+-- Fill daily_nutrition_summary for logs written before the table was maintained. Days that already
+-- have a row were kept up to date by the application and are left as they are
+INSERT INTO daily_nutrition_summary (user_id, log_date, calories, protein, carbs, fat, entries)
+SELECT user_id, log_date, SUM(calories), SUM(protein), SUM(carbs), SUM(fat), COUNT(*)
+FROM food_logs
+GROUP BY user_id, log_date
+ON CONFLICT DO NOTHING;
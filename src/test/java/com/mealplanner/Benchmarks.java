@@ -0,0 +1,50 @@
+package com.mealplanner;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Minimal timing harness for the tests tagged {@code benchmark} (run with {@code mvn -Pbenchmark test}).
+ * Results are printed, not asserted; the tests assert only that each side computed the same thing.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /** Median and 95th percentile of {@code runs} timed calls, after {@code warmup} untimed ones. */
+    public record Timing(String label, double medianMs, double p95Ms) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-48s median %9.3f ms   p95 %9.3f ms", label, medianMs, p95Ms);
+        }
+    }
+
+    public static Timing time(String label, int warmup, int runs, Runnable task) {
+        for (int i = 0; i < warmup; i++) task.run();
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        Timing t = new Timing(label, nanos[runs / 2] / 1e6, nanos[Math.min(runs - 1, (int) Math.ceil(runs * 0.95) - 1)] / 1e6);
+        System.out.println("[benchmark] " + t);
+        return t;
+    }
+
+    /** Runs {@code task} once and prints how long it took. */
+    public static <T> T once(String label, Supplier<T> task) {
+        long start = System.nanoTime();
+        T result = task.get();
+        System.out.printf(Locale.ROOT, "[benchmark] %-48s %9.1f ms%n", label, (System.nanoTime() - start) / 1e6);
+        return result;
+    }
+
+    /** An integer system property, so a run can be scaled with {@code -Dbenchmark.<name>=...}. */
+    public static int size(String name, int defaultValue) {
+        return Integer.getInteger("benchmark." + name, defaultValue);
+    }
+}
@@ -0,0 +1,83 @@
+package com.mealplanner;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlywayMigrationTest {
+
+    private static final List<String> PRE_SERIES_TABLES = List.of(
+            "users", "saved_meal_plans", "food_logs", "learned_user_preferences", "user_swap_history", "user_food_preferences");
+
+    private static final List<String> SERIES_TABLES = List.of(
+            "ai_usage_records", "ai_usage_daily", "daily_nutrition_summary",
+            "saved_plan_days", "saved_plan_meals", "saved_plan_foods", "saved_plan_grocery_items", "http_sessions");
+
+    @Test
+    void freshDatabaseGetsEveryTable() {
+        DataSource ds = TestDatabases.migrated();
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+        for (String table : PRE_SERIES_TABLES) assertThat(tableExists(jdbc, table)).as(table).isTrue();
+        for (String table : SERIES_TABLES) assertThat(tableExists(jdbc, table)).as(table).isTrue();
+        assertThat(TestDatabases.flyway(ds).info().pending()).isEmpty();
+    }
+
+    @Test
+    void v1HoldsOnlyThePreSeriesSchema() {
+        DataSource ds = TestDatabases.empty();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(ds);
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+        assertThat(userTableCount(jdbc)).isEqualTo(PRE_SERIES_TABLES.size());
+        for (String table : PRE_SERIES_TABLES) assertThat(tableExists(jdbc, table)).as(table).isTrue();
+    }
+
+    @Test
+    void existingHibernateDatabaseIsBaselinedAndGetsTheLaterTables() {
+        // A database created by ddl-auto=update before Flyway: the pre-series tables, with data, and no history table
+        DataSource ds = TestDatabases.empty();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(ds);
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.update("INSERT INTO users (email, name, google_id, is_admin) VALUES ('a@example.com', 'A', 'g-1', FALSE)");
+        Long userId = jdbc.queryForObject("SELECT id FROM users", Long.class);
+        jdbc.update("INSERT INTO food_logs (user_id, log_date, food_description, calories, protein, carbs, fat, from_meal_plan) " +
+                "VALUES (?, DATE '2024-01-01', 'eggs', 150, 12, 1, 10, FALSE)", userId);
+        jdbc.update("INSERT INTO learned_user_preferences (user_id, preference_type, food_item, confidence_score, times_observed) " +
+                "VALUES (?, 'DISLIKES', 'kale', 0.70, 2)", userId);
+
+        Flyway flyway = TestDatabases.flyway(ds);
+        flyway.migrate();
+
+        List<String> applied = Arrays.stream(flyway.info().applied()).map(MigrationInfo::getScript).toList();
+        assertThat(applied).doesNotContain("V1__baseline.sql");
+        assertThat(applied).contains("V1_1__series_tables.sql");
+        for (String table : SERIES_TABLES) assertThat(tableExists(jdbc, table)).as(table).isTrue();
+
+        // Later migrations ran against the existing rows
+        assertThat(jdbc.queryForObject("SELECT confidence_pct FROM learned_user_preferences", Integer.class)).isEqualTo(70);
+        Long next = jdbc.queryForObject("SELECT NEXT VALUE FOR food_logs_seq", Long.class);
+        assertThat(next).isGreaterThan(jdbc.queryForObject("SELECT MAX(id) FROM food_logs", Long.class));
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbc, String table) {
+        Integer n = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND UPPER(TABLE_NAME) = UPPER(?)", Integer.class, table);
+        return n != null && n > 0;
+    }
+
+    private static int userTableCount(JdbcTemplate jdbc) {
+        Integer n = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'", Integer.class);
+        return n == null ? 0 : n;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mealplanner;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Starts the whole application on H2: Flyway builds the schema and Hibernate validates every entity against it. */
+@SpringBootTest
+@ActiveProfiles("test")
+class MealPlannerApplicationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Test
+    void contextLoadsOnTheMigratedSchema() {
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().current()).isNotNull();
+    }
+}
@@ -0,0 +1,39 @@
+package com.mealplanner;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/** Throwaway in-memory H2 databases in the same compatibility mode the application runs with. */
+public final class TestDatabases {
+
+    private TestDatabases() {
+    }
+
+    /** An empty database, unique to the caller, kept open until the JVM exits. */
+    public static DataSource empty() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                "jdbc:h2:mem:test-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        ds.setDriverClassName("org.h2.Driver");
+        return ds;
+    }
+
+    /** A new database with every migration applied, as a fresh install would have it. */
+    public static DataSource migrated() {
+        DataSource ds = empty();
+        flyway(ds).migrate();
+        return ds;
+    }
+
+    /** Flyway configured as in application.properties. */
+    public static Flyway flyway(DataSource ds) {
+        return Flyway.configure()
+                .dataSource(ds)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+}
@@ -0,0 +1,128 @@
+package com.mealplanner.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrecompressedResourceResolverTest {
+
+    @TempDir
+    Path dir;
+
+    private final PrecompressedResourceResolver resolver = new PrecompressedResourceResolver();
+    private final ResourceResolverChain chain = mock(ResourceResolverChain.class);
+    private String css;
+
+    @BeforeEach
+    void setUp() {
+        css = ".card { margin: 0 auto; padding: 1rem; }\n".repeat(200);
+    }
+
+    @Test
+    void largeTextAssetIsServedGzippedUnderItsOwnName() throws IOException {
+        Resource original = file("app.css", css);
+
+        Resource served = resolve(original, "gzip, deflate, br");
+
+        assertThat(served).isInstanceOf(HttpResource.class);
+        assertThat(served.getFilename()).isEqualTo("app.css");
+        assertThat(served.contentLength()).isLessThan(original.contentLength() / 5);
+        HttpHeaders headers = ((HttpResource) served).getResponseHeaders();
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(headers.getFirst(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gunzip(served)).isEqualTo(css);
+    }
+
+    @Test
+    void compressesOncePerResource() throws IOException {
+        Resource original = file("app.css", css);
+        long first = resolve(original, "gzip").contentLength();
+
+        Files.writeString(dir.resolve("app.css"), "changed on disk ".repeat(500));
+
+        // Assets are fingerprinted and immutable, so the first compression is kept
+        Resource again = resolve(original, "gzip");
+        assertThat(again.contentLength()).isEqualTo(first);
+        assertThat(gunzip(again)).isEqualTo(css);
+    }
+
+    @Test
+    void passesThroughWhatItShouldNotCompress() throws IOException {
+        Resource large = file("app.css", css);
+        assertThat(resolve(large, null)).isSameAs(large);
+        assertThat(resolve(large, "br")).isSameAs(large);
+
+        Resource small = file("tiny.css", "body{margin:0}");
+        assertThat(resolve(small, "gzip")).isSameAs(small);
+
+        Resource image = file("logo.png", css);
+        assertThat(resolve(image, "gzip")).isSameAs(image);
+
+        Resource alreadyEncoded = encoded(file("app.js", css), "br");
+        assertThat(resolve(alreadyEncoded, "gzip, br")).isSameAs(alreadyEncoded);
+    }
+
+    @Test
+    void versionedResourceKeepsItsHeaders() throws IOException {
+        Resource file = file("app.js", css);
+        HttpResource versioned = mock(HttpResource.class);
+        HttpHeaders etag = new HttpHeaders();
+        etag.setETag("\"abc123\"");
+        when(versioned.getResponseHeaders()).thenReturn(etag);
+        when(versioned.getFilename()).thenReturn("app.js");
+        when(versioned.getURL()).thenReturn(file.getURL());
+        when(versioned.getInputStream()).thenAnswer(inv -> file.getInputStream());
+
+        HttpHeaders headers = ((HttpResource) resolve(versioned, "gzip")).getResponseHeaders();
+
+        assertThat(headers.getETag()).isEqualTo("\"abc123\"");
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    }
+
+    private Resource resolve(Resource resource, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/css/" + resource.getFilename());
+        if (acceptEncoding != null) request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        when(chain.resolveResource(any(), any(), anyList())).thenReturn(resource);
+        return resolver.resolveResource(request, resource.getFilename(), List.of(), chain);
+    }
+
+    private Resource file(String name, String content) throws IOException {
+        return new FileSystemResource(Files.writeString(dir.resolve(name), content));
+    }
+
+    private static Resource encoded(Resource file, String coding) throws IOException {
+        HttpResource resource = mock(HttpResource.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_ENCODING, coding);
+        when(resource.getResponseHeaders()).thenReturn(headers);
+        when(resource.getFilename()).thenReturn(file.getFilename());
+        when(resource.getURL()).thenReturn(file.getURL());
+        return resource;
+    }
+
+    private static String gunzip(Resource resource) throws IOException {
+        try (InputStream in = new GZIPInputStream(resource.getInputStream())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
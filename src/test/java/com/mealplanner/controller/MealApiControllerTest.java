@@ -0,0 +1,105 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.model.Meal;
+import com.mealplanner.model.SavedMealPlan;
+import com.mealplanner.model.User;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import com.mealplanner.repository.SavedPlanStructureRepository;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.service.JsonCodec;
+import com.mealplanner.service.MealPlanValidator;
+import com.mealplanner.service.MealPrefetchService;
+import com.mealplanner.service.ParsedPlanCache;
+import com.mealplanner.service.PreferenceProfileService;
+import com.mealplanner.service.SavedMealPlanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MealApiControllerTest {
+
+    private SavedMealPlanRepository plans;
+    private SavedMealPlanService planService;
+    private MealPlanValidator validator;
+    private MealApiController controller;
+
+    @BeforeEach
+    void setUp() {
+        plans = mock(SavedMealPlanRepository.class);
+        planService = new SavedMealPlanService(plans, mock(SavedPlanStructureRepository.class),
+                mock(ParsedPlanCache.class), mock(JsonCodec.class));
+        validator = mock(MealPlanValidator.class);
+        MealPrefetchService prefetch = mock(MealPrefetchService.class);
+        when(prefetch.take(anyLong(), anyLong(), anyInt(), anyInt())).thenReturn(Optional.empty());
+        controller = new MealApiController(prefetch, validator, plans, planService, mock(PreferenceProfileService.class));
+    }
+
+    @Test
+    void synchronousSwapIsCheckedAgainstThePlansAndTheRequestsAllergies() {
+        SavedMealPlan saved = plan(5L, 1L);
+        planService.setAllergies(saved, List.of("Peanuts"));
+        when(plans.findById(5L)).thenReturn(Optional.of(saved));
+        Meal meal = new Meal();
+        when(validator.swap(any(), eq("Turkey wrap"), any(), any())).thenReturn(meal);
+
+        ResponseEntity<?> response = controller.swapMeal(user(1L), request(5L, List.of("shellfish", " ")));
+
+        assertThat(response.getBody()).isSameAs(meal);
+        verify(validator).swap(any(), eq("Turkey wrap"),
+                argThat(allergies -> allergies.containsAll(List.of("Peanuts", "shellfish")) && allergies.size() == 2), any());
+    }
+
+    @Test
+    void anotherUsersPlanContributesNoAllergies() {
+        when(plans.findById(5L)).thenReturn(Optional.of(plan(5L, 2L)));
+        planService.setAllergies(plans.findById(5L).get(), List.of("Peanuts"));
+
+        controller.swapMeal(user(1L), request(5L, null));
+
+        verify(validator).swap(any(), any(), argThat(allergies -> allergies.isEmpty()), any());
+    }
+
+    @Test
+    void noCleanReplacementIsABadGateway() {
+        ResponseEntity<?> response = controller.swapMeal(user(1L), request(null, null));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(502);
+    }
+
+    private static MealApiController.SwapMealRequest request(Long planId, List<String> allergies) {
+        MealApiController.SwapMealRequest req = new MealApiController.SwapMealRequest();
+        req.avoidSimilarTo = "Turkey wrap";
+        req.targetCalories = 500;
+        req.planId = planId;
+        req.dayIndex = 0;
+        req.mealIndex = 0;
+        req.allergies = allergies;
+        return req;
+    }
+
+    private static CurrentUser user(long id) {
+        return new CurrentUser(id, "a@example.com", "A", false);
+    }
+
+    private static SavedMealPlan plan(long id, long userId) {
+        User user = new User("a@example.com", "A", "g-1");
+        user.setId(userId);
+        SavedMealPlan saved = new SavedMealPlan();
+        saved.setId(id);
+        saved.setUser(user);
+        return saved;
+    }
+}
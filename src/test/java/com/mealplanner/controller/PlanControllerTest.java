@@ -0,0 +1,91 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.model.SavedMealPlan;
+import com.mealplanner.model.User;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import com.mealplanner.repository.SavedPlanStructureRepository;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.service.JsonCodec;
+import com.mealplanner.service.MacroVerifier;
+import com.mealplanner.service.ParsedPlanCache;
+import com.mealplanner.service.PlanPageCache;
+import com.mealplanner.service.SavedMealPlanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.thymeleaf.TemplateEngine;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlanControllerTest {
+
+    private SavedMealPlanRepository plans;
+    private SavedMealPlanService planService;
+    private PlanController controller;
+
+    @BeforeEach
+    void setUp() {
+        plans = mock(SavedMealPlanRepository.class);
+        planService = new SavedMealPlanService(plans, mock(SavedPlanStructureRepository.class),
+                mock(ParsedPlanCache.class), mock(JsonCodec.class));
+        PlanPageCache pageCache = mock(PlanPageCache.class);
+        when(pageCache.etag(anyLong(), anyString())).thenReturn("\"p1\"");
+        when(pageCache.body(anyLong(), any())).thenReturn("<div>plan</div>");
+        controller = new PlanController(plans, planService, mock(MacroVerifier.class), pageCache, mock(TemplateEngine.class), 60);
+    }
+
+    @Test
+    void savedPlanPageCarriesThePlansAllergies() {
+        SavedMealPlan saved = plan(5L, 1L);
+        planService.setAllergies(saved, List.of("Peanuts", " shellfish ", ""));
+        when(plans.findById(5L)).thenReturn(Optional.of(saved));
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        String view = controller.viewPlan(5L, new CurrentUser(1L, "a@example.com", "A", false), model,
+                new ServletWebRequest(new MockHttpServletRequest()), new MockHttpSession(), new MockHttpServletResponse());
+
+        assertThat(view).isEqualTo("results");
+        assertThat(model.get("allergies")).isEqualTo(List.of("Peanuts", "shellfish"));
+    }
+
+    @Test
+    void plansSavedBeforeAllergiesWereRecordedHaveNone() {
+        when(plans.findById(6L)).thenReturn(Optional.of(plan(6L, 1L)));
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        controller.viewPlan(6L, new CurrentUser(1L, "a@example.com", "A", false), model,
+                new ServletWebRequest(new MockHttpServletRequest()), new MockHttpSession(), new MockHttpServletResponse());
+
+        assertThat(model.get("allergies")).isEqualTo(List.of());
+    }
+
+    @Test
+    void allergiesThatDoNotFitTheColumnAreDroppedWhole() {
+        SavedMealPlan saved = new SavedMealPlan();
+        planService.setAllergies(saved, List.of("a".repeat(600), "b".repeat(600), "sesame, seeds"));
+
+        assertThat(saved.getAllergies()).hasSizeLessThanOrEqualTo(1000);
+        assertThat(planService.allergiesOf(saved)).containsExactly("a".repeat(600));
+    }
+
+    private static SavedMealPlan plan(long id, long userId) {
+        User user = new User("a@example.com", "A", "g-1");
+        user.setId(userId);
+        SavedMealPlan saved = new SavedMealPlan();
+        saved.setId(id);
+        saved.setUser(user);
+        return saved;
+    }
+}
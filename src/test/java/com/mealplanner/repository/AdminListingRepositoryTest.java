@@ -0,0 +1,78 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.dto.AdminFoodLogRow;
+import com.mealplanner.dto.AdminMealPlanRow;
+import com.mealplanner.dto.KeysetPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Walking the admin listings page by page visits every row once, in sort order, including rows with a null key. */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(AdminListingRepository.class)
+class AdminListingRepositoryTest {
+
+    @Autowired
+    private AdminListingRepository listings;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (901, 'cursor@example.com', 'C', 'g-901', FALSE)");
+        // Two plans share a creation time, and three have none
+        String[] created = {"2024-01-20 10:00:00", "2024-01-20 10:00:00", "2024-01-19 08:30:00", "2024-01-21 07:15:00", null, null, null};
+        for (int i = 0; i < created.length; i++) {
+            jdbc.update("INSERT INTO saved_meal_plans (id, user_id, created_at, weight, height_feet, height_inches, age, " +
+                    "target_calories, target_protein, target_carbs, target_fat, generation_failed) " +
+                    "VALUES (?, 901, CAST(? AS TIMESTAMP), 180, 5, 10, 30, 2000, 150, 200, 60, FALSE)", 9001 + i, created[i]);
+        }
+        String[] dates = {"2024-01-20", "2024-01-20", "2024-01-20", "2024-01-18", "2024-01-22"};
+        for (int i = 0; i < dates.length; i++) {
+            jdbc.update("INSERT INTO food_logs (id, user_id, log_date, food_description, calories, protein, carbs, fat, from_meal_plan) " +
+                    "VALUES (?, 901, CAST(? AS DATE), 'eggs', 200, 12, 2, 14, FALSE)", 9101 + i, dates[i]);
+        }
+    }
+
+    @Test
+    void planCursorsRoundTripThroughTiesAndNullCreationTimes() {
+        List<Long> seen = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<AdminMealPlanRow> page = listings.findMealPlans(901L, cursor, 2);
+            page.getItems().forEach(row -> seen.add(row.getId()));
+            cursor = page.getNextCursor();
+            if (cursor != null) cursors.add(cursor);
+        } while (cursor != null);
+
+        assertThat(seen).containsExactly(9004L, 9002L, 9001L, 9003L, 9007L, 9006L, 9005L);
+        assertThat(cursors).contains("null_9006");
+    }
+
+    @Test
+    void foodLogCursorsRoundTripThroughTies() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<AdminFoodLogRow> page = listings.findFoodLogs(901L, null, cursor, 2);
+            page.getItems().forEach(row -> seen.add(row.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).containsExactly(9105L, 9103L, 9102L, 9101L, 9104L);
+    }
+}
@@ -0,0 +1,154 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.TestDatabases;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hot queries are answered from the indexes the migrations add, using H2's EXPLAIN on a
+ * migrated database with a few thousand rows. Index names are as declared in db/migration.
+ */
+class QueryPlanTest {
+
+    private static final int USERS = 50;
+    private static final int DAYS = 30;
+    private static final int PLANS_PER_USER = 10;
+    private static final int PREFERENCES_PER_USER = 20;
+
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void seed() {
+        jdbc = new JdbcTemplate(TestDatabases.migrated());
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        List<Object[]> users = new ArrayList<>();
+        for (int u = 1; u <= USERS; u++) users.add(new Object[]{u, "u" + u + "@example.com", "User " + u, "g-" + u});
+        jdbc.batchUpdate("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (?, ?, ?, ?, FALSE)", users);
+
+        List<Object[]> logs = new ArrayList<>();
+        List<Object[]> plans = new ArrayList<>();
+        List<Object[]> summaries = new ArrayList<>();
+        List<Object[]> preferences = new ArrayList<>();
+        long logId = 1;
+        long planId = 1;
+        for (int u = 1; u <= USERS; u++) {
+            for (int d = 0; d < DAYS; d++) {
+                LocalDate day = start.plusDays(d);
+                for (int m = 0; m < 3; m++) {
+                    logs.add(new Object[]{logId++, u, Date.valueOf(day), Timestamp.valueOf(day.atTime(8 + m * 5, 0))});
+                }
+                summaries.add(new Object[]{u, Date.valueOf(day)});
+            }
+            for (int f = 0; f < PREFERENCES_PER_USER; f++) {
+                preferences.add(new Object[]{u, f % 2 == 0 ? "DISLIKES" : "PREFERS", "food" + f, f % 3 == 0 ? "" : "other" + f});
+            }
+            for (int p = 0; p < PLANS_PER_USER; p++) {
+                plans.add(new Object[]{planId++, u, Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(p * 3L + u))});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO food_logs (id, user_id, log_date, time_logged, food_description, calories, protein, " +
+                "carbs, fat, from_meal_plan) VALUES (?, ?, ?, ?, 'oats', 300, 10, 50, 6, FALSE)", logs);
+        jdbc.batchUpdate("INSERT INTO saved_meal_plans (id, user_id, created_at, weight, height_feet, height_inches, age, " +
+                "target_calories, target_protein, target_carbs, target_fat, generation_failed) " +
+                "VALUES (?, ?, ?, 180, 5, 10, 30, 2200, 160, 220, 70, FALSE)", plans);
+        jdbc.batchUpdate("INSERT INTO daily_nutrition_summary (user_id, log_date, calories, protein, carbs, fat, entries) " +
+                "VALUES (?, ?, 900, 30, 150, 18, 3)", summaries);
+        jdbc.batchUpdate("INSERT INTO learned_user_preferences (user_id, preference_type, food_item, compared_to_food, " +
+                "confidence_pct, times_observed) VALUES (?, ?, ?, ?, 50, 1)", preferences);
+        jdbc.execute("ANALYZE");
+    }
+
+    @Test
+    void dailyLogReadsUseUserDateTimeIndex() {
+        assertThat(plan("SELECT * FROM food_logs WHERE user_id = 7 AND log_date = DATE '2024-01-05' ORDER BY time_logged"))
+                .contains("IDX_FOOD_LOGS_USER_DATE_TIME");
+        assertThat(plan("SELECT * FROM food_logs WHERE user_id = 7 AND log_date BETWEEN DATE '2024-01-01' AND DATE '2024-01-07'"))
+                .contains("IDX_FOOD_LOGS_USER_DATE_TIME");
+    }
+
+    @Test
+    void latestTargetsAreReadInIndexOrder() {
+        // As SavedMealPlanRepository.findLatestTargets orders it
+        String plan = plan("SELECT target_calories FROM saved_meal_plans WHERE user_id = 7 AND generation_failed = FALSE " +
+                "ORDER BY user_id DESC, created_at DESC LIMIT 1");
+        assertThat(plan).contains("IDX_SAVED_MEAL_PLANS_USER_CREATED");
+        assertThat(plan).contains("INDEX SORTED");
+    }
+
+    @Test
+    void learnedPreferenceUpdateUsesUniqueKey() {
+        assertThat(plan("UPDATE learned_user_preferences SET times_observed = times_observed + 1 " +
+                "WHERE user_id = 7 AND preference_type = 'DISLIKES' AND food_item = 'food2' AND compared_to_food = ''"))
+                .contains("UK_LEARNED_USER_PREFERENCES");
+    }
+
+    @Test
+    void adminFoodLogListingIsReadInIndexOrder() {
+        String first = plan("SELECT id FROM food_logs ORDER BY log_date DESC NULLS LAST, id DESC LIMIT 51");
+        String next = plan("SELECT id FROM food_logs WHERE log_date < DATE '2024-01-20' " +
+                "OR (log_date = DATE '2024-01-20' AND id < 900) OR log_date IS NULL ORDER BY log_date DESC NULLS LAST, id DESC LIMIT 51");
+        for (String plan : List.of(first, next)) {
+            assertThat(plan).contains("IDX_FOOD_LOGS_DATE_ID");
+            assertThat(plan).contains("INDEX SORTED");
+        }
+    }
+
+    @Test
+    void adminPlanListingIsReadInIndexOrder() {
+        String first = plan("SELECT id FROM saved_meal_plans ORDER BY created_at DESC NULLS LAST, id DESC LIMIT 51");
+        String next = plan("SELECT id FROM saved_meal_plans WHERE created_at < TIMESTAMP '2024-01-20 10:00:00' " +
+                "OR (created_at = TIMESTAMP '2024-01-20 10:00:00' AND id < 900) OR created_at IS NULL ORDER BY created_at DESC NULLS LAST, id DESC LIMIT 51");
+        // Plans without a creation time sort last; the cursor after one of them pages on id
+        String afterNull = plan("SELECT id FROM saved_meal_plans WHERE created_at IS NULL AND id < 900 " +
+                "ORDER BY created_at DESC NULLS LAST, id DESC LIMIT 51");
+        for (String plan : List.of(first, next, afterNull)) {
+            assertThat(plan).contains("IDX_SAVED_MEAL_PLANS_CREATED");
+            assertThat(plan).contains("INDEX SORTED");
+        }
+    }
+
+    @Test
+    void activeUsersOnDateUsesSummaryDateIndex() {
+        assertThat(plan("SELECT COUNT(*) FROM daily_nutrition_summary WHERE log_date = DATE '2024-01-05' AND entries > 0"))
+                .contains("IDX_DAILY_NUTRITION_SUMMARY_DATE");
+    }
+
+    @Test
+    void usageRollupUpdateUsesUniqueKey() {
+        assertThat(plan("UPDATE ai_usage_daily SET calls = calls + 1 " +
+                "WHERE usage_date = DATE '2024-01-05' AND feature = 'PLAN' AND model = 'm'"))
+                .contains("UK_AI_USAGE_DAILY");
+    }
+
+    @Test
+    void expiredSessionCleanupUsesExpiryIndex() {
+        assertThat(plan("DELETE FROM http_sessions WHERE expires_at <= 1000"))
+                .contains("IDX_HTTP_SESSIONS_EXPIRES_AT");
+    }
+
+    @Test
+    void savedPlanStructureReadsArePrimaryKeyLookups() {
+        for (String table : List.of("saved_plan_days", "saved_plan_meals", "saved_plan_foods", "saved_plan_grocery_items")) {
+            String plan = plan("SELECT * FROM " + table + " WHERE plan_id = 7");
+            assertThat(plan).as(table).doesNotContain("TABLESCAN");
+            // The primary key or H2's index for the plan_id foreign key; both lead with plan_id
+            assertThat(plan).as(table).containsAnyOf("PRIMARY_KEY", "FK_" + table.toUpperCase(Locale.ROOT) + "_PLAN");
+        }
+    }
+
+    private static String plan(String sql) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class)).toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,161 @@
+package com.mealplanner.repository;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.Benchmarks;
+import com.mealplanner.TestDatabases;
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dashboard and planning-stats reads against 100k saved plans (1,000 users with 100 plans each), comparing the
+ * normalized tables with the previous approach of parsing each plan's meal_plan_json. Only the measured user's
+ * plans carry JSON, to keep the database in memory. Scale with -Dbenchmark.users and -Dbenchmark.plans-per-user.
+ */
+@Tag("benchmark")
+class SavedPlanAnalyticsBenchmark {
+
+    private static final String[] MEALS = {"Overnight oats", "Chicken rice bowl", "Salmon and greens", "Turkey wrap",
+            "Greek yogurt parfait", "Beef stir fry", "Egg scramble", "Tofu curry", "Tuna salad", "Pork tacos"};
+    private static final String[] FOODS = {"Oats", "Chicken breast", "White rice", "Salmon", "Mixed greens", "Turkey breast",
+            "Greek yogurt", "Blueberries", "Lean ground beef", "Broccoli", "Eggs", "Tofu", "Tuna", "Pork tenderloin"};
+    private static final long MEASURED_USER = 1;
+
+    private static JdbcTemplate jdbc;
+    private static SavedPlanStructureRepository repository;
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @BeforeAll
+    static void seed() throws Exception {
+        int users = Benchmarks.size("users", 1_000);
+        int plansPerUser = Benchmarks.size("plans-per-user", 100);
+        jdbc = new JdbcTemplate(TestDatabases.migrated());
+        repository = new SavedPlanStructureRepository(jdbc);
+
+        List<Object[]> userRows = new ArrayList<>();
+        for (int u = 1; u <= users; u++) userRows.add(new Object[]{u, "u" + u + "@example.com", "g-" + u});
+        jdbc.batchUpdate("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (?, ?, 'User', ?, FALSE)", userRows);
+
+        Random random = new Random(42);
+        long planId = 1;
+        long start = System.nanoTime();
+        List<Object[]> planRows = new ArrayList<>();
+        for (int u = 1; u <= users; u++) {
+            for (int p = 0; p < plansPerUser; p++, planId++) {
+                MealPlan plan = plan(random);
+                String json = u == MEASURED_USER ? mapper.writeValueAsString(plan) : null;
+                planRows.add(new Object[]{planId, u, Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(planId)), json});
+                repository.insert(planId, plan, null);
+            }
+            if (planRows.size() >= 1_000) flushPlans(planRows);
+        }
+        flushPlans(planRows);
+        System.out.printf(Locale.ROOT, "[benchmark] seeded %d plans in %.1f s%n", planId - 1, (System.nanoTime() - start) / 1e9);
+        jdbc.execute("ANALYZE");
+    }
+
+    @Test
+    void mostPlannedMeals() {
+        List<Map<String, Object>> sql = repository.findMostPlannedMeals(MEASURED_USER, 10);
+        Map<String, Integer> json = mealCountsFromJson();
+        assertThat(sql).hasSize(Math.min(10, json.size()));
+        assertThat(((Number) sql.get(0).get("times")).intValue()).isEqualTo(Collections.max(json.values()));
+
+        Benchmarks.time("most planned meals: SQL over saved_plan_meals", 5, 50,
+                () -> repository.findMostPlannedMeals(MEASURED_USER, 10));
+        Benchmarks.time("most planned meals: parse meal_plan_json", 5, 50, SavedPlanAnalyticsBenchmark::mealCountsFromJson);
+    }
+
+    @Test
+    void mostPlannedFoods() {
+        assertThat(repository.findMostPlannedFoods(MEASURED_USER, 10)).isNotEmpty();
+        Benchmarks.time("most planned foods: SQL over saved_plan_foods", 5, 50,
+                () -> repository.findMostPlannedFoods(MEASURED_USER, 10));
+    }
+
+    @Test
+    void planTotals() {
+        assertThat(repository.findPlanTotals(MEASURED_USER)).hasSize(Benchmarks.size("plans-per-user", 100));
+        Benchmarks.time("plan totals: SQL over saved_plan_days", 5, 50, () -> repository.findPlanTotals(MEASURED_USER));
+    }
+
+    @Test
+    void dashboardLatestPlan() {
+        Long latest = jdbc.queryForObject("SELECT id FROM saved_meal_plans WHERE user_id = ? ORDER BY created_at DESC LIMIT 1",
+                Long.class, MEASURED_USER);
+        String json = jdbc.queryForObject("SELECT meal_plan_json FROM saved_meal_plans WHERE id = ?", String.class, latest);
+        assertThat(repository.loadMealPlan(latest, null).getDays()).hasSize(mapperRead(json).getDays().size());
+
+        Benchmarks.time("dashboard latest plan: rebuild from rows", 20, 200, () -> {
+            Long id = jdbc.queryForObject("SELECT id FROM saved_meal_plans WHERE user_id = ? ORDER BY created_at DESC LIMIT 1",
+                    Long.class, MEASURED_USER);
+            repository.loadMealPlan(id, null);
+        });
+        Benchmarks.time("dashboard latest plan: read and parse JSON", 20, 200, () -> {
+            String j = jdbc.queryForObject("SELECT meal_plan_json FROM saved_meal_plans WHERE user_id = ? " +
+                    "ORDER BY created_at DESC LIMIT 1", String.class, MEASURED_USER);
+            mapperRead(j);
+        });
+    }
+
+    private static Map<String, Integer> mealCountsFromJson() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String json : jdbc.queryForList("SELECT meal_plan_json FROM saved_meal_plans WHERE user_id = ?",
+                String.class, MEASURED_USER)) {
+            try {
+                for (JsonNode day : mapper.readTree(json).path("days")) {
+                    for (JsonNode meal : day.path("meals")) counts.merge(meal.path("name").asText(), 1, Integer::sum);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return counts;
+    }
+
+    private static MealPlan mapperRead(String json) {
+        try {
+            return mapper.readValue(json, MealPlan.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void flushPlans(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate("INSERT INTO saved_meal_plans (id, user_id, created_at, weight, height_feet, height_inches, age, " +
+                "target_calories, target_protein, target_carbs, target_fat, generation_failed, meal_plan_json) " +
+                "VALUES (?, ?, ?, 180, 5, 10, 30, 2200, 160, 220, 70, FALSE, ?)", rows);
+        rows.clear();
+    }
+
+    // One day of three meals with two foods each: 3 meal rows and 6 food rows per plan
+    private static MealPlan plan(Random random) {
+        List<Meal> meals = new ArrayList<>();
+        for (int m = 0; m < 3; m++) {
+            Meal meal = new Meal();
+            meal.setName(MEALS[random.nextInt(MEALS.length)]);
+            meal.setMacros(new MacroTargets(400 + random.nextInt(400), 30 + random.nextInt(30), 40 + random.nextInt(40), 10 + random.nextInt(15)));
+            meal.setFoods(new ArrayList<>(List.of(
+                    new FoodItem(FOODS[random.nextInt(FOODS.length)], (1 + random.nextInt(8)) + " oz"),
+                    new FoodItem(FOODS[random.nextInt(FOODS.length)], (1 + random.nextInt(3)) + " cup"))));
+            meals.add(meal);
+        }
+        Day day = new Day();
+        day.setDayNumber(1);
+        day.setMeals(meals);
+        day.setDailyTotal(new MacroTargets(1800, 140, 180, 60));
+        return new MealPlan(new ArrayList<>(List.of(day)), null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.TestDatabases;
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SavedPlanStructureRepositoryTest {
+
+    private JdbcTemplate jdbc;
+    private SavedPlanStructureRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(TestDatabases.migrated());
+        repository = new SavedPlanStructureRepository(jdbc);
+        jdbc.update("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (1, 'a@example.com', 'A', 'g-1', FALSE)");
+        for (long planId = 1; planId <= 2; planId++) {
+            jdbc.update("INSERT INTO saved_meal_plans (id, user_id, weight, height_feet, height_inches, age, target_calories, " +
+                    "target_protein, target_carbs, target_fat, generation_failed) VALUES (?, 1, 180, 5, 10, 30, 2000, 150, 200, 60, FALSE)", planId);
+        }
+    }
+
+    @Test
+    void planRoundTrips() {
+        MealPlan plan = plan("Greek yogurt bowl", "1 cup", "10 min");
+        Map<String, List<String>> grocery = new LinkedHashMap<>();
+        grocery.put("Dairy", List.of("Greek yogurt, 7 cups"));
+        grocery.put("Produce", List.of("Blueberries, 3 cups", "Bananas, 2"));
+
+        repository.insert(1L, plan, new GroceryList(grocery));
+
+        MealPlan loaded = repository.loadMealPlan(1L, new MacroTargets(2000, 150, 200, 60));
+        Meal meal = loaded.getDays().get(0).getMeals().get(0);
+        assertThat(meal.getName()).isEqualTo("Greek yogurt bowl");
+        assertThat(meal.getMacros().getCalories()).isEqualTo(350);
+        assertThat(meal.getFoods()).extracting(FoodItem::getItem).containsExactly("Greek yogurt", "Blueberries");
+        assertThat(meal.getRecipe().getIngredients()).containsExactly("1 cup Greek yogurt", "1/2 cup blueberries");
+        assertThat(meal.getRecipe().getPrepTime()).isEqualTo("10 min");
+        assertThat(repository.loadGroceryList(1L).getCategorizedItems()).isEqualTo(grocery);
+    }
+
+    @Test
+    void overlongModelTextIsClippedInsteadOfFailingTheSave() {
+        String longName = "Bowl ".repeat(100);
+        String longTime = "about ten minutes, longer if the oats are steel cut and soaked overnight";
+        MealPlan plan = plan(longName, "1 cup ".repeat(60), longTime);
+        Map<String, List<String>> grocery = Map.of("Pantry staples and other shelf-stable items you may already have",
+                List.of("Oats ".repeat(80)));
+
+        repository.insert(2L, plan, new GroceryList(grocery));
+
+        Meal meal = repository.loadMealPlan(2L, null).getDays().get(0).getMeals().get(0);
+        assertThat(meal.getName()).hasSize(255).isEqualTo(longName.substring(0, 255));
+        assertThat(meal.getRecipe().getName()).hasSize(255);
+        assertThat(meal.getRecipe().getPrepTime()).hasSize(50);
+        assertThat(meal.getFoods().get(0).getPortion()).hasSize(255);
+        Map.Entry<String, List<String>> category = repository.loadGroceryList(2L).getCategorizedItems().entrySet().iterator().next();
+        assertThat(category.getKey()).hasSize(50);
+        assertThat(category.getValue().get(0)).hasSize(255);
+    }
+
+    @Test
+    void deletingThePlanRowDeletesItsStructure() {
+        repository.insert(1L, plan("Oats", "1 cup", "5 min"), new GroceryList(Map.of("Pantry", List.of("Oats"))));
+        repository.insert(2L, plan("Eggs", "2", "5 min"), new GroceryList(Map.of("Dairy", List.of("Eggs"))));
+
+        jdbc.update("DELETE FROM saved_meal_plans WHERE id = 1");
+
+        for (String table : List.of("saved_plan_days", "saved_plan_meals", "saved_plan_foods", "saved_plan_grocery_items")) {
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE plan_id = 1", Integer.class)).as(table).isZero();
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE plan_id = 2", Integer.class)).as(table).isPositive();
+        }
+    }
+
+    private static MealPlan plan(String mealName, String portion, String prepTime) {
+        Recipe recipe = new Recipe();
+        recipe.setName(mealName);
+        recipe.setIngredients(new ArrayList<>(List.of("1 cup Greek yogurt", "1/2 cup blueberries")));
+        recipe.setInstructions(new ArrayList<>(List.of("Spoon yogurt into a bowl.", "Top with berries.")));
+        recipe.setPrepTime(prepTime);
+        Meal meal = new Meal();
+        meal.setName(mealName);
+        meal.setMacros(new MacroTargets(350, 25, 40, 5));
+        meal.setFoods(new ArrayList<>(List.of(new FoodItem("Greek yogurt", portion), new FoodItem("Blueberries", "1/2 cup"))));
+        meal.setRecipe(recipe);
+        Day day = new Day();
+        day.setDayNumber(1);
+        day.setMeals(new ArrayList<>(List.of(meal)));
+        day.setDailyTotal(new MacroTargets(350, 25, 40, 5));
+        return new MealPlan(new ArrayList<>(List.of(day)), null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.mealplanner.security;
+
+import com.mealplanner.TestDatabases;
+import com.mealplanner.repository.StoredSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Two application nodes, each with its own session repository and cache, sharing one database. */
+class JdbcSessionRepositoryTest {
+
+    private static final long CACHE_TTL_MS = 60_000;
+
+    private JdbcTemplate jdbc;
+    private JdbcSessionRepository nodeA;
+    private JdbcSessionRepository nodeB;
+
+    @BeforeEach
+    void setUp() {
+        DataSource ds = TestDatabases.migrated();
+        jdbc = new JdbcTemplate(ds);
+        nodeA = node(ds);
+        nodeB = node(ds);
+    }
+
+    @Test
+    void sessionCreatedOnOneNodeIsReadOnTheOther() {
+        String id = create(nodeA, "user", "alice");
+
+        JdbcSessionRepository.TrackedSession onB = nodeB.findById(id);
+        assertThat(onB).isNotNull();
+        assertThat(onB.<String>getAttribute("user")).isEqualTo("alice");
+    }
+
+    @Test
+    void deleteOnOneNodeEndsTheSessionOnTheOtherDespiteItsCache() {
+        String id = create(nodeA, "user", "alice");
+        assertThat(nodeB.findById(id)).isNotNull(); // now cached on B for the whole TTL
+
+        nodeA.deleteById(id);
+
+        assertThat(nodeB.findById(id)).isNull();
+        assertThat(nodeA.findById(id)).isNull();
+    }
+
+    @Test
+    void concurrentChangesToDifferentAttributesAreMerged() {
+        String id = create(nodeA, "user", "alice");
+        JdbcSessionRepository.TrackedSession onA = nodeA.findById(id);
+        JdbcSessionRepository.TrackedSession onB = nodeB.findById(id);
+
+        onA.setAttribute("csrf", "token-a");
+        onB.setAttribute("impersonating", 42L);
+        onB.removeAttribute("user");
+        nodeA.save(onA);
+        nodeB.save(onB);
+
+        JdbcSessionRepository fresh = node(jdbc.getDataSource());
+        JdbcSessionRepository.TrackedSession merged = fresh.findById(id);
+        assertThat(merged.getAttributeNames()).containsExactlyInAnyOrder("csrf", "impersonating");
+        assertThat(merged.<String>getAttribute("csrf")).isEqualTo("token-a");
+        assertThat(merged.<Long>getAttribute("impersonating")).isEqualTo(42L);
+    }
+
+    @Test
+    void readOnlyRequestsAreWrittenAsBatchedTouches() {
+        String id = create(nodeA, "user", "alice");
+        long before = jdbc.queryForObject("SELECT last_accessed_at FROM http_sessions WHERE id = ?", Long.class, id);
+
+        JdbcSessionRepository.TrackedSession onB = nodeB.findById(id);
+        onB.setLastAccessedTime(Instant.ofEpochMilli(before + 5_000));
+        nodeB.save(onB);
+        assertThat(jdbc.queryForObject("SELECT last_accessed_at FROM http_sessions WHERE id = ?", Long.class, id))
+                .isEqualTo(before);
+
+        nodeB.flushTouches();
+
+        assertThat(jdbc.queryForObject("SELECT last_accessed_at FROM http_sessions WHERE id = ?", Long.class, id))
+                .isEqualTo(before + 5_000);
+        assertThat(jdbc.queryForObject("SELECT expires_at FROM http_sessions WHERE id = ?", Long.class, id))
+                .isEqualTo(before + 5_000 + Duration.ofMinutes(30).toMillis());
+    }
+
+    private static JdbcSessionRepository node(DataSource ds) {
+        return new JdbcSessionRepository(new StoredSessionRepository(new JdbcTemplate(ds)),
+                new DataSourceTransactionManager(ds), Duration.ofMinutes(30), CACHE_TTL_MS);
+    }
+
+    private static String create(JdbcSessionRepository node, String name, Object value) {
+        JdbcSessionRepository.TrackedSession session = node.createSession();
+        session.setAttribute(name, value);
+        node.save(session);
+        return session.getId();
+    }
+}
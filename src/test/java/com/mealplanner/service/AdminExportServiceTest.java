@@ -0,0 +1,91 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.TestDatabases;
+import com.mealplanner.repository.AdminExportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdminExportServiceTest {
+
+    private static final int USERS = 3_000;
+
+    private JdbcTemplate jdbc;
+    private AdminExportService service;
+
+    @BeforeEach
+    void setUp() {
+        DataSource ds = TestDatabases.migrated();
+        jdbc = new JdbcTemplate(ds);
+        ObjectMapper mapper = new ObjectMapper();
+        service = new AdminExportService(new AdminExportRepository(jdbc), new JsonCodec(mapper), new DataSourceTransactionManager(ds));
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) users.add(new Object[]{i, "user" + i + "@example.com", "User " + i, "g-" + i});
+        jdbc.batchUpdate("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (?, ?, ?, ?, FALSE)", users);
+        jdbc.update("UPDATE users SET name = 'Smith, \"Jo\"', is_admin = TRUE WHERE id = 2");
+        jdbc.update("INSERT INTO saved_meal_plans (id, user_id, weight, height_feet, height_inches, age, target_calories, " +
+                "target_protein, target_carbs, target_fat, accuracy_score, generation_failed) " +
+                "VALUES (1, 2, 180, 5, 10, 30, 2000, 150, 200, 60, 91.5, FALSE)");
+    }
+
+    @Test
+    void csvIsWrittenWhileTheCursorIsOpen() throws IOException {
+        RecordingStream out = new RecordingStream();
+
+        service.exportUsers(AdminExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(USERS + 1);
+        assertThat(lines[0]).isEqualTo("ID,Name,Email,Created At,Last Login,Is Admin");
+        assertThat(lines[1]).isEqualTo("1,User 1,user1@example.com,,,false");
+        assertThat(lines[2]).isEqualTo("2,\"Smith, \"\"Jo\"\"\",user2@example.com,,,true");
+        assertThat(lines[USERS]).startsWith(USERS + ",");
+        // Rows reach the response in buffer-sized chunks during the read, not in one piece after it
+        assertThat(out.writesInTransaction.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerRow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportMealPlans(AdminExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1);
+        JsonNode plan = new ObjectMapper().readTree(lines[0]);
+        assertThat(plan.get("User Email").asText()).isEqualTo("user2@example.com");
+        assertThat(plan.get("Accuracy Score").asDouble()).isEqualTo(91.5);
+        assertThat(plan.get("Actual Cal").isNull()).isTrue();
+        assertThat(plan.get("Failed").asBoolean()).isFalse();
+    }
+
+    @Test
+    void formatDefaultsToCsv() {
+        assertThat(AdminExportService.Format.parse(null)).isEqualTo(AdminExportService.Format.CSV);
+        assertThat(AdminExportService.Format.parse(" ndjson ")).isEqualTo(AdminExportService.Format.NDJSON);
+    }
+
+    private static final class RecordingStream extends ByteArrayOutputStream {
+        final AtomicInteger writesInTransaction = new AtomicInteger();
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) writesInTransaction.incrementAndGet();
+            super.write(b, off, len);
+        }
+    }
+}
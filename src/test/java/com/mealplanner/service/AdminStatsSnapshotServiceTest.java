@@ -0,0 +1,74 @@
+package com.mealplanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdminStatsSnapshotServiceTest {
+
+    private final AdminService adminService = mock(AdminService.class);
+    private final AdminStatsSnapshotService service = new AdminStatsSnapshotService(adminService,
+            mock(SavedMealPlanService.class), mock(MealPrefetchService.class));
+
+    @Test
+    void callerThatWaitedOnARefreshTakesItsResult() throws Exception {
+        AtomicInteger computed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(adminService.getDashboardStats()).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Map.<String, Object>of("users", computed.incrementAndGet());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<AdminStatsSnapshotService.Snapshot> first = executor.submit(service::refresh);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            AtomicReference<Thread> waiter = new AtomicReference<>();
+            Future<AdminStatsSnapshotService.Snapshot> second = executor.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return service.refresh();
+            });
+            awaitParked(waiter);
+            release.countDown();
+
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+            assertThat(computed).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void laterCallsRecompute() {
+        AtomicInteger computed = new AtomicInteger();
+        when(adminService.getDashboardStats()).thenAnswer(inv -> Map.<String, Object>of("users", computed.incrementAndGet()));
+
+        service.refresh();
+        AdminStatsSnapshotService.Snapshot second = service.refresh();
+
+        assertThat(second.stats()).containsEntry("users", 2);
+    }
+
+    private static void awaitParked(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Thread t = thread.get();
+            if (t != null && t.getState() == Thread.State.WAITING) return;
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Second refresh never waited on the first");
+    }
+}
@@ -0,0 +1,77 @@
+package com.mealplanner.service;
+
+import com.mealplanner.TestDatabases;
+import com.mealplanner.model.AiFeature;
+import com.mealplanner.repository.AiUsageRecordRepository;
+import com.mealplanner.repository.AiUsageRollupRepository;
+import com.mealplanner.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AiUsageServiceTest {
+
+    private JdbcTemplate jdbc;
+    private AiUsageRecordRepository records;
+    private AiUsageService service;
+
+    @BeforeEach
+    void setUp() {
+        DataSource ds = TestDatabases.migrated();
+        jdbc = new JdbcTemplate(ds);
+        records = mock(AiUsageRecordRepository.class);
+        service = new AiUsageService(records, new AiUsageRollupRepository(jdbc), mock(UserRepository.class),
+                new DataSourceTransactionManager(ds), mock(JsonCodec.class));
+    }
+
+    @Test
+    void rollupAccumulatesAcrossFlushes() {
+        when(records.saveAll(any())).thenReturn(List.of());
+        service.record(AiFeature.PLAN, "anthropic", new AiUsageService.Usage("claude-sonnet-4-5", 100, 50, 0, 0, "end_turn"), 1000);
+        service.flush();
+        service.record(AiFeature.PLAN, "anthropic", new AiUsageService.Usage("claude-sonnet-4-5", 30, 20, 0, 10, "end_turn"), 500);
+        service.recordFailure(AiFeature.PLAN, "anthropic", "claude-sonnet-4-5", 200);
+        service.flush();
+
+        Map<String, Object> row = jdbc.queryForMap("SELECT * FROM ai_usage_daily");
+        assertThat(((Number) row.get("CALLS")).longValue()).isEqualTo(3);
+        assertThat(((Number) row.get("FAILURES")).longValue()).isEqualTo(1);
+        assertThat(((Number) row.get("INPUT_TOKENS")).longValue()).isEqualTo(130);
+        assertThat(((Number) row.get("OUTPUT_TOKENS")).longValue()).isEqualTo(70);
+        assertThat(((Number) row.get("CACHE_READ_TOKENS")).longValue()).isEqualTo(10);
+        assertThat(((Number) row.get("TOTAL_LATENCY_MS")).longValue()).isEqualTo(1700);
+    }
+
+    @Test
+    void failedBatchIsKeptAndWrittenOnTheNextFlush() {
+        when(records.saveAll(any())).thenThrow(new IllegalStateException("database unavailable")).thenReturn(List.of());
+        service.record(AiFeature.SWAP, "anthropic", new AiUsageService.Usage("claude-3-5-haiku", 10, 5, 0, 0, "end_turn"), 300);
+
+        service.flush();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM ai_usage_daily", Integer.class)).isZero();
+
+        service.flush();
+        assertThat(jdbc.queryForObject("SELECT SUM(calls) FROM ai_usage_daily", Long.class)).isEqualTo(1);
+        assertThat(service.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void batchIsDroppedAfterRepeatedFailures() {
+        when(records.saveAll(any())).thenThrow(new IllegalStateException("database unavailable"));
+        service.record(AiFeature.SWAP, "anthropic", AiUsageService.Usage.empty("claude-3-5-haiku"), 300);
+
+        for (int i = 0; i < 10; i++) service.flush();
+
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+    }
+}
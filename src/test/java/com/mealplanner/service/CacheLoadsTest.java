@@ -0,0 +1,74 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheLoadsTest {
+
+    private final AsyncCache<Long, String> cache = Caffeine.newBuilder().buildAsync();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> CacheLoads.get(cache, 1L, id -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "plan-" + id;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> f : results) assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("plan-1");
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidationDuringALoadKeepsTheResultOutOfTheCache() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> stale = executor.submit(() -> CacheLoads.get(cache, 1L, id -> {
+                loading.countDown();
+                await(release);
+                return "stale";
+            }));
+            loading.await();
+            cache.synchronous().invalidate(1L);
+            release.countDown();
+            assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        }
+        assertThat(CacheLoads.get(cache, 1L, id -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> CacheLoads.get(cache, 1L, id -> {
+            throw new IllegalStateException("database unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.getIfPresent(1L)).isNull();
+        assertThat(CacheLoads.get(cache, 1L, id -> "loaded")).isEqualTo("loaded");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.User;
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.security.AdminFlagCache;
+import com.mealplanner.security.AppUserPrincipal;
+import com.mealplanner.security.CurrentUser;
+import com.mealplanner.security.CurrentUserArgumentResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/** Login through the OpenID Connect path Google takes, and the per-request principal it leaves behind. */
+class CustomOidcUserServiceTest {
+
+    private UserRepository users;
+    private CustomOidcUserService service;
+    private CurrentUserArgumentResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        users = mock(UserRepository.class);
+        when(users.save(any())).thenAnswer(inv -> {
+            User u = inv.getArgument(0);
+            if (u.getId() == null) u.setId(42L);
+            return u;
+        });
+        AdminFlagCache adminFlags = new AdminFlagCache(users, 30);
+        service = new CustomOidcUserService(new CustomOAuth2UserService(users, adminFlags), adminFlags);
+        resolver = new CurrentUserArgumentResolver(adminFlags, users);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void oidcLoginCreatesUserAndReturnsAppPrincipal() {
+        when(users.findByEmail("ann@example.com")).thenReturn(Optional.empty());
+        when(users.findByGoogleId("google-sub-1")).thenReturn(Optional.empty());
+
+        OidcUser principal = service.loadUser(request("google-sub-1", "ann@example.com", "Ann"));
+
+        assertThat(principal).isInstanceOf(AppUserPrincipal.class);
+        AppUserPrincipal app = (AppUserPrincipal) principal;
+        assertThat(app.getUserId()).isEqualTo(42L);
+        assertThat(app.getEmail()).isEqualTo("ann@example.com");
+        assertThat(app.isAdmin()).isFalse();
+        assertThat(principal.getIdToken().getSubject()).isEqualTo("google-sub-1");
+        assertThat(principal.getName()).isEqualTo("google-sub-1");
+    }
+
+    @Test
+    void existingAdminKeepsIdAndFlag() {
+        User existing = new User("root@example.com", "Root", "google-sub-2");
+        existing.setId(7L);
+        existing.setAdmin(true);
+        when(users.findByEmail("root@example.com")).thenReturn(Optional.of(existing));
+
+        AppUserPrincipal app = (AppUserPrincipal) service.loadUser(request("google-sub-2", "root@example.com", "Root"));
+
+        assertThat(app.getUserId()).isEqualTo(7L);
+        assertThat(app.isAdmin()).isTrue();
+        assertThat(existing.getLastLoginAt()).isNotNull();
+    }
+
+    @Test
+    void requestsAfterOidcLoginResolveWithoutUserLookups() {
+        when(users.findByEmail("ann@example.com")).thenReturn(Optional.empty());
+        OidcUser principal = service.loadUser(request("google-sub-1", "ann@example.com", "Ann"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+        clearInvocations(users);
+
+        for (int i = 0; i < 3; i++) {
+            CurrentUser current = (CurrentUser) resolver.resolveArgument(null, null, null, null);
+            assertThat(current.getId()).isEqualTo(42L);
+            assertThat(current.getEmail()).isEqualTo("ann@example.com");
+        }
+        // The admin flag was cached at login, and the user itself comes from the principal
+        verifyNoInteractions(users);
+    }
+
+    private static OidcUserRequest request(String sub, String email, String name) {
+        // No user-info endpoint: the OIDC service builds the user from the ID token claims alone
+        ClientRegistration google = ClientRegistration.withRegistrationId("google")
+                .clientId("client")
+                .clientSecret("secret")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost/login/oauth2/code/google")
+                .scope("openid", "profile", "email")
+                .authorizationUri("https://accounts.example.com/o/oauth2/auth")
+                .tokenUri("https://accounts.example.com/token")
+                .jwkSetUri("https://accounts.example.com/certs")
+                .userNameAttributeName("sub")
+                .build();
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access",
+                now, now.plusSeconds(300), Set.of("openid", "profile", "email"));
+        OidcIdToken idToken = new OidcIdToken("id-token", now, now.plusSeconds(300),
+                Map.of("sub", sub, "email", email, "name", name, "iss", "https://accounts.example.com"));
+        return new OidcUserRequest(google, accessToken, idToken);
+    }
+}
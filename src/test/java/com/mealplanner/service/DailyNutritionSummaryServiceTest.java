@@ -0,0 +1,88 @@
+package com.mealplanner.service;
+
+import com.mealplanner.TestDatabases;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(DailyNutritionSummaryService.class)
+class DailyNutritionSummaryServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 20);
+
+    @Autowired
+    private DailyNutritionSummaryService summaries;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (902, 'summary@example.com', 'S', 'g-902', FALSE)");
+    }
+
+    @Test
+    void deltasAccumulateOnTheDaysRow() {
+        summaries.applyDelta(902L, DAY, 500, 30, 60, 15, 1);
+        summaries.applyDelta(902L, DAY, 300, 20, 10, 12, 1);
+        summaries.applyDelta(902L, DAY, -500, -30, -60, -15, -1);
+
+        assertThat(summaries.getDailyTotals(902L, DAY))
+                .isEqualTo(Map.of("calories", 300, "protein", 20, "carbs", 10, "fat", 12));
+        assertThat(summaries.getActivitySummary(902L)).containsEntry("totalFoodLogs", 1L).containsEntry("lastActive", DAY);
+        assertThat(summaries.getDailyTotals(902L, DAY.plusDays(1))).containsEntry("calories", 0);
+    }
+
+    @Test
+    void rebuildReconcilesRowsInPlace() {
+        insertLog(902L, DAY, 400);
+        insertLog(902L, DAY, 250);
+        // Stale totals for a logged day, and a row for a day whose logs are gone
+        summaries.applyDelta(902L, DAY, 999, 0, 0, 0, 7);
+        summaries.applyDelta(902L, DAY.minusDays(1), 800, 0, 0, 0, 2);
+
+        summaries.rebuild();
+
+        assertThat(summaries.getDailyTotals(902L, DAY)).containsEntry("calories", 650);
+        assertThat(summaries.getDailyTotals(902L, DAY.minusDays(1))).containsEntry("calories", 0);
+        assertThat(summaries.getActivitySummary(902L)).containsEntry("totalFoodLogs", 2L).containsEntry("daysActive", 1L);
+    }
+
+    @Test
+    void migrationBackfillsLogsWrittenBeforeTheSummary() {
+        DataSource ds = TestDatabases.empty();
+        Flyway flyway = TestDatabases.flyway(ds);
+        Flyway.configure().configuration(flyway.getConfiguration()).target("7").load().migrate();
+        JdbcTemplate db = new JdbcTemplate(ds);
+        db.update("INSERT INTO users (id, email, name, google_id, is_admin) VALUES (1, 'a@example.com', 'A', 'g-1', FALSE)");
+        for (int calories : new int[]{400, 250}) {
+            db.update("INSERT INTO food_logs (user_id, log_date, food_description, calories, protein, carbs, fat, from_meal_plan) " +
+                    "VALUES (1, ?, 'eggs', ?, 10, 20, 5, FALSE)", DAY, calories);
+        }
+
+        flyway.migrate();
+
+        assertThat(db.queryForMap("SELECT calories, protein, entries FROM daily_nutrition_summary WHERE user_id = 1 AND log_date = ?", DAY))
+                .containsEntry("CALORIES", 650).containsEntry("PROTEIN", 20).containsEntry("ENTRIES", 2);
+    }
+
+    private void insertLog(long userId, LocalDate date, int calories) {
+        jdbc.update("INSERT INTO food_logs (user_id, log_date, food_description, calories, protein, carbs, fat, from_meal_plan) " +
+                "VALUES (?, ?, 'eggs', ?, 0, 0, 0, FALSE)", userId, date, calories);
+    }
+}
@@ -0,0 +1,70 @@
+package com.mealplanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FoodCatalogTest {
+
+    private static final FoodCatalog.Food CHICKEN = food("Chicken breast", 6, "oz");
+    private static final FoodCatalog.Food MILK = food("Milk", 1, "cup");
+    private static final FoodCatalog.Food OLIVE_OIL = food("Olive oil", 1, "tbsp");
+    private static final FoodCatalog.Food EGGS = food("Eggs", 2, "large");
+
+    @Test
+    void fractionsAndMixedNumbers() {
+        assertThat(FoodCatalog.servings(MILK, "1 1/2 cups")).isCloseTo(1.5, within(1e-9));
+        assertThat(FoodCatalog.servings(MILK, "3/4 cup")).isCloseTo(0.75, within(1e-9));
+        assertThat(FoodCatalog.servings(MILK, "½ cup")).isCloseTo(0.5, within(1e-9));
+        assertThat(FoodCatalog.servings(MILK, ".5 cup")).isCloseTo(0.5, within(1e-9));
+        assertThat(FoodCatalog.quantity("⅓")).isCloseTo(1.0 / 3, within(1e-9));
+        assertThat(FoodCatalog.quantity("2 1/4")).isCloseTo(2.25, within(1e-9));
+        assertThat(FoodCatalog.quantity("3/0")).isZero();
+    }
+
+    @Test
+    void rangesTakeTheMidpoint() {
+        assertThat(FoodCatalog.servings(EGGS, "2-3 large")).isCloseTo(1.25, within(1e-9));
+        assertThat(FoodCatalog.servings(OLIVE_OIL, "1 to 2 tbsp")).isCloseTo(1.5, within(1e-9));
+        assertThat(FoodCatalog.servings(CHICKEN, "4–8 oz")).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    void unitsConvertWithinTheirFamily() {
+        assertThat(FoodCatalog.servings(CHICKEN, "6 oz")).isCloseTo(1.0, within(1e-9));
+        assertThat(FoodCatalog.servings(CHICKEN, "170g")).isCloseTo(170 / (6 * 28.35), within(1e-9));
+        assertThat(FoodCatalog.servings(CHICKEN, "1 lb")).isCloseTo(453.6 / (6 * 28.35), within(1e-9));
+        assertThat(FoodCatalog.servings(MILK, "2 tbsp")).isCloseTo(30 / 240.0, within(1e-9));
+        assertThat(FoodCatalog.servings(OLIVE_OIL, "1 TSP")).isCloseTo(1 / 3.0, within(1e-9));
+        // Counts compare directly, with or without a count word
+        assertThat(FoodCatalog.servings(EGGS, "4")).isCloseTo(2.0, within(1e-9));
+        assertThat(FoodCatalog.servings(EGGS, "3 eggs")).isCloseTo(1.5, within(1e-9));
+    }
+
+    @Test
+    void unconvertiblePortionsAreNaN() {
+        assertThat(FoodCatalog.servings(CHICKEN, "1 cup")).isNaN();
+        assertThat(FoodCatalog.servings(MILK, "200 g")).isNaN();
+        assertThat(FoodCatalog.servings(CHICKEN, "a handful")).isNaN();
+        assertThat(FoodCatalog.servings(CHICKEN, "0 oz")).isNaN();
+        assertThat(FoodCatalog.servings(CHICKEN, null)).isNaN();
+    }
+
+    @Test
+    void catalogFindsFoodsByNameOrAlias() throws IOException {
+        FoodCatalog catalog = new FoodCatalog();
+
+        assertThat(catalog.find("Grilled chicken with rice")).map(FoodCatalog.Food::name).contains("Chicken breast");
+        assertThat(catalog.find("2 tbsp extra virgin olive oil")).map(FoodCatalog.Food::name).contains("Olive oil");
+        assertThat(catalog.find("unobtainium")).isEmpty();
+    }
+
+    private static FoodCatalog.Food food(String name, double amount, String unit) {
+        return new FoodCatalog.Food(name, List.of(), "test", amount, unit, 100, 10, 10, 5, Set.of());
+    }
+}
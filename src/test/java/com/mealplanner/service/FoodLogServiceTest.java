@@ -0,0 +1,100 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import com.mealplanner.repository.FoodLogRepository;
+import com.mealplanner.repository.SavedMealPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** Logging a plan day: one batched insert and one summary delta per day, whatever the number of meals. */
+class FoodLogServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Pacific/Auckland");
+
+    private final FoodLogRepository foodLogs = mock(FoodLogRepository.class);
+    private final DailyNutritionSummaryService summaries = mock(DailyNutritionSummaryService.class);
+    private final SavedMealPlanRepository plans = mock(SavedMealPlanRepository.class);
+    private final SavedMealPlanService planService = mock(SavedMealPlanService.class);
+    private FoodLogService service;
+    private User owner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(foodLogs.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        service = new FoodLogService(foodLogs, mock(Environment.class), mock(AiUsageService.class), summaries, plans, planService);
+        owner = user(1L);
+        SavedMealPlan saved = new SavedMealPlan();
+        saved.setId(5L);
+        saved.setUser(owner);
+        when(plans.findById(5L)).thenReturn(Optional.of(saved));
+        when(planService.loadMealPlan(saved)).thenReturn(plan());
+    }
+
+    @Test
+    void wholeDayIsLoggedInOneBatchWithOneSummaryDelta() throws Exception {
+        List<FoodLog> logged = service.logPlanMeals(owner, 5L, 2, null, ZONE);
+
+        assertThat(logged).extracting(FoodLog::getMealName).containsExactly("Breakfast", "Lunch", "Dinner");
+        assertThat(logged).allMatch(FoodLog::isFromMealPlan);
+        assertThat(logged.get(0).getFoodDescription()).isEqualTo("Oats - 1 cup Rolled oats, 1 Banana");
+        verify(foodLogs, times(1)).saveAll(anyList());
+        verify(summaries, times(1)).applyDelta(1L, LocalDate.now(ZONE), 1500, 110, 150, 45, 3);
+    }
+
+    @Test
+    void selectedMealsOnly() throws Exception {
+        List<FoodLog> logged = service.logPlanMeals(owner, 5L, 2, List.of(0, 2), ZONE);
+
+        assertThat(logged).extracting(FoodLog::getMealName).containsExactly("Breakfast", "Dinner");
+        verify(summaries).applyDelta(1L, LocalDate.now(ZONE), 1000, 70, 100, 30, 2);
+    }
+
+    @Test
+    void anotherUsersPlanOrAMissingDayIsRejected() {
+        assertThatThrownBy(() -> service.logPlanMeals(user(2L), 5L, 2, null, ZONE))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Plan not found");
+        assertThatThrownBy(() -> service.logPlanMeals(owner, 5L, 9, null, ZONE))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Day not found");
+        verify(foodLogs, never()).saveAll(anyList());
+        verifyNoInteractions(summaries);
+    }
+
+    private static MealPlan plan() {
+        Day first = new Day();
+        first.setDayNumber(1);
+        first.setMeals(new ArrayList<>(List.of(meal("Breakfast", 400, 20))));
+        Day second = new Day();
+        second.setDayNumber(2);
+        second.setMeals(new ArrayList<>(List.of(meal("Breakfast", 500, 35), meal("Lunch", 500, 40), meal("Dinner", 500, 35))));
+        MealPlan plan = new MealPlan(new ArrayList<>(List.of(first, second)), new MacroTargets(1500, 110, 150, 45));
+        Recipe oats = new Recipe();
+        oats.setName("Oats");
+        Meal breakfast = second.getMeals().get(0);
+        breakfast.setRecipe(oats);
+        breakfast.setFoods(new ArrayList<>(List.of(new FoodItem("Rolled oats", "1 cup"), new FoodItem("Banana", "1"))));
+        return plan;
+    }
+
+    private static Meal meal(String name, int calories, int protein) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setMacros(new MacroTargets(calories, protein, 50, 15));
+        return meal;
+    }
+
+    private static User user(long id) {
+        User user = new User("u" + id + "@example.com", "U", "g-" + id);
+        user.setId(id);
+        return user;
+    }
+}
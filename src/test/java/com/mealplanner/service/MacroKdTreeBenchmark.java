@@ -0,0 +1,43 @@
+package com.mealplanner.service;
+
+import com.mealplanner.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Swap-suggestion lookup on a large synthetic catalog: {@link MacroKdTree#nearest} against a linear scan,
+ * with the allergen filter SwapService applies. Scale with -Dbenchmark.foods and -Dbenchmark.queries.
+ */
+@Tag("benchmark")
+class MacroKdTreeBenchmark {
+
+    private static final int K = 5;
+
+    @Test
+    void treeAgainstLinearScan() {
+        int n = Benchmarks.size("foods", 100_000);
+        int queries = Benchmarks.size("queries", 1_000);
+        List<FoodCatalog.Food> foods = MacroKdTreeTest.catalog(new Random(1), n);
+        List<FoodCatalog.Food> targets = MacroKdTreeTest.catalog(new Random(2), queries);
+        Predicate<FoodCatalog.Food> noNuts = food -> !food.allergens().contains("nuts");
+
+        MacroKdTree tree = Benchmarks.once("build tree (" + n + " foods)", () -> new MacroKdTree(foods));
+        int[] next = {0};
+
+        Benchmarks.time("k-d tree, k=" + K, 200, queries, () ->
+                tree.nearest(MacroKdTreeTest.vector(targets.get(next[0]++ % queries)), K, noNuts));
+        Benchmarks.time("linear scan, k=" + K, 20, Math.min(queries, 200), () ->
+                MacroKdTreeTest.bruteForce(foods, MacroKdTreeTest.vector(targets.get(next[0]++ % queries)), K, noNuts));
+
+        for (FoodCatalog.Food target : targets.subList(0, Math.min(queries, 50))) {
+            double[] t = MacroKdTreeTest.vector(target);
+            assertThat(tree.nearest(t, K, noNuts)).hasSameSizeAs(MacroKdTreeTest.bruteForce(foods, t, K, noNuts));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.mealplanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/** Checks {@link MacroKdTree#nearest} against a linear scan over large synthetic catalogs. */
+class MacroKdTreeTest {
+
+    private static final int FOODS = 50_000;
+    private static final int QUERIES = 200;
+
+    @Test
+    void matchesBruteForceOnLargeCatalog() {
+        List<FoodCatalog.Food> foods = catalog(new Random(42), FOODS);
+        MacroKdTree tree = new MacroKdTree(foods);
+        Random random = new Random(7);
+
+        for (int q = 0; q < QUERIES; q++) {
+            FoodCatalog.Food target = randomFood(random, "target");
+            int k = 1 + random.nextInt(20);
+            assertSameRanking(tree, foods, target, k, food -> true);
+        }
+    }
+
+    @Test
+    void matchesBruteForceWithSelectiveFilters() {
+        List<FoodCatalog.Food> foods = catalog(new Random(43), FOODS);
+        MacroKdTree tree = new MacroKdTree(foods);
+        Random random = new Random(8);
+
+        for (int q = 0; q < QUERIES; q++) {
+            FoodCatalog.Food target = randomFood(random, "target");
+            // Roughly one in five foods carries each allergen, so this rejects about a third of the catalog
+            Predicate<FoodCatalog.Food> noDairyOrNuts = food -> !food.allergens().contains("dairy") && !food.allergens().contains("nuts");
+            assertSameRanking(tree, foods, target, 8, noDairyOrNuts);
+            // Accepts about one food in a thousand, so the search has to leave the target's neighbourhood
+            Predicate<FoodCatalog.Food> rare = food -> food.name().hashCode() % 1000 == 0;
+            assertSameRanking(tree, foods, target, 5, rare);
+        }
+    }
+
+    @Test
+    void handlesDuplicatePointsAndSmallCatalogs() {
+        List<FoodCatalog.Food> foods = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) foods.add(food("same-" + i, 200, 10, 20, 8, Set.of()));
+        foods.addAll(catalog(new Random(44), 100));
+        MacroKdTree tree = new MacroKdTree(foods);
+        FoodCatalog.Food target = food("target", 100, 5, 10, 4, Set.of());
+
+        assertSameRanking(tree, foods, target, 50, food -> true);
+        assertThat(tree.nearest(vector(target), 5000, food -> true)).hasSize(foods.size());
+        assertThat(tree.nearest(vector(target), 0, food -> true)).isEmpty();
+        assertThat(tree.nearest(vector(target), 3, food -> false)).isEmpty();
+        assertThat(new MacroKdTree(List.of()).nearest(vector(target), 3, food -> true)).isEmpty();
+        assertThat(new MacroKdTree(List.of(target)).nearest(vector(target), 3, food -> true)).containsExactly(target);
+    }
+
+    private static void assertSameRanking(MacroKdTree tree, List<FoodCatalog.Food> foods, FoodCatalog.Food target,
+                                          int k, Predicate<FoodCatalog.Food> accept) {
+        double[] t = vector(target);
+        List<FoodCatalog.Food> actual = tree.nearest(t, k, accept);
+        List<FoodCatalog.Food> expected = bruteForce(foods, t, k, accept);
+
+        assertThat(actual).hasSameSizeAs(expected);
+        assertThat(actual).allMatch(accept);
+        // Compare distances rather than identities: equidistant foods may come back in either order
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(dist2(vector(actual.get(i)), t)).isCloseTo(dist2(vector(expected.get(i)), t), within(1e-9));
+        }
+    }
+
+    static List<FoodCatalog.Food> bruteForce(List<FoodCatalog.Food> foods, double[] target, int k,
+                                             Predicate<FoodCatalog.Food> accept) {
+        record Ranked(FoodCatalog.Food food, double dist2) {}
+        return foods.stream()
+                .filter(accept)
+                .map(food -> new Ranked(food, dist2(vector(food), target)))
+                .sorted(Comparator.comparingDouble(Ranked::dist2))
+                .limit(k)
+                .map(Ranked::food)
+                .toList();
+    }
+
+    /** Foods spread like a real catalog: mostly one dominant macro, some balanced, a fifth carrying each allergen. */
+    static List<FoodCatalog.Food> catalog(Random random, int n) {
+        List<FoodCatalog.Food> foods = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) foods.add(randomFood(random, "food-" + i));
+        return foods;
+    }
+
+    private static FoodCatalog.Food randomFood(Random random, String name) {
+        double protein = random.nextDouble() * 30;
+        double carbs = random.nextDouble() * 30;
+        double fat = random.nextDouble() * 15;
+        switch (random.nextInt(4)) {
+            case 0 -> protein *= 3;
+            case 1 -> carbs *= 3;
+            case 2 -> fat *= 4;
+            default -> { }
+        }
+        double calories = Math.max(5, protein * 4 + carbs * 4 + fat * 9 + random.nextGaussian() * 10);
+        Set<String> allergens = new HashSet<>();
+        if (random.nextInt(5) == 0) allergens.add("dairy");
+        if (random.nextInt(5) == 0) allergens.add("nuts");
+        return food(name, calories, protein, carbs, fat, allergens);
+    }
+
+    private static FoodCatalog.Food food(String name, double calories, double protein, double carbs, double fat,
+                                         Set<String> allergens) {
+        return new FoodCatalog.Food(name, List.of(), "test", 100, "g", calories, protein, carbs, fat, Set.copyOf(allergens));
+    }
+
+    static double[] vector(FoodCatalog.Food food) {
+        return MacroKdTree.vector(food.calories(), food.protein(), food.carbs(), food.fat());
+    }
+
+    private static double dist2(double[] a, double[] b) {
+        double d0 = a[0] - b[0], d1 = a[1] - b[1], d2 = a[2] - b[2];
+        return d0 * d0 + d1 * d1 + d2 * d2;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MacroVerifierTest {
+
+    @Test
+    void accuracyIsOneHundredMinusMeanPercentageError() {
+        MacroTargets targets = new MacroTargets(2000, 150, 200, 60);
+
+        assertThat(MacroVerifier.accuracy(new MacroTargets(2000, 150, 200, 60), targets)).isEqualTo(100.0);
+        // Calories 10% over and fat 50% under: (10 + 0 + 0 + 50) / 4 = 15
+        assertThat(MacroVerifier.accuracy(new MacroTargets(2200, 150, 200, 30), targets)).isEqualTo(85.0);
+        // Each macro's error is capped at 100%, so the score bottoms out at zero
+        assertThat(MacroVerifier.accuracy(new MacroTargets(9000, 900, 900, 900), targets)).isZero();
+        assertThat(MacroVerifier.accuracy(new MacroTargets(2000, 150, 200, 60), null)).isZero();
+    }
+
+    @Test
+    void zeroTargetsCountOnlyWhenMissed() {
+        assertThat(MacroVerifier.accuracy(new MacroTargets(2000, 150, 200, 0), new MacroTargets(2000, 150, 200, 0))).isEqualTo(100.0);
+        assertThat(MacroVerifier.accuracy(new MacroTargets(2000, 150, 200, 10), new MacroTargets(2000, 150, 200, 0))).isEqualTo(75.0);
+    }
+
+    @Test
+    void offNeedsBothTheRelativeAndAbsoluteMargin() {
+        // 16% and 80 kcal apart: flagged
+        assertThat(MacroVerifier.off(500, 420, 0.15, 75)).isTrue();
+        // 14% apart
+        assertThat(MacroVerifier.off(500, 430, 0.15, 75)).isFalse();
+        // 25% apart but only 50 kcal
+        assertThat(MacroVerifier.off(200, 150, 0.15, 75)).isFalse();
+        // The margin is taken from the larger figure, so the check is symmetric
+        assertThat(MacroVerifier.off(420, 500, 0.15, 75)).isTrue();
+    }
+
+    @Test
+    void mealsAreFlaggedOnlyWhenFullyRecognised() throws IOException {
+        MacroVerifier verifier = new MacroVerifier(new FoodCatalog());
+        MealPlan plan = plan(
+                meal("Accurate", new MacroTargets(280, 53, 0, 6), new FoodItem("Chicken breast", "6 oz")),
+                meal("Overstated", new MacroTargets(600, 53, 0, 6), new FoodItem("Chicken breast", "6 oz")),
+                meal("Unknown", new MacroTargets(900, 10, 10, 10), new FoodItem("Dragonfruit surprise", "1 bowl")));
+
+        MacroVerifier.Report report = verifier.verify(plan, new MacroTargets(1780, 116, 10, 22));
+
+        assertThat(report.flagged()).extracting(MacroVerifier.MealCheck::mealName).containsExactly("Overstated");
+        assertThat(report.flaggedBySlot()).containsOnlyKeys("0-1");
+        // Recognised meals count at their table figures, the unknown one at its claim
+        assertThat(report.actualDaily().getCalories()).isEqualTo(280 + 280 + 900);
+        assertThat(report.accuracyScore()).isBetween(0.0, 100.0);
+    }
+
+    private static MealPlan plan(Meal... meals) {
+        Day day = new Day();
+        day.setDayNumber(1);
+        day.setMeals(new ArrayList<>(List.of(meals)));
+        return new MealPlan(new ArrayList<>(List.of(day)), new MacroTargets(2000, 150, 200, 60));
+    }
+
+    private static Meal meal(String name, MacroTargets claimed, FoodItem... foods) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setMacros(claimed);
+        meal.setFoods(new ArrayList<>(List.of(foods)));
+        return meal;
+    }
+}
@@ -0,0 +1,64 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MealPlanValidatorTest {
+
+    private final MealPlanService mealPlanService = mock(MealPlanService.class);
+    private final ProviderCalls providerCalls = new ProviderCalls(false, 1);
+    private final MealPlanValidator validator = new MealPlanValidator(mealPlanService, new AllergenLexicon(), providerCalls, 2, 5_000);
+    private final PreferenceProfile preferences = new PreferenceProfile("", Set.of(), Set.of("mushrooms"),
+            FoodTermMatcher.of(Set.of("mushrooms")));
+
+    @AfterEach
+    void tearDown() {
+        providerCalls.shutdown();
+    }
+
+    @Test
+    void swapIsGeneratedUnderTheRestrictionsAndScreened() {
+        when(mealPlanService.generateReplacementMeal(any(), anyString(), any()))
+                .thenReturn(meal("Chicken satay", "Chicken breast", "2 tbsp peanut sauce"))
+                .thenReturn(meal("Chicken rice bowl", "Chicken breast", "1 cup white rice"));
+
+        Meal swapped = validator.swap(new MacroTargets(500, 40, 50, 15), "Turkey wrap", List.of("Peanuts"), preferences);
+
+        assertThat(swapped).extracting(Meal::getName).isEqualTo("Chicken rice bowl");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> exclusions = ArgumentCaptor.forClass(Collection.class);
+        verify(mealPlanService, times(2)).generateReplacementMeal(any(), eq("Turkey wrap"), exclusions.capture());
+        assertThat(exclusions.getValue()).contains("Peanuts", "mushrooms");
+    }
+
+    @Test
+    void swapGivesUpWhenNoAttemptIsClean() {
+        when(mealPlanService.generateReplacementMeal(any(), anyString(), any()))
+                .thenReturn(meal("Mushroom risotto", "Arborio rice", "1 cup mushrooms"));
+
+        assertThat(validator.swap(new MacroTargets(500, 40, 50, 15), "Turkey wrap", List.of(), preferences)).isNull();
+        verify(mealPlanService, times(2)).generateReplacementMeal(any(), anyString(), any());
+    }
+
+    private static Meal meal(String name, String item, String ingredient) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setMacros(new MacroTargets(500, 40, 50, 15));
+        meal.setFoods(new ArrayList<>(List.of(new FoodItem(item, "6 oz"))));
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setIngredients(new ArrayList<>(List.of(ingredient)));
+        meal.setRecipe(recipe);
+        return meal;
+    }
+}
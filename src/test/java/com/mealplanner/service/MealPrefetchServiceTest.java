@@ -0,0 +1,85 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MealPrefetchServiceTest {
+
+    private final MealPlanService mealPlanService = mock(MealPlanService.class);
+    private final ProviderCalls providerCalls = new ProviderCalls(false, 1);
+    private MealPrefetchService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+        providerCalls.shutdown();
+    }
+
+    @Test
+    void alternativesAreGeneratedUnderThePlansRestrictionsAndScreened() throws Exception {
+        when(mealPlanService.isAiAvailable()).thenReturn(true);
+        when(mealPlanService.speculativeCallCeilingUsd()).thenReturn(0.0);
+        when(mealPlanService.generateSpeculativeMeal(any(), anyString(), any()))
+                .thenReturn(meal("Chicken satay", "Chicken breast", "2 tbsp peanut sauce"))
+                .thenReturn(meal("Mushroom risotto", "Arborio rice", "1 cup mushrooms"))
+                .thenReturn(meal("Chicken rice bowl", "Chicken breast", "1 cup white rice"));
+        service = new MealPrefetchService(mealPlanService, providerCalls, new AllergenLexicon(),
+                true, 1, 1, 10, 1.0, 120);
+        PreferenceProfile preferences = new PreferenceProfile("", Set.of(), Set.of("mushrooms"),
+                FoodTermMatcher.of(Set.of("mushrooms")));
+
+        service.prefetch(7L, 100L, plan(), List.of("Peanuts"), preferences);
+
+        Optional<Meal> taken = Optional.empty();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (taken.isEmpty() && System.currentTimeMillis() < deadline) {
+            taken = service.take(7L, 100L, 0, 0);
+            if (taken.isEmpty()) Thread.sleep(20);
+        }
+
+        assertThat(taken).map(Meal::getName).contains("Chicken rice bowl");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> exclusions = ArgumentCaptor.forClass(Collection.class);
+        verify(mealPlanService, atLeast(3)).generateSpeculativeMeal(any(), anyString(), exclusions.capture());
+        assertThat(exclusions.getValue()).contains("Peanuts", "mushrooms");
+    }
+
+    @Test
+    void anotherUsersPlanIsNotServed() {
+        when(mealPlanService.isAiAvailable()).thenReturn(true);
+        service = new MealPrefetchService(mealPlanService, providerCalls, new AllergenLexicon(),
+                true, 1, 1, 10, 0.0, 120);
+
+        service.prefetch(7L, 100L, plan(), List.of(), PreferenceProfile.EMPTY);
+
+        assertThat(service.take(8L, 100L, 0, 0)).isEmpty();
+    }
+
+    private static MealPlan plan() {
+        Day day = new Day();
+        day.setDayNumber(1);
+        day.setMeals(new ArrayList<>(List.of(meal("Turkey wrap", "Turkey breast", "1 tortilla"))));
+        return new MealPlan(new ArrayList<>(List.of(day)), new MacroTargets(2000, 150, 200, 60));
+    }
+
+    private static Meal meal(String name, String item, String ingredient) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setMacros(new MacroTargets(500, 40, 50, 15));
+        meal.setFoods(new ArrayList<>(List.of(new FoodItem(item, "6 oz"))));
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setIngredients(new ArrayList<>(List.of(ingredient)));
+        meal.setRecipe(recipe);
+        return meal;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mealplanner.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+class PlanPageCacheTest {
+
+    @TempDir
+    Path base;
+
+    @Test
+    void eachInstanceGetsItsOwnSpillDirectory() throws IOException {
+        PlanPageCache first = new PlanPageCache(8192, 256, base.toString());
+        PlanPageCache second = new PlanPageCache(8192, 256, base.toString());
+
+        List<Path> dirs = spillDirs();
+        assertThat(dirs).hasSize(2);
+        assertThat(dirs.get(0)).isNotEqualTo(dirs.get(1));
+
+        first.shutdown();
+        assertThat(spillDirs()).hasSize(1);
+        second.shutdown();
+        assertThat(spillDirs()).isEmpty();
+    }
+
+    @Test
+    void spillDirectoryIsOwnerOnly() throws IOException {
+        assumeThat(FileSystems.getDefault().supportedFileAttributeViews()).contains("posix");
+        PlanPageCache cache = new PlanPageCache(8192, 256, base.toString());
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(spillDirs().get(0)))).isEqualTo("rwx------");
+        cache.shutdown();
+    }
+
+    @Test
+    void startingAnInstanceLeavesOtherFilesAlone() throws IOException {
+        Path other = Files.writeString(base.resolve("plan-pages-other.html"), "not ours");
+        PlanPageCache cache = new PlanPageCache(8192, 256, base.toString());
+        cache.shutdown();
+
+        assertThat(other).hasContent("not ours");
+    }
+
+    @Test
+    void rendersOncePerPlan() {
+        PlanPageCache cache = new PlanPageCache(8192, 256, base.toString());
+        AtomicInteger renders = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) assertThat(cache.body(1L, () -> "plan " + renders.incrementAndGet())).isEqualTo("plan 1");
+        assertThat(renders).hasValue(1);
+        cache.shutdown();
+    }
+
+    @Test
+    void evictedBodyIsReadBackFromDiskWithoutRendering() throws Exception {
+        // 1 KB of memory holds one 400-character body (800 bytes weighed) but not two
+        PlanPageCache cache = new PlanPageCache(1, 256, base.toString());
+        cache.body(1L, () -> "a".repeat(400));
+        cache.body(2L, () -> "b".repeat(400));
+
+        Path spilled = awaitSpilledFile(Duration.ofSeconds(5));
+        long planId = Long.parseLong(spilled.getFileName().toString().replace(".html", ""));
+        AtomicInteger renders = new AtomicInteger();
+
+        String body = cache.body(planId, () -> "rendered " + renders.incrementAndGet());
+
+        assertThat(body).isEqualTo((planId == 1L ? "a" : "b").repeat(400));
+        assertThat(renders).hasValue(0);
+        cache.shutdown();
+    }
+
+    private List<Path> spillDirs() throws IOException {
+        try (Stream<Path> entries = Files.list(base)) {
+            return entries.filter(Files::isDirectory)
+                    .filter(p -> p.getFileName().toString().startsWith("plan-pages-"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path awaitSpilledFile(Duration timeout) throws Exception {
+        // The removal listener runs asynchronously
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            for (Path dir : spillDirs()) {
+                try (Stream<Path> files = Files.list(dir)) {
+                    Optional<Path> file = files.filter(f -> f.toString().endsWith(".html")).findFirst();
+                    if (file.isPresent() && Files.size(file.get()) == 400) return file.get();
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No plan page was spilled to disk");
+    }
+}
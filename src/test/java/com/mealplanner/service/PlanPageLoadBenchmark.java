@@ -0,0 +1,98 @@
+package com.mealplanner.service;
+
+import com.mealplanner.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Before/after load comparison for saved plan pages: every request rebuilding the plan and rendering it,
+ * against requests served through {@link PlanPageCache}, once with memory enough for every page and once
+ * with a memory budget a tenth of that so most hits come back from the spill directory. Rendering is
+ * simulated as a blocking load of the plan's rows followed by building a page-sized body. Scale with
+ * -Dbenchmark.requests, -Dbenchmark.plans and -Dbenchmark.render-ms.
+ */
+@Tag("benchmark")
+class PlanPageLoadBenchmark {
+
+    private static final int PAGE_CHARS = 24_000;
+
+    @TempDir
+    Path base;
+
+    private record Result(String label, long wallMs, int renders, int wrongPages) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-44s wall %7d ms   renders %7d", label, wallMs, renders);
+        }
+    }
+
+    @Test
+    void cachedPagesAgainstRenderingEveryRequest() throws Exception {
+        int requests = Benchmarks.size("requests", 20_000);
+        int plans = Benchmarks.size("plans", 500);
+        long renderMs = Benchmarks.size("render-ms", 20);
+        long pagesKb = (long) plans * PAGE_CHARS * 2 / 1024;
+
+        AtomicInteger uncachedRenders = new AtomicInteger();
+        Result uncached = run("render every request", requests, plans,
+                id -> render(id, renderMs, uncachedRenders), uncachedRenders);
+
+        PlanPageCache inMemory = new PlanPageCache(pagesKb * 2, 1024, base.toString());
+        AtomicInteger memoryRenders = new AtomicInteger();
+        Result memory = run("page cache, all in memory", requests, plans,
+                id -> inMemory.body(id, () -> render(id, renderMs, memoryRenders)), memoryRenders);
+        inMemory.shutdown();
+
+        PlanPageCache spilling = new PlanPageCache(pagesKb / 10, 1024, base.toString());
+        AtomicInteger spillRenders = new AtomicInteger();
+        Result spill = run("page cache, 10% in memory, rest on disk", requests, plans,
+                id -> spilling.body(id, () -> render(id, renderMs, spillRenders)), spillRenders);
+        spilling.shutdown();
+
+        for (Result r : new Result[]{uncached, memory, spill}) assertThat(r.wrongPages()).as(r.label()).isZero();
+        assertThat(uncached.renders()).isEqualTo(requests);
+        assertThat(memory.renders()).isLessThanOrEqualTo(plans);
+        assertThat(spill.renders()).isLessThan(requests);
+    }
+
+    private static Result run(String label, int requests, int plans, LongFunction<String> page, AtomicInteger renders)
+            throws InterruptedException {
+        AtomicInteger wrongPages = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                executor.submit(() -> {
+                    long id = ThreadLocalRandom.current().nextInt(plans) + 1;
+                    String html = page.apply(id);
+                    if (!html.startsWith("<section data-plan=\"" + id + "\"")) wrongPages.incrementAndGet();
+                });
+            }
+        }
+        Result result = new Result(label, (System.nanoTime() - start) / 1_000_000, renders.get(), wrongPages.get());
+        System.out.println("[benchmark] " + result);
+        return result;
+    }
+
+    private static String render(long id, long renderMs, AtomicInteger renders) {
+        renders.incrementAndGet();
+        try {
+            Thread.sleep(renderMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringBuilder html = new StringBuilder(PAGE_CHARS + 64).append("<section data-plan=\"").append(id).append("\">");
+        while (html.length() < PAGE_CHARS) html.append("<tr><td>meal</td><td>").append(id).append("</td></tr>");
+        return html.append("</section>").toString();
+    }
+}
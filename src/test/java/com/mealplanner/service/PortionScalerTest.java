@@ -0,0 +1,93 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PortionScalerTest {
+
+    private static final MacroTargets TARGETS = new MacroTargets(1100, 95, 125, 22);
+
+    private static FoodCatalog catalog;
+    private static MacroVerifier verifier;
+    private static PortionScaler scaler;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        catalog = new FoodCatalog();
+        verifier = new MacroVerifier(catalog);
+        scaler = new PortionScaler(catalog, 0.4);
+    }
+
+    @Test
+    void scalingBringsTheVerifiedDayTowardTarget() {
+        MealPlan plan = plan();
+        int before = verifier.verify(plan, TARGETS).actualDaily().getCalories();
+
+        assertThat(scaler.apply(plan, TARGETS)).isEqualTo(1);
+
+        int after = verifier.verify(plan, TARGETS).actualDaily().getCalories();
+        assertThat(Math.abs(after - TARGETS.getCalories())).isLessThan(Math.abs(before - TARGETS.getCalories()));
+        assertThat(plan.getDays().get(0).getDailyTotal().getCalories()).isEqualTo(statedCalories(plan));
+    }
+
+    @Test
+    void overstatedClaimIsStillFlaggedAfterScaling() {
+        MealPlan plan = plan();
+        assertThat(verifier.verify(plan, TARGETS).flaggedBySlot()).containsOnlyKeys("0-0");
+
+        scaler.apply(plan, TARGETS);
+
+        MacroVerifier.Report after = verifier.verify(plan, TARGETS);
+        assertThat(after.flaggedBySlot()).containsOnlyKeys("0-0");
+        MacroVerifier.MealCheck check = after.flaggedBySlot().get("0-0");
+        // The claim moved with the portions but kept its original overstatement
+        assertThat(check.claimed().getCalories() - check.computed().getCalories()).isBetween(200, 240);
+    }
+
+    @Test
+    void mealsWithoutRescaledItemsKeepTheirClaims() {
+        MealPlan plan = plan();
+        scaler.apply(plan, TARGETS);
+
+        MacroTargets snack = plan.getDays().get(0).getMeals().get(2).getMacros();
+        assertThat(snack.getCalories()).isEqualTo(200);
+        assertThat(snack.getProtein()).isEqualTo(10);
+        assertThat(snack.getCarbs()).isEqualTo(20);
+        assertThat(snack.getFat()).isEqualTo(8);
+    }
+
+    private static int statedCalories(MealPlan plan) {
+        int sum = 0;
+        for (Meal m : plan.getDays().get(0).getMeals()) sum += m.getMacros().getCalories();
+        return sum;
+    }
+
+    // One day: a bowl whose calories are overstated by 220, an accurate breakfast, and an unrecognised snack
+    private static MealPlan plan() {
+        List<Meal> meals = new ArrayList<>();
+        meals.add(meal("Chicken bowl", new MacroTargets(700, 57, 45, 6),
+                new FoodItem("Chicken breast", "6 oz"), new FoodItem("White rice", "1 cup")));
+        meals.add(meal("Oatmeal", new MacroTargets(150, 5, 27, 3), new FoodItem("Oats", "1 cup")));
+        meals.add(meal("House snack", new MacroTargets(200, 10, 20, 8), new FoodItem("Chef's snack mix", "to taste")));
+        Day day = new Day();
+        day.setDayNumber(1);
+        day.setMeals(meals);
+        MealPlan plan = new MealPlan();
+        plan.setDays(new ArrayList<>(List.of(day)));
+        return plan;
+    }
+
+    private static Meal meal(String name, MacroTargets claimed, FoodItem... foods) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setMacros(claimed);
+        meal.setFoods(new ArrayList<>(List.of(foods)));
+        return meal;
+    }
+}
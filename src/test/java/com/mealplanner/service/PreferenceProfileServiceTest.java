@@ -0,0 +1,86 @@
+package com.mealplanner.service;
+
+import com.mealplanner.model.LearnedUserPreference;
+import com.mealplanner.model.User;
+import com.mealplanner.model.UserFoodPreferences;
+import com.mealplanner.repository.LearnedUserPreferenceRepository;
+import com.mealplanner.repository.UserFoodPreferencesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/** The compiled profile is reused until the rows behind it change, and rebuilt after. */
+class PreferenceProfileServiceTest {
+
+    private final UserFoodPreferencesRepository preferences = mock(UserFoodPreferencesRepository.class);
+    private final LearnedUserPreferenceRepository learned = mock(LearnedUserPreferenceRepository.class);
+    private final AtomicReference<UserFoodPreferences> stored = new AtomicReference<>();
+    private PreferenceProfileService profiles;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("a@example.com", "A", "g-1");
+        user.setId(1L);
+        when(preferences.findByUserId(1L)).thenAnswer(inv -> Optional.ofNullable(stored.get()));
+        when(preferences.findByUser(user)).thenAnswer(inv -> Optional.ofNullable(stored.get()));
+        when(preferences.save(any())).thenAnswer(inv -> {
+            stored.set(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        when(learned.findByUserIdAndConfidencePctGreaterThanEqual(anyLong(), anyInt())).thenReturn(List.of());
+        profiles = new PreferenceProfileService(preferences, learned);
+    }
+
+    @Test
+    void profileIsCompiledOncePerUser() {
+        PreferenceProfile first = profiles.get(1L);
+        PreferenceProfile second = profiles.get(1L);
+
+        assertThat(second).isSameAs(first);
+        verify(preferences, times(1)).findByUserId(1L);
+        assertThat(profiles.get(null).getAvoidedFoods()).isEmpty();
+    }
+
+    @Test
+    void savingPreferencesInvalidatesTheProfile() {
+        UserFoodPreferencesService service = new UserFoodPreferencesService(preferences, profiles);
+        assertThat(profiles.get(1L).getAvoidedFoods()).isEmpty();
+
+        service.savePreferences(user, "Chicken, rice", "Mushrooms\nOlives", null, null);
+
+        PreferenceProfile updated = profiles.get(1L);
+        assertThat(updated.getAvoidedFoods()).containsExactly("mushrooms", "olives");
+        assertThat(updated.getPreferredFoods()).containsExactly("chicken", "rice");
+        assertThat(updated.getAvoidMatcher().findAll("Mushroom risotto with olives")).isNotEmpty();
+        assertThat(updated.getPromptFragment()).contains("Foods to avoid: Mushrooms, Olives");
+    }
+
+    @Test
+    void learnedPreferencesAppearAfterInvalidateAll() {
+        assertThat(profiles.get(1L).getAvoidedFoods()).isEmpty();
+        LearnedUserPreference dislike = new LearnedUserPreference();
+        dislike.setPreferenceType(SwapService.DISLIKES);
+        dislike.setFoodItem("Tofu");
+        dislike.setConfidencePct(80);
+        when(learned.findByUserIdAndConfidencePctGreaterThanEqual(1L, PreferenceProfileService.LEARNED_MIN_CONFIDENCE_PCT))
+                .thenReturn(List.of(dislike));
+
+        // Still the cached profile until the writer invalidates it
+        assertThat(profiles.get(1L).getAvoidedFoods()).isEmpty();
+        profiles.invalidateAll(Set.of(1L, 2L));
+
+        assertThat(profiles.get(1L).getAvoidedFoods()).containsExactly("tofu");
+        assertThat(profiles.get(1L).getPromptFragment()).contains("Avoid Tofu");
+    }
+}
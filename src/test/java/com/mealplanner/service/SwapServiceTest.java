@@ -0,0 +1,58 @@
+package com.mealplanner.service;
+
+import com.mealplanner.TestDatabases;
+import com.mealplanner.model.User;
+import com.mealplanner.repository.LearnedPreferenceUpsertRepository;
+import com.mealplanner.repository.SwapHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SwapServiceTest {
+
+    private LearnedPreferenceUpsertRepository upserts;
+    private PreferenceProfileService profiles;
+    private SwapService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        upserts = mock(LearnedPreferenceUpsertRepository.class);
+        profiles = mock(PreferenceProfileService.class);
+        service = new SwapService(mock(SwapHistoryRepository.class), upserts, profiles, mock(FoodCatalog.class),
+                mock(AllergenLexicon.class), new DataSourceTransactionManager(TestDatabases.empty()));
+        user = new User();
+        user.setId(42L);
+    }
+
+    @Test
+    void failedBatchIsRetriedOnTheNextFlush() {
+        doThrow(new IllegalStateException("database unavailable")).doNothing().when(upserts).apply(any(), any());
+        service.recordSwap(user, "FOOD", "white rice", "quinoa", "Lunch");
+
+        service.flushPreferenceEvents();
+        verify(profiles, never()).invalidateAll(any());
+
+        service.flushPreferenceEvents();
+        verify(upserts, times(2)).apply(any(), any());
+        verify(profiles).invalidateAll(Set.of(42L));
+        assertThat(service.getDroppedPreferenceEventCount()).isZero();
+    }
+
+    @Test
+    void batchIsDroppedAfterRepeatedFailures() {
+        doThrow(new IllegalStateException("database unavailable")).when(upserts).apply(any(), any());
+        service.recordSwap(user, "FOOD", "white rice", "quinoa", "Lunch");
+
+        for (int i = 0; i < 10; i++) service.flushPreferenceEvents();
+
+        verify(upserts, times(5)).apply(any(), any());
+        assertThat(service.getDroppedPreferenceEventCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mealplanner.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mealplanner.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load comparison for request work that blocks on a provider call, run through {@link ProviderCalls} scopes:
+ * a fixed pool of platform threads (Tomcat's default of 200) against one virtual thread per call, and, on
+ * virtual threads, a cache loader run inside Caffeine's lock against one run through {@link CacheLoads}.
+ * Reports peak calls in flight, wall time, peak platform threads, and heap per in-flight call. Scale with
+ * -Dbenchmark.requests and -Dbenchmark.call-ms.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+
+    private record Result(String label, int maxInFlight, long wallMs, int peakThreads, long heapBytesPerCall) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-44s in-flight %6d   wall %6d ms   peak threads %5d   heap/call %7d B",
+                    label, maxInFlight, wallMs, peakThreads, heapBytesPerCall);
+        }
+    }
+
+    @Test
+    void virtualThreadsAgainstPlatformPool() throws Exception {
+        int requests = Benchmarks.size("requests", 10_000);
+        long callMs = Benchmarks.size("call-ms", 200);
+
+        Result platform = run("platform pool (" + PLATFORM_THREADS + " threads)", new ProviderCalls(false, PLATFORM_THREADS),
+                requests, key -> sleep(callMs));
+        Result virtual = run("virtual thread per call", new ProviderCalls(true, PLATFORM_THREADS),
+                requests, key -> sleep(callMs));
+
+        assertThat(platform.maxInFlight()).isLessThanOrEqualTo(PLATFORM_THREADS);
+        assertThat(virtual.maxInFlight()).isGreaterThan(platform.maxInFlight());
+    }
+
+    @Test
+    void cacheLoaderInsideLockAgainstCacheLoads() throws Exception {
+        int requests = Benchmarks.size("requests", 10_000);
+        long callMs = Benchmarks.size("call-ms", 200);
+
+        // Distinct keys, so only the lock held during the load (not a shared key) can serialise callers
+        Cache<Long, Long> locked = Caffeine.newBuilder().build();
+        Result pinned = run("virtual, loader inside Caffeine lock", new ProviderCalls(true, PLATFORM_THREADS), requests,
+                key -> locked.get(key, k -> { sleep(callMs); return k; }));
+        AsyncCache<Long, Long> async = Caffeine.newBuilder().buildAsync();
+        Result unpinned = run("virtual, loader through CacheLoads", new ProviderCalls(true, PLATFORM_THREADS), requests,
+                key -> CacheLoads.get(async, key, k -> { sleep(callMs); return k; }));
+
+        assertThat(unpinned.maxInFlight()).isGreaterThanOrEqualTo(pinned.maxInFlight());
+    }
+
+    private static Result run(String label, ProviderCalls calls, int requests, LongConsumer call) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicLong heapAtPeak = new AtomicLong();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        long heapBefore = usedHeap();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        try (ProviderCalls.Scope scope = calls.openScope()) {
+            for (int i = 0; i < requests; i++) {
+                long key = i;
+                scope.fork(() -> {
+                    int now = inFlight.incrementAndGet();
+                    if (now > maxInFlight.get() && now > maxInFlight.getAndAccumulate(now, Math::max)) {
+                        heapAtPeak.set(usedHeap());
+                    }
+                    try {
+                        call.accept(key);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            scope.join(Duration.ofMinutes(5));
+        } finally {
+            calls.shutdown();
+        }
+        long wallMs = (System.nanoTime() - start) / 1_000_000;
+        long perCall = maxInFlight.get() == 0 ? 0 : Math.max(0, heapAtPeak.get() - heapBefore) / maxInFlight.get();
+        Result r = new Result(label, maxInFlight.get(), wallMs, threads.getPeakThreadCount(), perCall);
+        System.out.println("[benchmark] " + r);
+        return r;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}